@@ -0,0 +1,59 @@
+/**
+ * 基准测试公共工具
+ *
+ * 注册内置模块并构造测试用的模块布局。基准测试不启动Minecraft客户端或服务器，
+ * 只使用不依赖游戏引导（Bootstrap）的类。配置使用内存中的默认值，不读写工作目录下的配置文件。
+ */
+package com.kirisame1969.weaving_infinity.bench;
+
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import com.kirisame1969.weaving_infinity.module.modules.base.FireballModule;
+import com.kirisame1969.weaving_infinity.module.modules.modifier.ExplodeOnHitModifier;
+import com.kirisame1969.weaving_infinity.module.modules.modifier.SplitOnHitModifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkSupport {
+    static final String FIREBALL = FireballModule.ID.toString();
+    static final String SPLIT = SplitOnHitModifier.ID.toString();
+    static final String EXPLODE = ExplodeOnHitModifier.ID.toString();
+
+    private BenchmarkSupport() {}
+
+    /**
+     * 安装默认配置并注册内置模块（只执行一次）
+     */
+    static synchronized void registerModules() {
+        if (!ModuleRegistry.isFrozen()) {
+            ModuleConfig.installInMemory(new ModuleConfig());
+            ModuleRegistry.registerBuiltinModules();
+        }
+    }
+
+    /**
+     * 构造一个以火球开头、其余为修饰模块的布局
+     * @param size 布局长度
+     * @return 模块ID列表
+     */
+    static List<String> layout(int size) {
+        List<String> layout = new ArrayList<>(size);
+        layout.add(FIREBALL);
+        layout.addAll(modifiers(size - 1));
+        return layout;
+    }
+
+    /**
+     * 构造交替排列的修饰模块
+     * @param count 修饰模块数量
+     * @return 模块ID列表
+     */
+    static List<String> modifiers(int count) {
+        List<String> modifiers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            modifiers.add(i % 2 == 0 ? SPLIT : EXPLODE);
+        }
+        return modifiers;
+    }
+}
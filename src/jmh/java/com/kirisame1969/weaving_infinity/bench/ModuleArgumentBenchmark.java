@@ -0,0 +1,59 @@
+/**
+ * 模块参数自动补全基准测试
+ *
+ * 除了注册表中的内置模块，还在包含数千个数据包模块ID的索引上测量前缀查询和模糊匹配。
+ */
+package com.kirisame1969.weaving_infinity.bench;
+
+import com.kirisame1969.weaving_infinity.command.ModuleArgument;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleIdIndex;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModuleArgumentBenchmark {
+    @Param({"", "f", "weaving_infinity:s", "fbl"})
+    public String input;
+
+    // 模拟数据包模块的数量
+    private static final int SYNTHETIC_MODULES = 5000;
+
+    private ModuleArgument argument;
+    private ModuleIdIndex largeIndex;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.registerModules();
+        argument = ModuleArgument.moduleArgument();
+        List<String> ids = new ArrayList<>(SYNTHETIC_MODULES);
+        for (int i = 0; i < SYNTHETIC_MODULES; i++) {
+            ids.add("examplepack:variant_" + i + (i % 2 == 0 ? "_fireball" : "_split"));
+        }
+        largeIndex = new ModuleIdIndex(ids);
+    }
+
+    @Benchmark
+    public Suggestions listSuggestions() {
+        // 补全不读取命令上下文，可以传入null
+        return argument.listSuggestions(null, new SuggestionsBuilder(input, 0)).join();
+    }
+
+    @Benchmark
+    public List<String> largeIndexSuggest() {
+        return largeIndex.suggest(input, 50);
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * 模块执行器基准测试
+ *
+ * 测量不同长度的修饰模块栈经过 ModuleExecutor 的执行开销（上下文创建、遍历和共享数据读写）。
+ * 基础模块需要真实的世界才能生成投射物，因此这里只执行修饰模块，世界和施法者为null。
+ */
+package com.kirisame1969.weaving_infinity.bench;
+
+import com.kirisame1969.weaving_infinity.api.module.ContextKeys;
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
+import com.kirisame1969.weaving_infinity.core.ModuleExecutor;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import io.redspace.ironsspellbooks.api.spells.CastSource;
+import net.minecraft.world.phys.Vec3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModuleExecutorBenchmark {
+    private static final Vec3 DIRECTION = new Vec3(0.0, 0.0, 1.0);
+
+    @Param({"1", "4", "16"})
+    public int modifierCount;
+
+    private List<ISpellModule> modules;
+    private SpellPlan plan;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.registerModules();
+        modules = new ArrayList<>(modifierCount);
+        for (String moduleId : BenchmarkSupport.modifiers(modifierCount)) {
+            modules.add(ModuleRegistry.getModule(moduleId));
+        }
+        plan = SpellPlan.of(modules);
+    }
+
+    @Benchmark
+    public int executePlan() {
+        ModuleExecutionContext context = new ModuleExecutionContext(null, null, CastSource.SPELLBOOK, DIRECTION, Vec3.ZERO);
+        ModuleExecutor.executeModules(plan, context);
+        return context.getInt(ContextKeys.SPLIT_COUNT);
+    }
+
+    @Benchmark
+    public int executeModuleList() {
+        ModuleExecutionContext context = new ModuleExecutionContext(null, null, CastSource.SPELLBOOK, DIRECTION, Vec3.ZERO);
+        ModuleExecutor.executeModules(modules, context);
+        return context.getInt(ContextKeys.SPLIT_COUNT);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * 模块注册表查找基准测试
+ *
+ * 覆盖按字符串ID、按数字ID的模块查找以及标签位掩码查询。
+ */
+package com.kirisame1969.weaving_infinity.bench;
+
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModuleRegistryBenchmark {
+    @Param({"weaving_infinity:fireball", "weaving_infinity:explode_on_hit", "weaving_infinity:missing"})
+    public String moduleId;
+
+    private ISpellModule module;
+    private int numericId;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.registerModules();
+        module = ModuleRegistry.getModule(BenchmarkSupport.FIREBALL);
+        numericId = ModuleRegistry.getNumericId(module);
+    }
+
+    @Benchmark
+    public ISpellModule getModuleById() {
+        return ModuleRegistry.getModule(moduleId);
+    }
+
+    @Benchmark
+    public boolean hasModule() {
+        return ModuleRegistry.hasModule(moduleId);
+    }
+
+    @Benchmark
+    public ISpellModule getModuleByNumericId() {
+        return ModuleRegistry.getModule(numericId);
+    }
+
+    @Benchmark
+    public long getTagMask() {
+        return ModuleRegistry.getTagMask(module);
+    }
+}
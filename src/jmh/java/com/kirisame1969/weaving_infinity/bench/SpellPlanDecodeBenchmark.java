@@ -0,0 +1,91 @@
+/**
+ * 法术核心解码基准测试
+ *
+ * 比较每次复制NBT并逐个查找模块的旧解码方式与按布局组件实例缓存的法术计划，
+ * 以及计划首次编译的开销。
+ */
+package com.kirisame1969.weaving_infinity.bench;
+
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.component.CustomData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpellPlanDecodeBenchmark {
+    @Param({"1", "4", "9"})
+    public int planSize;
+
+    private CustomData data;
+    private SpellLayout component;
+    private List<String> layoutCopy;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.registerModules();
+        List<String> layout = BenchmarkSupport.layout(planSize);
+        ListTag modules = new ListTag();
+        for (String moduleId : layout) {
+            modules.add(StringTag.valueOf(moduleId));
+        }
+        CompoundTag tag = new CompoundTag();
+        tag.put("modules", modules);
+        data = CustomData.of(tag);
+        component = new SpellLayout(layout);
+        // 内容相同但实例不同的布局，用于测量驻留表查找
+        layoutCopy = new ArrayList<>(layout);
+    }
+
+    /**
+     * 旧的解码方式：每次从自定义数据复制NBT并逐个查找模块
+     */
+    @Benchmark
+    public List<ISpellModule> legacyDecode() {
+        List<ISpellModule> modules = new ArrayList<>();
+        CompoundTag tag = data.copyTag();
+        ListTag moduleList = tag.getList("modules", Tag.TAG_STRING);
+        for (int i = 0; i < moduleList.size(); i++) {
+            ISpellModule module = ModuleRegistry.getModule(moduleList.getString(i));
+            if (module != null) {
+                modules.add(module);
+            }
+        }
+        return modules;
+    }
+
+    @Benchmark
+    public SpellPlan cachedPlan() {
+        return SpellPlanCache.forComponent(component);
+    }
+
+    @Benchmark
+    public SpellPlan internedLayout() {
+        return SpellPlanCache.forLayout(layoutCopy);
+    }
+
+    @Benchmark
+    public SpellPlan coldCompile() {
+        SpellPlanCache.invalidateAll();
+        return SpellPlanCache.forComponent(component);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * 分裂方向计算基准测试
+ *
+ * 比较逐个子弹计算三角函数的旧方式与查表并旋转到撞击方向的新方式。
+ */
+package com.kirisame1969.weaving_infinity.bench;
+
+import com.kirisame1969.weaving_infinity.core.split.SplitBasis;
+import com.kirisame1969.weaving_infinity.core.split.SplitPattern;
+import com.kirisame1969.weaving_infinity.core.split.SplitPatternTables;
+import net.minecraft.world.phys.Vec3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SplitDirectionBenchmark {
+    private static final Vec3 IMPACT_DIRECTION = new Vec3(0.3, -0.2, 0.9).normalize();
+
+    @Param({"3", "8", "32", "128"})
+    public int splitCount;
+
+    @Param({"ring", "cone", "fibonacci_sphere", "random"})
+    public String pattern;
+
+    private SplitPattern splitPattern;
+
+    @Setup
+    public void setup() {
+        splitPattern = SplitPattern.byName(pattern);
+    }
+
+    /**
+     * 旧的计算方式：每个子弹计算一次角度、三角函数和归一化
+     */
+    @Benchmark
+    public void legacyTrig(Blackhole blackhole) {
+        float angleBetweenShots = 360.0f / splitCount;
+        for (int i = 0; i < splitCount; i++) {
+            double yawRadians = Math.toRadians(i * angleBetweenShots);
+            blackhole.consume(new Vec3(-Math.sin(yawRadians), 0, Math.cos(yawRadians)).normalize());
+        }
+    }
+
+    @Benchmark
+    public void tableWalk(Blackhole blackhole) {
+        double[] table = SplitPatternTables.get(splitPattern, splitCount);
+        SplitBasis basis = SplitBasis.of(IMPACT_DIRECTION, splitPattern.isHorizontal());
+        for (int i = 0; i < splitCount; i++) {
+            blackhole.consume(SplitPatternTables.orient(table, i, basis));
+        }
+    }
+}
@@ -7,10 +7,14 @@
 package com.kirisame1969.weaving_infinity;
 
 import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import com.kirisame1969.weaving_infinity.registries.ModDataComponents;
 import com.kirisame1969.weaving_infinity.registries.ModItems;
 import com.kirisame1969.weaving_infinity.registries.CommandArgumentRegistry;
 import com.kirisame1969.weaving_infinity.registries.ModEntities;
+import com.kirisame1969.weaving_infinity.common.config.ConfigWatcher;
 import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.common.proxy.CommonProxy;
+import com.kirisame1969.weaving_infinity.network.ModNetwork;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
@@ -33,6 +37,9 @@ public class WeavingInfinity {
      * @param modEventBus 模组事件总线，用于注册各种组件
      */
     public WeavingInfinity(IEventBus modEventBus) {
+        // 注册数据组件
+        ModDataComponents.DATA_COMPONENTS.register(modEventBus);
+        
         // 注册物品
         ModItems.ITEMS.register(modEventBus);
         
@@ -42,16 +49,20 @@ public class WeavingInfinity {
         // 注册命令参数类型
         CommandArgumentRegistry.register(modEventBus);
         
-        // 注册模块
+        // 从编译时生成的模块索引注册模块，模块类在首次使用时才加载
         ModuleRegistry.registerBuiltinModules();
         
         modEventBus.addListener(this::commonSetup);
         
+        // 注册网络数据包
+        modEventBus.addListener(ModNetwork::register);
+        
         // 注册命令
         NeoForge.EVENT_BUS.addListener(this::registerCommands);
         
         // 客户端初始化
         if (FMLEnvironment.dist.isClient()) {
+            CommonProxy.install(new com.kirisame1969.weaving_infinity.client.ClientProxy());
             modEventBus.addListener(com.kirisame1969.weaving_infinity.client.ClientEvents::registerRenderers);
         }
     }
@@ -63,8 +74,9 @@ public class WeavingInfinity {
     private void commonSetup(final FMLCommonSetupEvent event) {
         LOGGER.info("Hello from Weaving Infinity!");
         
-        // 初始化配置系统
+        // 初始化配置系统，并在配置文件变化时自动重载
         ModuleConfig.getInstance();
+        ConfigWatcher.start();
     }
     
     /**
@@ -0,0 +1,160 @@
+/**
+ * 上下文数据键
+ *
+ * 模块执行上下文共享数据池的类型化键。每个键在注册时获得一个稠密的整数槽位，
+ * 上下文用小数组按槽位存取数据，避免了字符串哈希、装箱和强制类型转换。
+ * 整数和浮点数使用独立的原始类型槽位（IntKey / FloatKey），计数器不会被装箱。
+ *
+ * 键应当作为静态常量注册一次（参见 ContextKeys），名称在全局范围内唯一。
+ */
+package com.kirisame1969.weaving_infinity.api.module;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public final class ContextKey<T> {
+    // 每种槽位最多支持的键数量（存在性使用long位掩码记录）
+    public static final int MAX_KEYS_PER_KIND = Long.SIZE;
+
+    // 已注册的键名，用于检测重复注册
+    private static final Set<String> NAMES = new HashSet<>();
+    private static int objectSlots = 0;
+    private static int intSlots = 0;
+    private static int floatSlots = 0;
+
+    private final String name;
+    private final Class<T> type;
+    private final int slot;
+
+    private ContextKey(String name, Class<T> type, int slot) {
+        this.name = name;
+        this.type = type;
+        this.slot = slot;
+    }
+
+    /**
+     * 注册一个对象类型的键
+     * @param name 键名（全局唯一）
+     * @param type 值类型
+     * @param <T> 值类型
+     * @return 新注册的键
+     */
+    public static synchronized <T> ContextKey<T> create(String name, Class<T> type) {
+        claimName(name);
+        return new ContextKey<>(name, type, nextSlot(objectSlots++, name));
+    }
+
+    /**
+     * 注册一个原始int类型的键
+     * @param name 键名（全局唯一）
+     * @return 新注册的键
+     */
+    public static synchronized IntKey createInt(String name) {
+        claimName(name);
+        return new IntKey(name, nextSlot(intSlots++, name));
+    }
+
+    /**
+     * 注册一个原始float类型的键
+     * @param name 键名（全局唯一）
+     * @return 新注册的键
+     */
+    public static synchronized FloatKey createFloat(String name) {
+        claimName(name);
+        return new FloatKey(name, nextSlot(floatSlots++, name));
+    }
+
+    static synchronized int objectSlotCount() {
+        return objectSlots;
+    }
+
+    static synchronized int intSlotCount() {
+        return intSlots;
+    }
+
+    static synchronized int floatSlotCount() {
+        return floatSlots;
+    }
+
+    private static void claimName(String name) {
+        if (!NAMES.add(name)) {
+            throw new IllegalStateException("Duplicate context key: " + name);
+        }
+    }
+
+    private static int nextSlot(int slot, String name) {
+        if (slot >= MAX_KEYS_PER_KIND) {
+            throw new IllegalStateException("Too many context keys of the same kind, cannot register: " + name);
+        }
+        return slot;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey[" + name + "]";
+    }
+
+    /**
+     * 原始int类型的上下文键
+     */
+    public static final class IntKey {
+        private final String name;
+        private final int slot;
+
+        private IntKey(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        int slot() {
+            return slot;
+        }
+
+        @Override
+        public String toString() {
+            return "IntKey[" + name + "]";
+        }
+    }
+
+    /**
+     * 原始float类型的上下文键
+     */
+    public static final class FloatKey {
+        private final String name;
+        private final int slot;
+
+        private FloatKey(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        int slot() {
+            return slot;
+        }
+
+        @Override
+        public String toString() {
+            return "FloatKey[" + name + "]";
+        }
+    }
+}
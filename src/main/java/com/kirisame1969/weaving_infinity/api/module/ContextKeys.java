@@ -0,0 +1,31 @@
+/**
+ * 内置上下文数据键
+ *
+ * 模块之间通过这些键在执行上下文中交换数据。
+ * 第三方模块可以用 ContextKey.create 注册自己的键。
+ */
+package com.kirisame1969.weaving_infinity.api.module;
+
+import net.minecraft.world.entity.Entity;
+
+public final class ContextKeys {
+    // 最近一次生成的投射物
+    public static final ContextKey<Entity> LAST_PROJECTILE = ContextKey.create("last_projectile", Entity.class);
+
+    // 本次施法生成的第一个投射物（子实体隔离时会保留）
+    public static final ContextKey<Entity> ORIGINAL_PROJECTILE = ContextKey.create("original_projectile", Entity.class);
+
+    // 是否需要在击中时分裂
+    public static final ContextKey<Boolean> SPLIT_ON_HIT = ContextKey.create("split_on_hit", Boolean.class);
+
+    // 叠加的分裂模块数量
+    public static final ContextKey.IntKey SPLIT_COUNT = ContextKey.createInt("split_count");
+
+    // 客户端预测施法的序号，0表示客户端没有进行预测
+    public static final ContextKey.IntKey CAST_SEQUENCE = ContextKey.createInt("cast_sequence");
+
+    // 本次生成的投射物的谱系（见 ProjectileLineage）
+    public static final ContextKey.IntKey LINEAGE = ContextKey.createInt("lineage");
+
+    private ContextKeys() {}
+}
@@ -28,6 +28,7 @@ public interface ISpellModule {
     
     /**
      * 获取模块的标签集合
+     * 每次执行和编译法术计划都会调用，实现应返回常量集合，不要每次重新分配
      * @return 标签字符串集合
      */
     Set<String> getTags();
@@ -56,6 +57,14 @@ public interface ISpellModule {
      */
     float getBaseComplexity();
     
+    /**
+     * 获取模块的开销提示，用于施法前的静态开销分析
+     * @return 开销提示，默认不产生任何实体和爆炸
+     */
+    default ModuleCostHint getCostHint() {
+        return ModuleCostHint.NONE;
+    }
+    
     /**
      * 执行模块的主要功能
      * @param context 模块执行上下文
@@ -0,0 +1,17 @@
+/**
+ * 模块开销提示
+ *
+ * 模块声明自己在最坏情况下产生的实体、爆炸和服务器耗时，供 SpellCostAnalyzer 在施法前静态估算整个法术的开销。
+ * 基础模块描述每次施法生成的投射物；修饰模块描述每次撞击额外产生的子弹和爆炸。
+ *
+ * @param projectilesPerCast 每次执行生成的投射物数量（基础模块）
+ * @param childrenPerImpact 每次撞击分裂出的子弹数量（修饰模块），子弹由计划的第一个基础模块克隆
+ * @param explosionsPerImpact 每次撞击产生的爆炸数量（修饰模块）
+ * @param costMicros 估计的服务器耗时（微秒）：基础模块为每个投射物整个存活期的耗时，修饰模块为每次撞击的耗时
+ */
+package com.kirisame1969.weaving_infinity.api.module;
+
+public record ModuleCostHint(int projectilesPerCast, int childrenPerImpact, int explosionsPerImpact, float costMicros) {
+    // 不产生任何实体和爆炸、开销可以忽略的模块
+    public static final ModuleCostHint NONE = new ModuleCostHint(0, 0, 0, 0.0f);
+}
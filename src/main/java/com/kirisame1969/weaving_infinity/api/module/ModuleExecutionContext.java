@@ -6,12 +6,12 @@
  */
 package com.kirisame1969.weaving_infinity.api.module;
 
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
 import io.redspace.ironsspellbooks.api.spells.CastSource;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class ModuleExecutionContext {
     public final Level level;
@@ -19,6 +19,9 @@ public class ModuleExecutionContext {
     public final CastSource source;
     public final Vec3 direction;
     
+    // 正在执行的法术计划（由执行器设置，投射物生成时会绑定该计划）
+    public SpellPlan plan = SpellPlan.EMPTY;
+    
     // 空间数据：记录效果生成位置、飞行方向、目标位置等空间参考信息
     public Vec3 originPosition;     // 效果生成位置
     public Vec3 targetPosition;     // 目标位置
@@ -29,8 +32,15 @@ public class ModuleExecutionContext {
     public int skipModuleCount = 0;        // 跳过模块的数量
     public int currentModuleIndex = 0;     // 当前模块索引
     
-    // 共享数据池：存储模块执行成果、修改器标记等
-    public final Map<String, Object> sharedData = new HashMap<>();
+    // 共享数据池：存储模块执行成果、修改器标记等，按 ContextKey 的槽位存取
+    private Object[] objectData = new Object[ContextKey.objectSlotCount()];
+    private int[] intData = new int[ContextKey.intSlotCount()];
+    private float[] floatData = new float[ContextKey.floatSlotCount()];
+    
+    // 各类槽位的存在性位掩码
+    private long objectPresent = 0L;
+    private long intPresent = 0L;
+    private long floatPresent = 0L;
     
     public ModuleExecutionContext(Level level, LivingEntity caster, CastSource source) {
         this.level = level;
@@ -48,6 +58,14 @@ public class ModuleExecutionContext {
         this.originPosition = caster.position();
     }
     
+    public ModuleExecutionContext(Level level, LivingEntity caster, CastSource source, Vec3 direction, Vec3 originPosition) {
+        this.level = level;
+        this.caster = caster;
+        this.source = source;
+        this.direction = direction;
+        this.originPosition = originPosition;
+    }
+    
     /**
      * 重置上下文状态（用于子实体隔离）
      * 子实体生成时调用，重置修改器生效状态，避免递归触发重复逻辑
@@ -60,10 +78,176 @@ public class ModuleExecutionContext {
         this.currentModuleIndex = 0;
         
         // 保留某些关键数据，但移除可能导致递归的数据
-        Object originalProjectile = this.sharedData.get("original_projectile");
-        this.sharedData.clear();
+        var originalProjectile = get(ContextKeys.ORIGINAL_PROJECTILE);
+        clearSharedData();
         if (originalProjectile != null) {
-            this.sharedData.put("original_projectile", originalProjectile);
+            put(ContextKeys.ORIGINAL_PROJECTILE, originalProjectile);
         }
     }
+    
+    /**
+     * 获取共享数据
+     * @param key 数据键
+     * @param <T> 值类型
+     * @return 对应的值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        int slot = key.slot();
+        return slot < objectData.length ? (T) objectData[slot] : null;
+    }
+    
+    /**
+     * 获取共享数据，不存在时返回默认值
+     * @param key 数据键
+     * @param defaultValue 默认值
+     * @param <T> 值类型
+     * @return 对应的值或默认值
+     */
+    public <T> T getOrDefault(ContextKey<T> key, T defaultValue) {
+        T value = get(key);
+        return value != null ? value : defaultValue;
+    }
+    
+    /**
+     * 写入共享数据，写入null等同于移除
+     * @param key 数据键
+     * @param value 值
+     * @param <T> 值类型
+     */
+    public <T> void put(ContextKey<T> key, T value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        int slot = key.slot();
+        if (slot >= objectData.length) {
+            objectData = Arrays.copyOf(objectData, ContextKey.objectSlotCount());
+        }
+        objectData[slot] = value;
+        objectPresent |= 1L << slot;
+    }
+    
+    /**
+     * 检查共享数据是否存在
+     * @param key 数据键
+     * @return 是否存在
+     */
+    public boolean has(ContextKey<?> key) {
+        return (objectPresent & (1L << key.slot())) != 0;
+    }
+    
+    /**
+     * 移除共享数据
+     * @param key 数据键
+     */
+    public void remove(ContextKey<?> key) {
+        int slot = key.slot();
+        if (slot < objectData.length) {
+            objectData[slot] = null;
+        }
+        objectPresent &= ~(1L << slot);
+    }
+    
+    /**
+     * 获取int共享数据，不存在时返回0
+     * @param key 数据键
+     * @return 对应的值
+     */
+    public int getInt(ContextKey.IntKey key) {
+        int slot = key.slot();
+        return slot < intData.length ? intData[slot] : 0;
+    }
+    
+    /**
+     * 写入int共享数据
+     * @param key 数据键
+     * @param value 值
+     */
+    public void putInt(ContextKey.IntKey key, int value) {
+        int slot = key.slot();
+        if (slot >= intData.length) {
+            intData = Arrays.copyOf(intData, ContextKey.intSlotCount());
+        }
+        intData[slot] = value;
+        intPresent |= 1L << slot;
+    }
+    
+    /**
+     * 累加int共享数据（不存在时从0开始）
+     * @param key 数据键
+     * @param delta 增量
+     * @return 累加后的值
+     */
+    public int addInt(ContextKey.IntKey key, int delta) {
+        int value = getInt(key) + delta;
+        putInt(key, value);
+        return value;
+    }
+    
+    /**
+     * 检查int共享数据是否存在
+     * @param key 数据键
+     * @return 是否存在
+     */
+    public boolean has(ContextKey.IntKey key) {
+        return (intPresent & (1L << key.slot())) != 0;
+    }
+    
+    /**
+     * 获取float共享数据，不存在时返回0
+     * @param key 数据键
+     * @return 对应的值
+     */
+    public float getFloat(ContextKey.FloatKey key) {
+        int slot = key.slot();
+        return slot < floatData.length ? floatData[slot] : 0.0f;
+    }
+    
+    /**
+     * 写入float共享数据
+     * @param key 数据键
+     * @param value 值
+     */
+    public void putFloat(ContextKey.FloatKey key, float value) {
+        int slot = key.slot();
+        if (slot >= floatData.length) {
+            floatData = Arrays.copyOf(floatData, ContextKey.floatSlotCount());
+        }
+        floatData[slot] = value;
+        floatPresent |= 1L << slot;
+    }
+    
+    /**
+     * 累加float共享数据（不存在时从0开始）
+     * @param key 数据键
+     * @param delta 增量
+     * @return 累加后的值
+     */
+    public float addFloat(ContextKey.FloatKey key, float delta) {
+        float value = getFloat(key) + delta;
+        putFloat(key, value);
+        return value;
+    }
+    
+    /**
+     * 检查float共享数据是否存在
+     * @param key 数据键
+     * @return 是否存在
+     */
+    public boolean has(ContextKey.FloatKey key) {
+        return (floatPresent & (1L << key.slot())) != 0;
+    }
+    
+    /**
+     * 清空所有共享数据
+     */
+    public void clearSharedData() {
+        Arrays.fill(objectData, null);
+        Arrays.fill(intData, 0);
+        Arrays.fill(floatData, 0.0f);
+        objectPresent = 0L;
+        intPresent = 0L;
+        floatPresent = 0L;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+/**
+ * 法术模块注解
+ *
+ * 标记一个需要自动注册的法术模块。编译时注解处理器会把所有被标记的类写入模块索引
+ * （META-INF/weaving_infinity/modules.index），启动时 ModuleRegistry 读取索引注册模块，
+ * 不需要扫描类路径，也不需要手动修改注册代码。模块类在第一次被解析时才会加载和实例化。
+ *
+ * 被标记的类必须是公开的、非抽象的、实现 ISpellModule，并且有公开的无参构造函数。
+ */
+package com.kirisame1969.weaving_infinity.api.module;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SpellModule {
+    /**
+     * 模块ID，必须与模块 getId() 的返回值一致
+     * @return 模块ID（命名空间:路径）
+     */
+    String value();
+}
@@ -0,0 +1,204 @@
+/**
+ * 客户端施法预测
+ *
+ * 玩家使用法术核心时，服务器生成的火球要经过一次往返才会出现在客户端，高延迟下施法明显滞后。
+ * 本类在本地立即按与服务器相同的出发点和速度推算一个预测火球，只参与渲染（经 FireballBatchRenderer 输出），
+ * 不创建客户端实体，也不参与任何碰撞和伤害判定。
+ *
+ * 每次预测分配一个施法序号，先于原版的使用物品数据包发送给服务器：
+ * 1. 服务器生成的火球在生成数据中携带同一个序号，客户端读取生成数据后移除预测，改为显示真实的实体
+ * 2. 服务器拒绝施法时发送 CastRejectedPayload，客户端立即移除预测
+ * 3. 预测撞到方块或超过配置的时限仍未确认时自行消失
+ * 三种结局分别计数并显示在调试界面（F3）中，超时的数量持续增长说明确认没有生效。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import com.kirisame1969.weaving_infinity.core.plan.SpellCostAnalyzer;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.network.CastSequencePayload;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.ClipContext;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.bus.api.EventPriority;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
+import net.neoforged.neoforge.client.event.CustomizeGuiOverlayEvent;
+import net.neoforged.neoforge.client.event.RenderLevelStageEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+
+@OnlyIn(Dist.CLIENT)
+@EventBusSubscriber(modid = WeavingInfinity.MODID, value = Dist.CLIENT)
+public class CastPredictor {
+    // 尚未被服务器确认或拒绝的预测
+    private static final PredictionLedger<Prediction> PREDICTIONS = new PredictionLedger<>();
+
+    // 各种结局的预测数量，用于调试界面显示
+    private static long confirmedCount = 0L;
+    private static long rejectedCount = 0L;
+    private static long expiredCount = 0L;
+
+    /**
+     * 预测一次施法（客户端使用法术核心时调用）
+     * 只预测会发射投射物、并且按服务器同步的上限判断不会被拒绝的计划
+     * @param player 施法的玩家
+     * @param plan 法术计划
+     */
+    public static void predict(Player player, SpellPlan plan) {
+        Minecraft minecraft = Minecraft.getInstance();
+        if (player != minecraft.player || !ModuleConfig.getInstance().render.castPrediction) {
+            return;
+        }
+        if (plan.costReport().projectiles() <= 0 || SpellCostAnalyzer.checkAdvisory(plan.costReport()) != null) {
+            return;
+        }
+
+        // 与 FireballModule 相同：从眼睛高度沿视线方向发射
+        Vec3 origin = new Vec3(player.getX(), player.getEyeY(), player.getZ());
+        Vec3 velocity = player.getLookAngle().normalize().scale(CustomFireball.SPEED);
+        int sequence = PREDICTIONS.add(new Prediction(origin, velocity));
+        PacketDistributor.sendToServer(new CastSequencePayload(sequence));
+    }
+
+    /**
+     * 移除被服务器拒绝的预测
+     * @param sequence 施法序号
+     */
+    public static void reject(int sequence) {
+        if (PREDICTIONS.remove(sequence)) {
+            rejectedCount++;
+        }
+    }
+
+    /**
+     * 服务器生成的火球读取生成数据后调用，移除对应的预测
+     * 施法序号随生成数据同步，实体加入世界时还没有读取，因此不能在加入世界事件中确认
+     * @param fireball 刚生成的火球
+     */
+    public static void confirm(CustomFireball fireball) {
+        if (fireball.getCastSequence() == 0 || fireball.getOwner() != Minecraft.getInstance().player) {
+            return;
+        }
+        if (PREDICTIONS.remove(fireball.getCastSequence())) {
+            confirmedCount++;
+        }
+    }
+
+    /**
+     * 推进所有预测，撞到方块或超时的预测会被移除
+     * @param event 客户端刻事件
+     */
+    @SubscribeEvent
+    public static void onClientTick(ClientTickEvent.Post event) {
+        if (PREDICTIONS.isEmpty()) {
+            return;
+        }
+        Minecraft minecraft = Minecraft.getInstance();
+        ClientLevel level = minecraft.level;
+        if (level == null || minecraft.player == null) {
+            PREDICTIONS.clear();
+            return;
+        }
+
+        int timeout = ModuleConfig.getInstance().render.predictionTimeoutTicks;
+        expiredCount += PREDICTIONS.removeIf(prediction -> {
+            Vec3 from = prediction.positionAt(prediction.age);
+            prediction.age++;
+            if (prediction.age > timeout) {
+                return true;
+            }
+            Vec3 to = prediction.positionAt(prediction.age);
+            HitResult hit = level.clip(new ClipContext(from, to, ClipContext.Block.COLLIDER, ClipContext.Fluid.NONE, minecraft.player));
+            return hit.getType() != HitResult.Type.MISS;
+        });
+    }
+
+    /**
+     * 把预测火球交给批量渲染器，需要在批量渲染器输出之前执行
+     * @param event 世界渲染阶段事件
+     */
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public static void onRenderLevelStage(RenderLevelStageEvent event) {
+        if (event.getStage() != RenderLevelStageEvent.Stage.AFTER_ENTITIES || PREDICTIONS.isEmpty()) {
+            return;
+        }
+        ClientLevel level = Minecraft.getInstance().level;
+        if (level == null) {
+            return;
+        }
+
+        ModuleConfig.RenderConfig config = ModuleConfig.getInstance().render;
+        Vec3 camera = event.getCamera().getPosition();
+        float partialTick = event.getPartialTick().getGameTimeDeltaPartialTick(false);
+        PREDICTIONS.forEach(prediction -> {
+            Vec3 position = prediction.positionAt(prediction.age + partialTick);
+            // 与 CustomFireballRenderer 相同：方块光照固定为最亮，广告牌中心上移0.25格
+            int light = LightTexture.pack(15, level.getBrightness(LightLayer.SKY, BlockPos.containing(position)));
+            float x = (float) (position.x - camera.x);
+            float y = (float) (position.y - camera.y) + 0.25F;
+            float z = (float) (position.z - camera.z);
+            FireballLod lod = FireballLod.classify((double) x * x + (double) y * y + (double) z * z, config.fullDetailDistance, config.impostorDistance);
+            FireballBatchRenderer.collect(x, y, z, light, lod);
+        });
+    }
+
+    /**
+     * 断开连接时丢弃所有预测
+     * @param event 断开连接事件
+     */
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        PREDICTIONS.clear();
+    }
+
+    /**
+     * 在调试界面显示预测的确认情况
+     * @param event 调试文本事件
+     */
+    @SubscribeEvent
+    public static void onDebugText(CustomizeGuiOverlayEvent.DebugText event) {
+        if (!Minecraft.getInstance().getDebugOverlay().showDebugScreen()) {
+            return;
+        }
+        event.getRight().add(String.format("[Weaving Infinity] predictions: %d pending, %d confirmed, %d rejected, %d expired",
+            PREDICTIONS.size(), confirmedCount, rejectedCount, expiredCount));
+    }
+
+    /**
+     * 获取尚未确认的预测数量
+     * @return 预测数量
+     */
+    public static int getPendingCount() {
+        return PREDICTIONS.size();
+    }
+
+    /**
+     * 一次预测的施法：出发点、每刻速度和已经经过的刻数
+     */
+    private static final class Prediction {
+        final Vec3 origin;
+        final Vec3 velocity;
+        int age;
+
+        Prediction(Vec3 origin, Vec3 velocity) {
+            this.origin = origin;
+            this.velocity = velocity;
+        }
+
+        Vec3 positionAt(float ticks) {
+            return origin.add(velocity.x * ticks, velocity.y * ticks, velocity.z * ticks);
+        }
+    }
+}
@@ -1,21 +1,39 @@
 /**
  * 客户端事件处理类
  *
- * 处理客户端相关的事件，如实体渲染器注册等。
+ * 处理客户端相关的事件，如实体渲染器注册、断开连接时的清理等。
  */
 package com.kirisame1969.weaving_infinity.client;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.registry.DataModuleLoader;
+import com.kirisame1969.weaving_infinity.network.ModuleIdMap;
+import com.kirisame1969.weaving_infinity.network.ServerAdmissionLimits;
 import com.kirisame1969.weaving_infinity.registries.ModEntities;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
 import net.neoforged.neoforge.client.event.EntityRenderersEvent;
 
 @OnlyIn(Dist.CLIENT)
+@EventBusSubscriber(modid = WeavingInfinity.MODID, value = Dist.CLIENT)
 public class ClientEvents {
     
     public static void registerRenderers(EntityRenderersEvent.RegisterRenderers event) {
         // 注册自定义火球实体的渲染器
         event.registerEntityRenderer(ModEntities.CUSTOM_FIREBALL.get(), CustomFireballRenderer::new);
     }
+    
+    /**
+     * 断开连接时丢弃服务器的数据包模块、模块数字ID表和准入上限，下一个服务器会重新发送
+     * @param event 断开连接事件
+     */
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        DataModuleLoader.clearRemote();
+        ModuleIdMap.clear();
+        ServerAdmissionLimits.clear();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/**
+ * 客户端数据包处理类
+ *
+ * 处理服务器发送的自定义数据包，在本地还原粒子和音效，以及更新投射物的轨迹。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import com.kirisame1969.weaving_infinity.network.ImpactEffectsPayload;
+import com.kirisame1969.weaving_infinity.network.ProjectileTrajectoryPayload;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.sounds.SoundEvents;
+import net.minecraft.sounds.SoundSource;
+import net.minecraft.util.RandomSource;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+
+@OnlyIn(Dist.CLIENT)
+public class ClientPayloadHandler {
+    // 每次火球撞击产生的粒子数量
+    private static final int FIREBALL_IMPACT_PARTICLES = 5;
+
+    /**
+     * 展开撞击效果数据包中的所有效果
+     * @param payload 撞击效果数据包
+     */
+    public static void handleImpactEffects(ImpactEffectsPayload payload) {
+        ClientLevel level = Minecraft.getInstance().level;
+        if (level == null) {
+            return;
+        }
+
+        double originX = SectionPos.sectionToBlockCoord(payload.chunkX());
+        double originZ = SectionPos.sectionToBlockCoord(payload.chunkZ());
+        RandomSource random = RandomSource.create();
+
+        for (ImpactEffectsPayload.Entry entry : payload.entries()) {
+            double x = originX + entry.offsetX();
+            double y = entry.y();
+            double z = originZ + entry.offsetZ();
+            // 使用服务器给出的种子，所有客户端看到相同的粒子分布
+            random.setSeed(entry.seed());
+
+            switch (entry.kind()) {
+                case ImpactEffectsPayload.KIND_FIREBALL_IMPACT -> {
+                    for (int i = 0; i < FIREBALL_IMPACT_PARTICLES; i++) {
+                        level.addParticle(ParticleTypes.LAVA, x, y, z,
+                            random.nextGaussian() * 0.1,
+                            random.nextGaussian() * 0.1,
+                            random.nextGaussian() * 0.1);
+                    }
+                }
+                case ImpactEffectsPayload.KIND_EXPLOSION -> {
+                    // 与原版爆炸相同：小半径使用小型粒子，否则使用大型粒子
+                    boolean large = entry.intensity() >= 2.0F;
+                    level.addParticle(large ? ParticleTypes.GUST_EMITTER_LARGE : ParticleTypes.GUST_EMITTER_SMALL,
+                        x, y, z, 1.0, 0.0, 0.0);
+                    level.playLocalSound(x, y, z, SoundEvents.GENERIC_EXPLODE.value(), SoundSource.BLOCKS,
+                        4.0F, (1.0F + (random.nextFloat() - random.nextFloat()) * 0.2F) * 0.7F, false);
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * 更新投射物的轨迹锚点
+     * @param payload 投射物轨迹数据包
+     */
+    public static void handleProjectileTrajectory(ProjectileTrajectoryPayload payload) {
+        ClientLevel level = Minecraft.getInstance().level;
+        if (level != null && level.getEntity(payload.entityId()) instanceof CustomFireball fireball) {
+            fireball.applyTrajectory(payload.position(), payload.velocity(), payload.tick());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * 客户端代理
+ *
+ * 覆盖 CommonProxy 中需要客户端功能的方法，只在客户端上安装。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import com.kirisame1969.weaving_infinity.common.proxy.CommonProxy;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+
+import java.util.List;
+
+@OnlyIn(Dist.CLIENT)
+public class ClientProxy extends CommonProxy {
+    @Override
+    public List<Component> spellCoreTooltip(SpellLayout layout) {
+        // 提示框行按布局组件缓存
+        return SpellCoreTooltipCache.lines(layout);
+    }
+
+    @Override
+    public void predictCast(Player player, SpellPlan plan) {
+        CastPredictor.predict(player, plan);
+    }
+
+    @Override
+    public void onFireballSpawned(CustomFireball fireball) {
+        CastPredictor.confirm(fireball);
+    }
+
+    @Override
+    public boolean shouldEmitTrail(CustomFireball projectile) {
+        return TrailEmissionGovernor.shouldEmit(projectile);
+    }
+}
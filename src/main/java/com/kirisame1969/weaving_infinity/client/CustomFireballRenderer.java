@@ -2,29 +2,28 @@
  * 自定义火球实体渲染器
  *
  * 为Weaving Infinity模组的自定义火球实体提供渲染功能。
+ * 渲染器只按距离选择细节等级并把火球交给 FireballBatchRenderer，
+ * 顶点在实体渲染结束后统一输出。
  */
 package com.kirisame1969.weaving_infinity.client;
 
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
 import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
 import com.mojang.blaze3d.vertex.PoseStack;
-import com.mojang.blaze3d.vertex.VertexConsumer;
-import com.mojang.math.Axis;
 import net.minecraft.client.renderer.MultiBufferSource;
-import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.culling.Frustum;
 import net.minecraft.client.renderer.entity.EntityRenderer;
 import net.minecraft.client.renderer.entity.EntityRendererProvider;
-import net.minecraft.client.renderer.texture.OverlayTexture;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
-import org.joml.Matrix3f;
 import org.joml.Matrix4f;
 
 @OnlyIn(Dist.CLIENT)
 public class CustomFireballRenderer extends EntityRenderer<CustomFireball> {
     public static final ResourceLocation FIREBALL_TEXTURE = ResourceLocation.withDefaultNamespace("textures/entity/projectiles/small_fireball.png");
-    
+
     public CustomFireballRenderer(EntityRendererProvider.Context context) {
         super(context);
     }
@@ -35,34 +34,31 @@ public class CustomFireballRenderer extends EntityRenderer<CustomFireball> {
     }
 
     @Override
-    public void render(CustomFireball entity, float entityYaw, float partialTicks, PoseStack poseStack, MultiBufferSource buffer, int packedLight) {
-        poseStack.pushPose();
-        poseStack.translate(0.0D, 0.25D, 0.0D);
-        poseStack.mulPose(this.entityRenderDispatcher.cameraOrientation());
-        poseStack.mulPose(Axis.YP.rotationDegrees(180.0F));
-        PoseStack.Pose pose = poseStack.last();
-        Matrix4f matrix4f = pose.pose();
-        Matrix3f matrix3f = pose.normal();
-        VertexConsumer vertexconsumer = buffer.getBuffer(RenderType.entityCutoutNoCull(this.getTextureLocation(entity)));
-        vertex(vertexconsumer, matrix4f, matrix3f, packedLight, 0.0F, 0, 0, 1);
-        vertex(vertexconsumer, matrix4f, matrix3f, packedLight, 1.0F, 0, 1, 1);
-        vertex(vertexconsumer, matrix4f, matrix3f, packedLight, 1.0F, 1, 1, 0);
-        vertex(vertexconsumer, matrix4f, matrix3f, packedLight, 0.0F, 1, 0, 0);
-        poseStack.popPose();
-        super.render(entity, entityYaw, partialTicks, poseStack, buffer, packedLight);
+    public boolean shouldRender(CustomFireball entity, Frustum frustum, double camX, double camY, double camZ) {
+        // 视锥剔除由父类完成，这里再剔除超出替身距离的火球，省去光照计算
+        if (!super.shouldRender(entity, frustum, camX, camY, camZ)) {
+            return false;
+        }
+        ModuleConfig.RenderConfig config = ModuleConfig.getInstance().render;
+        return FireballLod.classify(entity.distanceToSqr(camX, camY, camZ), config.fullDetailDistance, config.impostorDistance) != FireballLod.CULLED;
     }
 
-    private static void vertex(VertexConsumer consumer, Matrix4f matrix4f, Matrix3f matrix3f, int light, float x, int y, int u, int v) {
-        consumer.addVertex(matrix4f, x - 0.5F, (float)y - 0.25F, 0.0F)
-                .setColor(255, 255, 255, 255)
-                .setUv((float)u, (float)v)
-                .setOverlay(OverlayTexture.NO_OVERLAY)
-                .setLight(light)
-                .setNormal(0.0F, 1.0F, 0.0F);
+    @Override
+    public void render(CustomFireball entity, float entityYaw, float partialTicks, PoseStack poseStack, MultiBufferSource buffer, int packedLight) {
+        // 位姿矩阵的平移部分即火球相对摄像机的位置
+        Matrix4f matrix = poseStack.last().pose();
+        float x = matrix.m30();
+        float y = matrix.m31() + 0.25F;
+        float z = matrix.m32();
+        ModuleConfig.RenderConfig config = ModuleConfig.getInstance().render;
+        FireballLod lod = FireballLod.classify((double) x * x + (double) y * y + (double) z * z, config.fullDetailDistance, config.impostorDistance);
+        FireballBatchRenderer.collect(x, y, z, packedLight, lod);
+        // 名称标签和拴绳仍由父类渲染
+        super.render(entity, entityYaw, partialTicks, poseStack, buffer, packedLight);
     }
 
     @Override
     public ResourceLocation getTextureLocation(CustomFireball entity) {
         return FIREBALL_TEXTURE;
     }
-}
\ No newline at end of file
+}
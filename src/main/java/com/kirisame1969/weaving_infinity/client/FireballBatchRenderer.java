@@ -0,0 +1,154 @@
+/**
+ * 火球批量渲染器
+ *
+ * 实体渲染器只记录每个可见火球相对摄像机的位置和光照，不直接输出顶点。
+ * 实体渲染结束后，本类在一次遍历中把本帧收集到的所有火球写入同一个缓冲区并一次性提交，
+ * 广告牌朝向只根据摄像机旋转计算一次，不再为每个火球压栈、乘矩阵和查找渲染类型。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.RenderFrameEvent;
+import net.neoforged.neoforge.client.event.RenderLevelStageEvent;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+@OnlyIn(Dist.CLIENT)
+@EventBusSubscriber(modid = WeavingInfinity.MODID, value = Dist.CLIENT)
+public class FireballBatchRenderer {
+    // 渲染类型只创建一次
+    private static final RenderType RENDER_TYPE = RenderType.entityCutoutNoCull(CustomFireballRenderer.FIREBALL_TEXTURE);
+
+    // 替身的尺寸倍数，弥补合并后数量减少带来的视觉损失
+    private static final float IMPOSTOR_SCALE = 1.5F;
+
+    // 本帧收集的火球：相对摄像机的位置、光照和尺寸
+    private static float[] positions = new float[3 * 64];
+    private static int[] lights = new int[64];
+    private static float[] scales = new float[64];
+    private static int count = 0;
+
+    // 本帧已占用的替身网格
+    private static final LongOpenHashSet IMPOSTOR_CELLS = new LongOpenHashSet();
+
+    /**
+     * 记录一个本帧可见的火球
+     * @param x 相对摄像机的X坐标
+     * @param y 相对摄像机的Y坐标
+     * @param z 相对摄像机的Z坐标
+     * @param packedLight 光照
+     * @param lod 细节等级
+     */
+    public static void collect(float x, float y, float z, int packedLight, FireballLod lod) {
+        if (lod == FireballLod.CULLED) {
+            return;
+        }
+        float scale = 1.0F;
+        if (lod == FireballLod.IMPOSTOR) {
+            // 按世界坐标划分网格，摄像机移动时同一群火球保持在同一格内，不会闪烁
+            Vec3 camera = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
+            double cellSize = ModuleConfig.getInstance().render.impostorCellSize;
+            if (!IMPOSTOR_CELLS.add(FireballLod.impostorCell(camera.x + x, camera.y + y, camera.z + z, cellSize))) {
+                return;
+            }
+            scale = IMPOSTOR_SCALE;
+        }
+
+        if (count == lights.length) {
+            int capacity = count * 2;
+            positions = Arrays.copyOf(positions, capacity * 3);
+            lights = Arrays.copyOf(lights, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+        }
+        positions[count * 3] = x;
+        positions[count * 3 + 1] = y;
+        positions[count * 3 + 2] = z;
+        lights[count] = packedLight;
+        scales[count] = scale;
+        count++;
+    }
+
+    /**
+     * 每帧开始时清空上一帧的残留数据
+     * @param event 帧渲染事件
+     */
+    @SubscribeEvent
+    public static void onRenderFramePre(RenderFrameEvent.Pre event) {
+        reset();
+    }
+
+    /**
+     * 实体渲染结束后一次性输出本帧的所有火球
+     * @param event 世界渲染阶段事件
+     */
+    @SubscribeEvent
+    public static void onRenderLevelStage(RenderLevelStageEvent event) {
+        if (event.getStage() != RenderLevelStageEvent.Stage.AFTER_ENTITIES || count == 0) {
+            return;
+        }
+
+        // 与原渲染器相同：先对齐摄像机朝向，再绕Y轴旋转180度
+        Quaternionf rotation = event.getCamera().rotation();
+        Vector3f right = rotation.transform(new Vector3f(-1.0F, 0.0F, 0.0F));
+        Vector3f up = rotation.transform(new Vector3f(0.0F, 1.0F, 0.0F));
+
+        MultiBufferSource.BufferSource buffers = Minecraft.getInstance().renderBuffers().bufferSource();
+        VertexConsumer consumer = buffers.getBuffer(RENDER_TYPE);
+        Matrix4f matrix = event.getPoseStack().last().pose();
+
+        for (int i = 0; i < count; i++) {
+            float x = positions[i * 3];
+            float y = positions[i * 3 + 1];
+            float z = positions[i * 3 + 2];
+            int light = lights[i];
+            float scale = scales[i];
+            vertex(consumer, matrix, x, y, z, right, up, scale, -0.5F, -0.25F, light, 0, 1);
+            vertex(consumer, matrix, x, y, z, right, up, scale, 0.5F, -0.25F, light, 1, 1);
+            vertex(consumer, matrix, x, y, z, right, up, scale, 0.5F, 0.75F, light, 1, 0);
+            vertex(consumer, matrix, x, y, z, right, up, scale, -0.5F, 0.75F, light, 0, 0);
+        }
+        buffers.endBatch(RENDER_TYPE);
+        reset();
+    }
+
+    private static void vertex(VertexConsumer consumer, Matrix4f matrix, float x, float y, float z,
+                               Vector3f right, Vector3f up, float scale, float dx, float dy, int light, int u, int v) {
+        float ox = (right.x * dx + up.x * dy) * scale;
+        float oy = (right.y * dx + up.y * dy) * scale;
+        float oz = (right.z * dx + up.z * dy) * scale;
+        consumer.addVertex(matrix, x + ox, y + oy, z + oz)
+                .setColor(255, 255, 255, 255)
+                .setUv((float) u, (float) v)
+                .setOverlay(OverlayTexture.NO_OVERLAY)
+                .setLight(light)
+                .setNormal(0.0F, 1.0F, 0.0F);
+    }
+
+    private static void reset() {
+        count = 0;
+        IMPOSTOR_CELLS.clear();
+    }
+
+    /**
+     * 获取本帧已收集的火球数量
+     * @return 火球数量
+     */
+    public static int getCollectedCount() {
+        return count;
+    }
+}
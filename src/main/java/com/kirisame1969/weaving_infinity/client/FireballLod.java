@@ -0,0 +1,51 @@
+/**
+ * 投射物渲染细节等级
+ *
+ * 根据到摄像机的距离决定投射物按完整细节渲染、按替身渲染还是不渲染，
+ * 并为远处的替身计算合并网格。这里只包含纯计算，不依赖渲染系统，可以脱离GPU单独验证。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+public enum FireballLod {
+    // 逐个渲染完整的广告牌
+    FULL,
+    // 按网格合并，每格只渲染一个替身
+    IMPOSTOR,
+    // 不渲染
+    CULLED;
+
+    /**
+     * 根据到摄像机的距离平方选择细节等级
+     * @param distanceSqr 到摄像机的距离平方
+     * @param fullDetailDistance 完整细节距离
+     * @param impostorDistance 替身距离，更远的投射物不渲染
+     * @return 细节等级
+     */
+    public static FireballLod classify(double distanceSqr, double fullDetailDistance, double impostorDistance) {
+        if (distanceSqr <= fullDetailDistance * fullDetailDistance) {
+            return FULL;
+        }
+        if (distanceSqr <= impostorDistance * impostorDistance) {
+            return IMPOSTOR;
+        }
+        return CULLED;
+    }
+
+    /**
+     * 计算替身所在的合并网格
+     * 同一网格内的替身只渲染一个。网格按世界坐标划分，摄像机移动时投射物不会在网格之间跳动；
+     * 每个轴只保留21位，相距约两百万格的网格才会重合，它们不可能同时处于替身距离内
+     * @param x 世界X坐标
+     * @param y 世界Y坐标
+     * @param z 世界Z坐标
+     * @param cellSize 网格边长
+     * @return 网格键
+     */
+    public static long impostorCell(double x, double y, double z, double cellSize) {
+        double size = cellSize > 0.0 ? cellSize : 1.0;
+        long cx = (long) Math.floor(x / size) & 0x1FFFFFL;
+        long cy = (long) Math.floor(y / size) & 0x1FFFFFL;
+        long cz = (long) Math.floor(z / size) & 0x1FFFFFL;
+        return (cx << 42) | (cy << 21) | cz;
+    }
+}
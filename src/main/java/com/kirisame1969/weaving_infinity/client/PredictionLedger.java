@@ -0,0 +1,100 @@
+/**
+ * 预测施法登记表
+ *
+ * 为每次预测分配施法序号（0保留表示没有预测，回绕时跳过），并按序号确认或移除预测。
+ * 这里只包含纯逻辑，不依赖客户端，可以脱离游戏单独验证。
+ *
+ * @param <T> 预测内容的类型
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+public final class PredictionLedger<T> {
+    // 尚未确认的预测，按登记顺序排列
+    private final List<Entry<T>> entries = new ArrayList<>();
+
+    // 上一次分配的施法序号
+    private int lastSequence = 0;
+
+    /**
+     * 登记一个预测并分配施法序号
+     * @param prediction 预测内容
+     * @return 施法序号，永远不为0
+     */
+    public int add(T prediction) {
+        lastSequence++;
+        if (lastSequence == 0) {
+            lastSequence = 1;
+        }
+        entries.add(new Entry<>(lastSequence, prediction));
+        return lastSequence;
+    }
+
+    /**
+     * 移除指定序号的预测
+     * @param sequence 施法序号
+     * @return 是否找到并移除
+     */
+    public boolean remove(int sequence) {
+        if (sequence == 0) {
+            return false;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).sequence == sequence) {
+                entries.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 移除满足条件的预测
+     * @param filter 条件
+     * @return 移除的数量
+     */
+    public int removeIf(Predicate<T> filter) {
+        int before = entries.size();
+        entries.removeIf(entry -> filter.test(entry.prediction));
+        return before - entries.size();
+    }
+
+    /**
+     * 遍历所有预测
+     * @param action 操作
+     */
+    public void forEach(Consumer<T> action) {
+        for (Entry<T> entry : entries) {
+            action.accept(entry.prediction);
+        }
+    }
+
+    /**
+     * 清空所有预测
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取尚未确认的预测数量
+     * @return 预测数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 是否没有尚未确认的预测
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    private record Entry<T>(int sequence, T prediction) {}
+}
@@ -0,0 +1,67 @@
+/**
+ * 法术核心提示框缓存
+ *
+ * 提示框打开时 appendHoverText 每帧都会调用，存储类模组和物品列表界面中同时显示的法术核心更多。
+ * 本类以布局组件实例（按引用，弱键）为键缓存生成好的提示框行，命中时不再分配任何组件。
+ * 每个条目记录生成时使用的法术计划和服务器准入上限的版本：配置重载或数据包模块变化后计划实例会被替换，
+ * 服务器发送新的上限后版本号递增，条目随之失效；切换语言后整个缓存被清空。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import com.google.common.collect.MapMaker;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
+import com.kirisame1969.weaving_infinity.network.ServerAdmissionLimits;
+import net.minecraft.locale.Language;
+import net.minecraft.network.chat.Component;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+@OnlyIn(Dist.CLIENT)
+public final class SpellCoreTooltipCache {
+    // 布局组件实例 -> 提示框行
+    private static final ConcurrentMap<SpellLayout, Entry> CACHE = new MapMaker().weakKeys().makeMap();
+
+    // 生成缓存内容时使用的语言
+    private static Language language;
+
+    private SpellCoreTooltipCache() {}
+
+    /**
+     * 获取布局组件对应的提示框行
+     * @param layout 布局组件，可能为null
+     * @return 提示框行（只读，调用者不应修改其中的组件）
+     */
+    public static List<Component> lines(SpellLayout layout) {
+        Language current = Language.getInstance();
+        if (current != language) {
+            CACHE.clear();
+            language = current;
+        }
+
+        SpellLayout key = layout != null ? layout : SpellLayout.EMPTY;
+        SpellPlan plan = SpellPlanCache.forComponent(key);
+        int limitsVersion = ServerAdmissionLimits.version();
+        Entry entry = CACHE.get(key);
+        if (entry == null || entry.plan != plan || entry.limitsVersion != limitsVersion) {
+            entry = new Entry(plan, limitsVersion, SpellCoreItem.buildTooltipLines(plan));
+            CACHE.put(key, entry);
+        }
+        return entry.lines;
+    }
+
+    /**
+     * 获取缓存的条目数量
+     * @return 条目数量
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    private record Entry(SpellPlan plan, int limitsVersion, List<Component> lines) {}
+}
@@ -0,0 +1,145 @@
+/**
+ * 拖尾粒子调节器
+ *
+ * 为客户端上所有法术投射物的拖尾粒子提供全局的每刻预算。
+ * 每个投射物的产生频率由到摄像机的距离和当前存活的投射物数量共同决定：
+ * 距离越远、数量越多，频率越低；频率低于1时按固定间隔产生，拖尾变为稀疏。
+ * 预算用尽后本刻不再产生拖尾。当前状态显示在调试界面（F3）中。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
+import net.neoforged.neoforge.client.event.CustomizeGuiOverlayEvent;
+import net.neoforged.neoforge.event.entity.EntityJoinLevelEvent;
+import net.neoforged.neoforge.event.entity.EntityLeaveLevelEvent;
+
+@OnlyIn(Dist.CLIENT)
+@EventBusSubscriber(modid = WeavingInfinity.MODID, value = Dist.CLIENT)
+public class TrailEmissionGovernor {
+    // 客户端存活的法术投射物数量
+    private static int liveProjectiles = 0;
+
+    // 本刻的统计
+    private static int emittedThisTick = 0;
+    private static int requestedThisTick = 0;
+    private static double rateSumThisTick = 0.0;
+
+    // 上一刻的统计，用于调试界面显示
+    private static int lastTickEmitted = 0;
+    private static int lastTickRequested = 0;
+    private static double lastTickAverageRate = 1.0;
+
+    /**
+     * 判断投射物本刻是否产生拖尾粒子
+     * @param projectile 投射物
+     * @return 是否产生
+     */
+    public static boolean shouldEmit(CustomFireball projectile) {
+        ModuleConfig.TrailConfig config = ModuleConfig.getInstance().trail;
+        requestedThisTick++;
+        if (emittedThisTick >= config.particleBudget) {
+            return false;
+        }
+
+        Vec3 camera = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
+        double rate = emissionRate(projectile.distanceToSqr(camera), liveProjectiles, config);
+        rateSumThisTick += rate;
+        if (rate <= 0.0) {
+            return false;
+        }
+
+        // 频率低于1时按间隔产生，用同步的视觉种子错开相位，避免所有拖尾在同一刻出现
+        int interval = rate >= 1.0 ? 1 : (int) Math.ceil(1.0 / rate);
+        if (Math.floorMod(projectile.tickCount + projectile.getVisualSeed(), interval) != 0) {
+            return false;
+        }
+        emittedThisTick++;
+        return true;
+    }
+
+    /**
+     * 计算投射物的拖尾产生频率
+     * @param distanceSqr 到摄像机的距离平方
+     * @param live 存活的投射物数量
+     * @param config 拖尾配置
+     * @return 每刻产生的粒子数，0表示不产生
+     */
+    public static double emissionRate(double distanceSqr, int live, ModuleConfig.TrailConfig config) {
+        if (distanceSqr > config.maxDistance * config.maxDistance) {
+            return 0.0;
+        }
+
+        // 距离系数：完整频率距离内为1，之后线性下降到最低频率
+        double distanceFactor = 1.0;
+        double distance = Math.sqrt(distanceSqr);
+        if (distance > config.fullRateDistance && config.maxDistance > config.fullRateDistance) {
+            distanceFactor = 1.0 - (distance - config.fullRateDistance) / (config.maxDistance - config.fullRateDistance);
+        }
+
+        // 负载系数：所有投射物平分每刻预算
+        double loadFactor = live > config.particleBudget ? (double) config.particleBudget / live : 1.0;
+
+        return Math.max(config.minRate, distanceFactor * loadFactor);
+    }
+
+    /**
+     * 每刻开始时结算上一刻的统计并重置预算
+     * @param event 客户端刻事件
+     */
+    @SubscribeEvent
+    public static void onClientTick(ClientTickEvent.Pre event) {
+        lastTickEmitted = emittedThisTick;
+        lastTickRequested = requestedThisTick;
+        lastTickAverageRate = requestedThisTick > 0 ? rateSumThisTick / requestedThisTick : 1.0;
+        emittedThisTick = 0;
+        requestedThisTick = 0;
+        rateSumThisTick = 0.0;
+    }
+
+    /**
+     * 投射物加入客户端世界时计数
+     * @param event 实体加入世界事件
+     */
+    @SubscribeEvent
+    public static void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        if (event.getLevel().isClientSide() && event.getEntity() instanceof CustomFireball) {
+            liveProjectiles++;
+        }
+    }
+
+    /**
+     * 投射物离开客户端世界时计数
+     * @param event 实体离开世界事件
+     */
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (event.getLevel().isClientSide() && event.getEntity() instanceof CustomFireball) {
+            liveProjectiles = Math.max(0, liveProjectiles - 1);
+        }
+    }
+
+    /**
+     * 在调试界面显示拖尾调节器的状态
+     * @param event 调试文本事件
+     */
+    @SubscribeEvent
+    public static void onDebugText(CustomizeGuiOverlayEvent.DebugText event) {
+        if (!Minecraft.getInstance().getDebugOverlay().showDebugScreen()) {
+            return;
+        }
+        event.getRight().add("");
+        event.getRight().add(String.format("[Weaving Infinity] trails: %d/%d emitted (budget %d)",
+            lastTickEmitted, lastTickRequested, ModuleConfig.getInstance().trail.particleBudget));
+        event.getRight().add(String.format("[Weaving Infinity] projectiles: %d, avg rate %.2f",
+            liveProjectiles, lastTickAverageRate));
+    }
+}
@@ -3,6 +3,7 @@
  * 
  * 自定义命令参数类型，用于处理模块ID的输入和自动补全。
  * 支持带命名空间和不带命名空间的模块ID输入。
+ * 解析和补全都通过注册表的模块ID前缀索引（ModuleIdIndex）完成，解析结果已经是规范的模块ID。
  */
 package com.kirisame1969.weaving_infinity.command;
 
@@ -12,9 +13,8 @@ import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
-import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
 import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
-import net.minecraft.commands.SharedSuggestionProvider;
 import net.minecraft.resources.ResourceLocation;
 
 import java.util.Arrays;
@@ -26,6 +26,9 @@ public class ModuleArgument implements ArgumentType<String> {
     // 示例值，用于命令帮助信息
     private static final List<String> EXAMPLES = Arrays.asList("fireball", "weaving_infinity:fireball");
 
+    // 每次补全最多给出的建议数量
+    private static final int MAX_SUGGESTIONS = 50;
+
     /**
      * 创建模块参数实例的工厂方法
      * @return 新的模块参数实例
@@ -34,10 +37,20 @@ public class ModuleArgument implements ArgumentType<String> {
         return new ModuleArgument();
     }
 
+    /**
+     * 获取参数对应的模块
+     * @param context 命令上下文
+     * @param name 参数名称
+     * @return 模块实例，如果模块不存在则返回null
+     */
+    public static ISpellModule getModule(CommandContext<?> context, String name) {
+        return ModuleRegistry.getModule(context.getArgument(name, String.class));
+    }
+
     /**
      * 解析命令参数
      * @param reader 字符串读取器
-     * @return 解析得到的模块ID字符串
+     * @return 规范的模块ID字符串（省略的命名空间已补全）
      * @throws CommandSyntaxException 解析失败时抛出
      */
     @Override
@@ -49,7 +62,7 @@ public class ModuleArgument implements ArgumentType<String> {
             reader.skip();
         }
 
-        return reader.getString().substring(i, reader.getCursor());
+        return ModuleRegistry.getIdIndex().canonicalId(reader.getString().substring(i, reader.getCursor()));
     }
 
     /**
@@ -61,13 +74,22 @@ public class ModuleArgument implements ArgumentType<String> {
      */
     @Override
     public <S> CompletableFuture<Suggestions> listSuggestions(final CommandContext<S> context, final SuggestionsBuilder builder) {
-        // 为模块注册表中的所有模块提供自动补全建议
-        return SharedSuggestionProvider.suggest(ModuleRegistry.getAllModuleIds().stream()
-            .map(rl -> {
-                ResourceLocation resourceLocation = ResourceLocation.parse(rl);
-                return resourceLocation.getNamespace().equals(WeavingInfinity.MODID) ? resourceLocation.getPath() : resourceLocation.toString();
-            })
-            .toArray(String[]::new), builder);
+        return suggestModules(context, builder);
+    }
+
+    /**
+     * 根据已输入的内容提供模块ID建议，结果数量有上限
+     * 也用作命令节点的建议提供者：客户端会向服务器请求建议，从而包含只在服务器上加载的数据包模块
+     * @param context 命令上下文
+     * @param builder 建议构建器
+     * @param <S> 命令源类型
+     * @return 异步建议结果
+     */
+    public static <S> CompletableFuture<Suggestions> suggestModules(final CommandContext<S> context, final SuggestionsBuilder builder) {
+        for (String suggestion : ModuleRegistry.getIdIndex().suggest(builder.getRemainingLowerCase(), MAX_SUGGESTIONS)) {
+            builder.suggest(suggestion);
+        }
+        return builder.buildFuture();
     }
 
     /**
@@ -78,4 +100,4 @@ public class ModuleArgument implements ArgumentType<String> {
     public Collection<String> getExamples() {
         return EXAMPLES;
     }
-}
\ No newline at end of file
+}
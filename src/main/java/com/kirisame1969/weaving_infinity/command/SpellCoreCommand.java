@@ -6,19 +6,32 @@
  */
 package com.kirisame1969.weaving_infinity.command;
 
-import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.item.SpellCoreEditor;
 import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
+import com.kirisame1969.weaving_infinity.core.effect.ExplosionBatcher;
+import com.kirisame1969.weaving_infinity.core.metrics.SpellMetrics;
+import com.kirisame1969.weaving_infinity.core.plan.SpellCostAnalyzer;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBroadphase;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBudget;
 import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import com.kirisame1969.weaving_infinity.core.schedule.SpellScheduler;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.network.chat.Component;
-import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Inventory;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class SpellCoreCommand {
     
     /**
@@ -31,25 +44,56 @@ public class SpellCoreCommand {
                 .requires(source -> source.hasPermission(2)) // 需要权限等级2才能使用
                 .then(Commands.literal("add")
                     .then(Commands.argument("module", ModuleArgument.moduleArgument())
-                        .executes(context -> addModule(context, context.getArgument("module", String.class)))
+                        .suggests(ModuleArgument::suggestModules)
+                        .executes(context -> addModule(context, ModuleArgument.getModule(context, "module")))
                     )
                 )
                 .then(Commands.literal("clear")
                     .executes(SpellCoreCommand::clearModules)
                 )
+                .then(Commands.literal("retune")
+                    .then(Commands.argument("from", ModuleArgument.moduleArgument())
+                        .suggests(ModuleArgument::suggestModules)
+                        .then(Commands.argument("to", ModuleArgument.moduleArgument())
+                            .suggests(ModuleArgument::suggestModules)
+                            .executes(SpellCoreCommand::retuneModules)
+                        )
+                    )
+                )
                 .then(Commands.literal("list")
                     .executes(SpellCoreCommand::listModules)
                 )
+                .then(Commands.literal("scheduler")
+                    .executes(SpellCoreCommand::showScheduler)
+                )
+                .then(Commands.literal("projectiles")
+                    .executes(SpellCoreCommand::showProjectiles)
+                )
+                .then(Commands.literal("explosions")
+                    .executes(SpellCoreCommand::showExplosions)
+                )
+                .then(Commands.literal("broadphase")
+                    .executes(SpellCoreCommand::showBroadphase)
+                )
+                .then(Commands.literal("reload")
+                    .executes(SpellCoreCommand::reloadConfig)
+                )
+                .then(Commands.literal("stats")
+                    .executes(SpellCoreCommand::showStats)
+                    .then(Commands.literal("reset")
+                        .executes(SpellCoreCommand::resetStats)
+                    )
+                )
         );
     }
 
     /**
      * 添加模块到法术核心的命令处理函数
      * @param context 命令上下文
-     * @param moduleId 模块ID
+     * @param module 参数解析得到的模块，不存在时为null
      * @return 命令执行结果
      */
-    private static int addModule(CommandContext<CommandSourceStack> context, String moduleId) {
+    private static int addModule(CommandContext<CommandSourceStack> context, ISpellModule module) {
         CommandSourceStack source = context.getSource();
         try {
             Player player = source.getPlayerOrException();
@@ -61,27 +105,32 @@ public class SpellCoreCommand {
                 return 0;
             }
 
-            // 如果moduleId不包含命名空间，则默认使用weaving_infinity命名空间
-            if (!moduleId.contains(":")) {
-                moduleId = WeavingInfinity.MODID + ":" + moduleId;
-            }
-
-            ResourceLocation rl = ResourceLocation.tryParse(moduleId);
-            if (rl == null) {
-                source.sendFailure(Component.translatable("command.spellcore.invalid_module_id"));
-                return 0;
-            }
-
             // 检查模块是否存在
-            if (!ModuleRegistry.hasModule(moduleId)) {
+            if (module == null) {
                 source.sendFailure(Component.translatable("command.spellcore.module_not_found"));
                 return 0;
             }
+            String moduleId = module.getId().toString();
 
-            // 尝试添加模块到法术核心
-            SpellCoreItem.setModule(heldItem, SpellCoreItem.getModules(heldItem).size(), moduleId);
-            String finalModuleId = moduleId; // 创建一个 effectively final 变量供 lambda 表达式使用
-            source.sendSuccess(() -> Component.translatable("command.spellcore.module_added", finalModuleId), true);
+            // 在工作副本上添加，一次校验（槽位、开销上限）并写入
+            SpellCoreEditor editor = SpellCoreEditor.open(heldItem).append(moduleId);
+            switch (editor.commit()) {
+                case SLOTS_FULL -> {
+                    source.sendFailure(Component.translatable("command.spellcore.module_slots_full"));
+                    return 0;
+                }
+                case UNKNOWN_MODULE -> {
+                    source.sendFailure(Component.translatable("command.spellcore.module_not_found"));
+                    return 0;
+                }
+                case OVER_LIMIT -> {
+                    source.sendFailure(Component.translatable("command.spellcore.over_limit", editor.getRejection()));
+                    return 0;
+                }
+                default -> {
+                }
+            }
+            source.sendSuccess(() -> Component.translatable("command.spellcore.module_added", moduleId), true);
             return 1;
         } catch (CommandSyntaxException e) {
             source.sendFailure(Component.translatable("command.spellcore.player_only"));
@@ -116,6 +165,36 @@ public class SpellCoreCommand {
         }
     }
 
+    /**
+     * 把所有在线玩家背包中法术核心里的一个模块替换为另一个模块
+     * 每个物品堆在工作副本上完成替换后只校验和写入一次，超出槽位或开销上限的法术核心保持不变
+     * @param context 命令上下文
+     * @return 修改的法术核心数量
+     */
+    private static int retuneModules(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        String from = context.getArgument("from", String.class);
+        ISpellModule to = ModuleArgument.getModule(context, "to");
+        if (to == null) {
+            source.sendFailure(Component.translatable("command.spellcore.module_not_found"));
+            return 0;
+        }
+        String toId = to.getId().toString();
+
+        List<ItemStack> stacks = new ArrayList<>();
+        for (ServerPlayer player : source.getServer().getPlayerList().getPlayers()) {
+            Inventory inventory = player.getInventory();
+            for (int slot = 0; slot < inventory.getContainerSize(); slot++) {
+                stacks.add(inventory.getItem(slot));
+            }
+        }
+        SpellCoreEditor.BulkResult result = SpellCoreEditor.applyAll(stacks, editor -> editor.replaceAll(from, toId));
+
+        source.sendSuccess(() -> Component.translatable("command.spellcore.retuned",
+            result.changed(), result.scanned(), result.rejected()), true);
+        return result.changed();
+    }
+
     /**
      * 列出法术核心中所有模块的命令处理函数
      * @param context 命令上下文
@@ -134,7 +213,8 @@ public class SpellCoreCommand {
             }
 
             // 获取模块列表并显示
-            var modules = SpellCoreItem.getModules(heldItem);
+            SpellPlan plan = SpellCoreItem.getSpellPlan(heldItem);
+            var modules = plan.modules();
             if (modules.isEmpty()) {
                 source.sendSuccess(() -> Component.translatable("command.spellcore.no_modules"), true);
             } else {
@@ -144,6 +224,13 @@ public class SpellCoreCommand {
                     String moduleId = modules.get(index).getId().toString();
                     source.sendSuccess(() -> Component.literal((index + 1) + ". " + moduleId), false);
                 }
+                
+                // 显示最坏情况的开销分析
+                source.sendSuccess(() -> SpellCostAnalyzer.describe(plan.costReport()), false);
+                Component rejection = SpellCostAnalyzer.checkAdmission(plan.costReport());
+                if (rejection != null) {
+                    source.sendSuccess(() -> Component.translatable("command.spellcore.over_limit", rejection), false);
+                }
             }
 
             return modules.size();
@@ -152,4 +239,144 @@ public class SpellCoreCommand {
             return 0;
         }
     }
+    
+    /**
+     * 显示各世界法术调度器状态的命令处理函数
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int showScheduler(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        var lines = SpellScheduler.describeAll();
+        if (lines.isEmpty()) {
+            source.sendSuccess(() -> Component.translatable("command.spellcore.scheduler_idle"), false);
+        } else {
+            for (String line : lines) {
+                source.sendSuccess(() -> Component.literal(line), false);
+            }
+        }
+        return lines.size();
+    }
+    
+    /**
+     * 显示各世界投射物预算使用情况的命令处理函数
+     * 列出每个世界的存活投射物数量以及占用最多的施法者
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int showProjectiles(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        int total = 0;
+        for (var entry : ProjectileBudget.all().entrySet()) {
+            ProjectileBudget budget = entry.getValue();
+            String header = String.format("%s: live=%d refused=%d evicted=%d expired=%d",
+                entry.getKey().dimension().location(),
+                budget.getLiveCount(),
+                budget.getRefusedCount(),
+                budget.getEvictedCount(),
+                budget.getExpiredCount());
+            source.sendSuccess(() -> Component.literal(header), false);
+            
+            for (var caster : budget.getTopCasters(5)) {
+                ServerPlayer player = source.getServer().getPlayerList().getPlayer(caster.getKey());
+                String name = player != null ? player.getGameProfile().getName() : caster.getKey().toString();
+                String line = "  " + name + ": " + caster.getValue();
+                source.sendSuccess(() -> Component.literal(line), false);
+            }
+            total += budget.getLiveCount();
+        }
+        return total;
+    }
+    
+    /**
+     * 显示各世界爆炸合并统计的命令处理函数，用于调整合并距离
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int showExplosions(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        var batchers = ExplosionBatcher.all();
+        for (var entry : batchers.entrySet()) {
+            ExplosionBatcher batcher = entry.getValue();
+            String line = String.format("%s: queued=%d emitted=%d merged=%d largest=%d last_tick=%d->%d",
+                entry.getKey().dimension().location(),
+                batcher.getQueuedCount(),
+                batcher.getEmittedCount(),
+                batcher.getMergedCount(),
+                batcher.getLargestCluster(),
+                batcher.getLastTickQueued(),
+                batcher.getLastTickEmitted());
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        return batchers.size();
+    }
+    
+    /**
+     * 显示各世界碰撞粗检测查询统计的命令处理函数
+     * 可切换 hit_detection.shared_broadphase 比较共享索引与原版逐个查询的次数
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int showBroadphase(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        var broadphases = ProjectileBroadphase.all();
+        for (var entry : broadphases.entrySet()) {
+            ProjectileBroadphase broadphase = entry.getValue();
+            String line = String.format("%s: indexed=%d queries=%d vanilla_queries=%d sections=%d candidates=%d relocations=%d",
+                entry.getKey().dimension().location(),
+                broadphase.getIndexedCount(),
+                broadphase.getQueryCount(),
+                broadphase.getVanillaQueryCount(),
+                broadphase.getSectionsVisited(),
+                broadphase.getCandidatesTested(),
+                broadphase.getRelocations());
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        return broadphases.size();
+    }
+    
+    /**
+     * 重新加载模块配置的命令处理函数
+     * 配置在后台线程解析和校验，结果回到服务器主线程后再反馈给命令执行者
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int reloadConfig(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        source.sendSuccess(() -> Component.translatable("command.spellcore.reload_started"), true);
+        ModuleConfig.reloadAsync().thenAcceptAsync(result -> {
+            if (result.applied()) {
+                source.sendSuccess(() -> Component.translatable("command.spellcore.reload_success", result.epoch()), true);
+            } else {
+                source.sendFailure(Component.translatable("command.spellcore.reload_failed", String.join("; ", result.errors())));
+            }
+        }, source.getServer());
+        return 1;
+    }
+    
+    /**
+     * 显示法术子系统指标的命令处理函数
+     * 速率为最近1秒、1分钟、5分钟的平均值，耗时百分位数统计自上次重置以来的所有记录
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int showStats(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        var lines = SpellMetrics.describe();
+        for (String line : lines) {
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        return lines.size();
+    }
+    
+    /**
+     * 重置法术子系统指标的命令处理函数
+     * @param context 命令上下文
+     * @return 命令执行结果
+     */
+    private static int resetStats(CommandContext<CommandSourceStack> context) {
+        SpellMetrics.reset();
+        context.getSource().sendSuccess(() -> Component.translatable("command.spellcore.stats_reset"), true);
+        return 1;
+    }
 }
\ No newline at end of file
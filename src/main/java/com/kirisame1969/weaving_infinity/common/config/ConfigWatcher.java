@@ -0,0 +1,75 @@
+/**
+ * 配置文件监视器
+ *
+ * 在后台守护线程中监视配置目录，modules.json 被修改或重新创建后自动重载配置。
+ * 编辑器保存文件时可能连续产生多个事件，监视器会等待片刻，把它们合并为一次重载。
+ */
+package com.kirisame1969.weaving_infinity.common.config;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+public final class ConfigWatcher {
+    // 合并连续文件事件的等待时间（毫秒）
+    private static final long DEBOUNCE_MILLIS = 500L;
+
+    private static Thread thread;
+
+    private ConfigWatcher() {}
+
+    /**
+     * 启动监视线程，重复调用无效
+     */
+    public static synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(ConfigWatcher::run, "WeavingInfinity-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void run() {
+        Path directory = ModuleConfig.CONFIG_PATH.getParent();
+        Path fileName = ModuleConfig.CONFIG_PATH.getFileName();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Files.createDirectories(directory);
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+
+                // 等待写入完成，并丢弃这段时间内的后续事件
+                Thread.sleep(DEBOUNCE_MILLIS);
+                WatchKey pending;
+                while ((pending = watcher.poll()) != null) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                ModuleConfig.reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            WeavingInfinity.LOGGER.error("Config watcher stopped: {}", e.getMessage());
+        }
+    }
+}
@@ -3,20 +3,36 @@
  * 
  * 用于存储模块的各种可配置参数，支持JSON格式的配置文件。
  * 这样可以方便地调整模块平衡性而无需重新编译代码。
+ * 
+ * 配置以快照的形式发布：每个快照在发布后不再修改，重载时在后台线程解析并校验新文件，
+ * 通过后整体替换当前快照并递增版本号，不需要重启，也不会阻塞服务器主线程。
  */
 package com.kirisame1969.weaving_infinity.common.config;
 
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.effect.ExplosionBatcher;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBudget;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileLineage;
+import com.kirisame1969.weaving_infinity.core.split.SplitPattern;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
+import net.minecraft.Util;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ModuleConfig {
     // 火球模块配置
@@ -31,18 +47,130 @@ public class ModuleConfig {
     @SerializedName("explode_module")
     public ExplodeModuleConfig explodeModule = new ExplodeModuleConfig();
     
-    // 配置实例
-    private static ModuleConfig INSTANCE;
+    // 法术调度器配置
+    @SerializedName("scheduler")
+    public SchedulerConfig scheduler = new SchedulerConfig();
+    
+    // 投射物预算配置
+    @SerializedName("projectile_budget")
+    public ProjectileBudgetConfig projectileBudget = new ProjectileBudgetConfig();
+    
+    // 命中检测配置
+    @SerializedName("hit_detection")
+    public HitDetectionConfig hitDetection = new HitDetectionConfig();
+    
+    // 投射物渲染配置（客户端）
+    @SerializedName("render")
+    public RenderConfig render = new RenderConfig();
+    
+    // 拖尾粒子配置（客户端）
+    @SerializedName("trail")
+    public TrailConfig trail = new TrailConfig();
+    
+    // 法术开销上限配置
+    @SerializedName("admission")
+    public AdmissionConfig admission = new AdmissionConfig();
+    
+    // 配置文件路径
+    static final Path CONFIG_PATH = Path.of("config/weaving_infinity/modules.json");
+    
+    // 当前发布的配置快照，发布后不再修改；重载时整体替换为新的快照
+    private static final AtomicReference<ModuleConfig> CURRENT = new AtomicReference<>();
+    
+    // 当前快照的版本号，每次成功重载后递增
+    private static final AtomicLong EPOCH = new AtomicLong();
+    
+    // 保证同一时间只有一次重载
+    private static final Object RELOAD_LOCK = new Object();
+    
+    // 快照的版本号（不写入配置文件）
+    private transient long epoch;
     
     /**
-     * 获取配置实例
-     * @return 配置实例
+     * 获取当前的配置快照
+     * 首次调用时从文件加载；之后只是一次原子读取，可以在任意线程频繁调用
+     * @return 配置快照，调用方不得修改
      */
     public static ModuleConfig getInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = loadConfig();
+        ModuleConfig config = CURRENT.get();
+        if (config == null) {
+            ModuleConfig loaded = loadConfig();
+            loaded.epoch = EPOCH.get();
+            CURRENT.compareAndSet(null, loaded);
+            config = CURRENT.get();
+        }
+        return config;
+    }
+    
+    /**
+     * 获取当前快照的版本号
+     * 缓存的计划和预计算的表记录构建时的版本号，与此值不同时需要重建
+     * @return 版本号
+     */
+    public static long currentEpoch() {
+        return EPOCH.get();
+    }
+    
+    /**
+     * 获取此快照的版本号
+     * @return 版本号
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    /**
+     * 在后台线程重新加载配置文件，不阻塞服务器主线程
+     * @return 重载结果
+     */
+    public static CompletableFuture<ReloadResult> reloadAsync() {
+        return CompletableFuture.supplyAsync(ModuleConfig::reload, Util.backgroundExecutor());
+    }
+    
+    /**
+     * 重新加载配置文件
+     * 新配置先完整解析并校验，通过后才作为新快照发布；失败时继续使用当前快照
+     * @return 重载结果
+     */
+    public static ReloadResult reload() {
+        synchronized (RELOAD_LOCK) {
+            ModuleConfig candidate;
+            try {
+                candidate = parse(CONFIG_PATH);
+            } catch (IOException | JsonParseException e) {
+                WeavingInfinity.LOGGER.error("Failed to read module config: {}", e.getMessage());
+                return new ReloadResult(false, EPOCH.get(), List.of(String.valueOf(e.getMessage())));
+            }
+            
+            List<String> errors = candidate.validate();
+            if (!errors.isEmpty()) {
+                WeavingInfinity.LOGGER.error("Rejected module config reload: {}", errors);
+                return new ReloadResult(false, EPOCH.get(), errors);
+            }
+            
+            // 先发布快照再递增版本号：读到新版本号的线程一定能读到新快照，
+            // 读到旧版本号的线程即使读到了新快照，其缓存也会在下次检查时重建
+            long next = EPOCH.get() + 1;
+            candidate.epoch = next;
+            CURRENT.set(candidate);
+            EPOCH.set(next);
+            WeavingInfinity.LOGGER.info("Reloaded module config (epoch {})", next);
+            return new ReloadResult(true, next, List.of());
+        }
+    }
+    
+    /**
+     * 直接发布一份不来自配置文件的快照，之后 getInstance 不再读写配置文件
+     * 供基准测试等不在游戏目录下运行的环境使用，避免在工作目录中创建 config/
+     * @param config 配置实例，发布后不得修改
+     */
+    public static void installInMemory(ModuleConfig config) {
+        synchronized (RELOAD_LOCK) {
+            long next = EPOCH.get() + 1;
+            config.epoch = next;
+            CURRENT.set(config);
+            EPOCH.set(next);
         }
-        return INSTANCE;
     }
     
     /**
@@ -51,35 +179,119 @@ public class ModuleConfig {
      */
     private static ModuleConfig loadConfig() {
         try {
-            Path configPath = Path.of("config/weaving_infinity/modules.json");
-            if (Files.exists(configPath)) {
-                Gson gson = new Gson();
-                try (FileReader reader = new FileReader(configPath.toFile())) {
-                    return gson.fromJson(reader, ModuleConfig.class);
+            if (Files.exists(CONFIG_PATH)) {
+                ModuleConfig config = parse(CONFIG_PATH);
+                List<String> errors = config.validate();
+                if (errors.isEmpty()) {
+                    return config;
                 }
+                WeavingInfinity.LOGGER.error("Invalid module config, using defaults: {}", errors);
+                return new ModuleConfig();
             } else {
                 // 如果配置文件不存在，创建默认配置
                 ModuleConfig defaultConfig = new ModuleConfig();
                 saveConfig(defaultConfig);
                 return defaultConfig;
             }
-        } catch (IOException e) {
+        } catch (IOException | JsonParseException e) {
             e.printStackTrace();
             return new ModuleConfig(); // 返回默认配置
         }
     }
     
+    /**
+     * 解析配置文件
+     * @param path 配置文件路径
+     * @return 配置实例
+     * @throws IOException 读取失败时抛出
+     */
+    private static ModuleConfig parse(Path path) throws IOException {
+        Gson gson = new Gson();
+        try (FileReader reader = new FileReader(path.toFile(), StandardCharsets.UTF_8)) {
+            ModuleConfig config = gson.fromJson(reader, ModuleConfig.class);
+            if (config == null) {
+                throw new JsonParseException("Config file is empty");
+            }
+            return config;
+        }
+    }
+    
+    /**
+     * 校验配置的取值范围
+     * @return 错误信息列表，为空表示配置有效
+     */
+    public List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        if (fireballModule == null || splitModule == null || explodeModule == null || scheduler == null
+            || projectileBudget == null || hitDetection == null || render == null || trail == null || admission == null) {
+            errors.add("missing config section");
+            return errors;
+        }
+        
+        if (fireballModule.baseDamage < 0 || fireballModule.splitDamage < 0) {
+            errors.add("fireball_module damage must not be negative");
+        }
+        if (fireballModule.estimatedCostMicros < 0 || splitModule.estimatedCostMicros < 0 || explodeModule.estimatedCostMicros < 0) {
+            errors.add("estimated_cost_micros must not be negative");
+        }
+        if (splitModule.splitCount < 0) {
+            errors.add("split_module.split_count must not be negative");
+        }
+        if (splitModule.maxGenerations < 1 || splitModule.maxGenerations > ProjectileLineage.MAX_GENERATION) {
+            errors.add("split_module.max_generations must be between 1 and " + ProjectileLineage.MAX_GENERATION);
+        }
+        if (SplitPattern.byName(splitModule.pattern) == null) {
+            errors.add("split_module.pattern must be 'ring', 'cone', 'fibonacci_sphere' or 'random'");
+        }
+        if (splitModule.coneAngle < 0 || splitModule.coneAngle > 180) {
+            errors.add("split_module.cone_angle must be between 0 and 180");
+        }
+        if (explodeModule.explosionRadius < 0 || explodeModule.mergeDistance < 0) {
+            errors.add("explode_module radius and merge_distance must not be negative");
+        }
+        if (!ExplosionBatcher.MERGE_MAX.equals(explodeModule.mergeMode)
+            && !ExplosionBatcher.MERGE_COMBINED.equals(explodeModule.mergeMode)) {
+            errors.add("explode_module.merge_mode must be 'max' or 'combined'");
+        }
+        if (scheduler.tickBudgetNanos <= 0 || scheduler.maxQueueDepth <= 0) {
+            errors.add("scheduler budget and queue depth must be positive");
+        }
+        if (projectileBudget.maxPerCaster <= 0 || projectileBudget.maxPerLevel <= 0) {
+            errors.add("projectile_budget limits must be positive");
+        }
+        if (!ProjectileBudget.POLICY_EVICT_OLDEST.equals(projectileBudget.overflowPolicy)
+            && !ProjectileBudget.POLICY_REFUSE.equals(projectileBudget.overflowPolicy)) {
+            errors.add("projectile_budget.overflow_policy must be 'evict_oldest' or 'refuse'");
+        }
+        if (projectileBudget.maxLifetimeTicks <= 0 || projectileBudget.maxRange <= 0) {
+            errors.add("projectile_budget lifetime and range must be positive");
+        }
+        if (render.fullDetailDistance < 0 || render.impostorDistance < render.fullDetailDistance || render.impostorCellSize <= 0) {
+            errors.add("render distances must satisfy 0 <= full_detail_distance <= impostor_distance and impostor_cell_size > 0");
+        }
+        if (render.predictionTimeoutTicks <= 0) {
+            errors.add("render.prediction_timeout_ticks must be positive");
+        }
+        if (trail.particleBudget < 0 || trail.fullRateDistance < 0 || trail.maxDistance < trail.fullRateDistance
+            || trail.minRate < 0 || trail.minRate > 1) {
+            errors.add("trail settings out of range");
+        }
+        if (admission.maxEntities < 0 || admission.maxExplosions < 0 || admission.maxTickCostMicros < 0 || admission.maxComplexity < 0) {
+            errors.add("admission limits must not be negative");
+        }
+        return errors;
+    }
+    
     /**
      * 保存配置到文件
      * @param config 配置实例
      */
     private static void saveConfig(ModuleConfig config) {
         try {
-            Path configPath = Path.of("config/weaving_infinity/modules.json");
-            Files.createDirectories(configPath.getParent());
+            Files.createDirectories(CONFIG_PATH.getParent());
             
             Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            try (FileWriter writer = new FileWriter(configPath.toFile())) {
+            try (FileWriter writer = new FileWriter(CONFIG_PATH.toFile(), StandardCharsets.UTF_8)) {
                 gson.toJson(config, writer);
             }
         } catch (IOException e) {
@@ -87,6 +299,14 @@ public class ModuleConfig {
         }
     }
     
+    /**
+     * 配置重载结果
+     * @param applied 新配置是否已生效
+     * @param epoch 重载后的版本号
+     * @param errors 校验失败时的错误信息
+     */
+    public record ReloadResult(boolean applied, long epoch, List<String> errors) {}
+    
     /**
      * 火球模块配置
      */
@@ -105,6 +325,10 @@ public class ModuleConfig {
         
         @SerializedName("complexity")
         public float complexity = 1.0f;
+        
+        // 每个火球整个存活期估计的服务器耗时（微秒），用于开销分析
+        @SerializedName("estimated_cost_micros")
+        public float estimatedCostMicros = 50.0f;
     }
     
     /**
@@ -117,6 +341,23 @@ public class ModuleConfig {
         @SerializedName("angle_between_shots")
         public float angleBetweenShots = 120.0f;
         
+        // 分裂图案：ring（水平环形）、cone（圆锥）、fibonacci_sphere（球面）或 random（随机）
+        @SerializedName("pattern")
+        public String pattern = "ring";
+        
+        // cone 图案的半角（度）
+        @SerializedName("cone_angle")
+        public float coneAngle = 30.0f;
+        
+        // random 图案的随机种子
+        @SerializedName("random_seed")
+        public long randomSeed = 0L;
+        
+        // 最大分裂代数：1表示只有施法直接生成的投射物会分裂，分裂出的子弹不再分裂；
+        // 更大的值允许子弹继续分裂，最后一代子弹撞击时不再触发修饰效果
+        @SerializedName("max_generations")
+        public int maxGenerations = 1;
+        
         @SerializedName("mana_consumption")
         public int manaConsumption = 5;
         
@@ -125,6 +366,10 @@ public class ModuleConfig {
         
         @SerializedName("complexity")
         public float complexity = 1.5f;
+        
+        // 每次分裂撞击估计的服务器耗时（微秒），不含子弹本身，用于开销分析
+        @SerializedName("estimated_cost_micros")
+        public float estimatedCostMicros = 20.0f;
     }
     
     /**
@@ -137,6 +382,14 @@ public class ModuleConfig {
         @SerializedName("explosion_damage")
         public float explosionDamage = 10.0f;
         
+        // 同一刻内距离不超过该值的爆炸会被合并为一次
+        @SerializedName("merge_distance")
+        public double mergeDistance = 3.0;
+        
+        // 合并后的半径计算方式：max（取最大半径）或 combined（按体积叠加）
+        @SerializedName("merge_mode")
+        public String mergeMode = "max";
+        
         @SerializedName("mana_consumption")
         public int manaConsumption = 8;
         
@@ -145,5 +398,124 @@ public class ModuleConfig {
         
         @SerializedName("complexity")
         public float complexity = 2.0f;
+        
+        // 每次爆炸估计的服务器耗时（微秒），用于开销分析
+        @SerializedName("estimated_cost_micros")
+        public float estimatedCostMicros = 500.0f;
+    }
+    
+    /**
+     * 法术调度器配置
+     */
+    public static class SchedulerConfig {
+        // 每个世界每刻可用于法术工作的时间预算（纳秒）
+        @SerializedName("tick_budget_nanos")
+        public long tickBudgetNanos = 2_000_000L;
+        
+        // 每个世界最多排队的任务数量，超出后新任务会被丢弃
+        @SerializedName("max_queue_depth")
+        public int maxQueueDepth = 4096;
+    }
+    
+    /**
+     * 投射物预算配置
+     */
+    public static class ProjectileBudgetConfig {
+        // 每个施法者同时存在的投射物上限
+        @SerializedName("max_per_caster")
+        public int maxPerCaster = 64;
+        
+        // 每个世界同时存在的投射物上限
+        @SerializedName("max_per_level")
+        public int maxPerLevel = 1024;
+        
+        // 超出上限时的处理策略：evict_oldest（移除最早的投射物）或 refuse（拒绝生成）
+        @SerializedName("overflow_policy")
+        public String overflowPolicy = "evict_oldest";
+        
+        // 投射物的最大存活时间（刻）
+        @SerializedName("max_lifetime_ticks")
+        public int maxLifetimeTicks = 300;
+        
+        // 投射物离开生成点的最大距离
+        @SerializedName("max_range")
+        public double maxRange = 128.0;
+    }
+    
+    /**
+     * 命中检测配置
+     */
+    public static class HitDetectionConfig {
+        // 是否使用共享的碰撞粗检测索引；关闭后使用原版逐个查询，便于比较查询次数
+        @SerializedName("shared_broadphase")
+        public boolean sharedBroadphase = true;
+    }
+    
+    /**
+     * 投射物渲染配置（客户端）
+     */
+    public static class RenderConfig {
+        // 在该距离内按完整细节逐个渲染
+        @SerializedName("full_detail_distance")
+        public double fullDetailDistance = 48.0;
+        
+        // 超过完整细节距离、在该距离内按替身渲染，更远的不渲染
+        @SerializedName("impostor_distance")
+        public double impostorDistance = 128.0;
+        
+        // 替身合并网格的边长，同一格内的远处投射物只渲染一个替身
+        @SerializedName("impostor_cell_size")
+        public double impostorCellSize = 2.0;
+        
+        // 右键施法时立即显示预测的火球，不等待服务器的生成数据包
+        @SerializedName("cast_prediction")
+        public boolean castPrediction = true;
+        
+        // 服务器既未确认也未拒绝时，预测的火球最多保留的刻数
+        @SerializedName("prediction_timeout_ticks")
+        public int predictionTimeoutTicks = 40;
+    }
+    
+    /**
+     * 拖尾粒子配置（客户端）
+     */
+    public static class TrailConfig {
+        // 每刻所有投射物合计最多产生的拖尾粒子数量
+        @SerializedName("particle_budget")
+        public int particleBudget = 128;
+        
+        // 在该距离内按完整频率产生拖尾
+        @SerializedName("full_rate_distance")
+        public double fullRateDistance = 16.0;
+        
+        // 超过该距离不产生拖尾
+        @SerializedName("max_distance")
+        public double maxDistance = 64.0;
+        
+        // 压力下的最低产生频率（每刻每个投射物的粒子数），低于完整频率时拖尾变为稀疏
+        @SerializedName("min_rate")
+        public double minRate = 0.125;
+    }
+    
+    /**
+     * 法术开销上限配置
+     * 静态分析的最坏情况超过任一上限的法术核心不能再添加模块，也不能施放；0表示不限制
+     */
+    public static class AdmissionConfig {
+        // 一次施法最多生成的实体数量（包括分裂的子弹）
+        @SerializedName("max_entities")
+        public int maxEntities = 64;
+        
+        // 一次施法最多产生的爆炸数量
+        @SerializedName("max_explosions")
+        public int maxExplosions = 16;
+        
+        // 一次施法估计的服务器耗时上限（微秒）
+        @SerializedName("max_tick_cost_micros")
+        public float maxTickCostMicros = 0.0f;
+        
+        // 法术的总复杂度上限
+        @SerializedName("max_complexity")
+        public float maxComplexity = 0.0f;
     }
 }
\ No newline at end of file
@@ -2,14 +2,41 @@
  * 自定义火球实体
  * 
  * 这个火球实体专为Weaving Infinity模组设计，支持在击中实体或方块时触发特殊效果。
+ *
+ * 火球不受重力影响、沿直线匀速飞行，因此不使用原版的周期性位置同步：
+ * 生成数据中包含锚点（位置、速度、刻数）和随机种子，客户端按锚点确定性地计算每一刻的位置。
+ * 服务器每刻按同样的公式检查实际位置，只有被偏转、传送等偏离预测轨迹时才发送新的锚点。
+ * 击中和消失沿用原版的实体移除数据包，撞击效果由 ImpactEffectBatcher 同步。
+ *
+ * 火球的来源（分裂代数、根施法ID和标记）以谱系整数同步，见 ProjectileLineage。
  */
 package com.kirisame1969.weaving_infinity.common.entity;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.common.proxy.CommonProxy;
+import com.kirisame1969.weaving_infinity.core.effect.ImpactEffectBatcher;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBroadphase;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBudget;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileLineage;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.network.ImpactEffectsPayload;
+import com.kirisame1969.weaving_infinity.network.ProjectileTrajectoryPayload;
+import io.redspace.ironsspellbooks.api.spells.CastSource;
 import io.redspace.ironsspellbooks.entity.spells.AbstractMagicProjectile;
 import io.redspace.ironsspellbooks.registries.SoundRegistry;
 import net.minecraft.core.Holder;
 import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.syncher.EntityDataAccessor;
+import net.minecraft.network.syncher.EntityDataSerializers;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.sounds.SoundEvent;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LivingEntity;
@@ -19,18 +46,336 @@ import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.entity.IEntityWithComplexSpawn;
+import net.neoforged.neoforge.event.EventHooks;
+import net.neoforged.neoforge.network.PacketDistributor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
-public class CustomFireball extends AbstractMagicProjectile {
+public class CustomFireball extends AbstractMagicProjectile implements IEntityWithComplexSpawn {
+    // 飞行速度（每刻移动的格数），客户端预测施法时使用相同的值
+    public static final float SPEED = 1.85f;
+    
+    // 投射物谱系（分裂代数、根施法ID和标记），见 ProjectileLineage
+    private static final EntityDataAccessor<Integer> DATA_LINEAGE = SynchedEntityData.defineId(CustomFireball.class, EntityDataSerializers.INT);
+    
+    // 生成时绑定的法术计划和施法来源，击中时直接使用，无需重新读取施法者的手持物品
+    private SpellPlan boundPlan = SpellPlan.EMPTY;
+    private CastSource castSource = CastSource.SPELLBOOK;
+    
+    // 施法者UUID和生成位置，用于投射物预算、存活时间和射程限制
+    private UUID casterId;
+    private Vec3 spawnOrigin;
+    
+    // 预测轨迹允许的最大偏差（距离平方），超过时服务器重新同步锚点
+    private static final double TRAJECTORY_TOLERANCE_SQR = 1.0E-4;
+    
+    // 轨迹锚点：tick 为 anchorTick 时位于 anchorPos，之后每刻移动 anchorVelocity
+    private Vec3 anchorPos;
+    private Vec3 anchorVelocity;
+    private int anchorTick;
+    
+    // 客户端视觉效果使用的随机种子，随生成数据同步
+    private long visualSeed;
+    
+    // 生成此火球的预测施法序号，客户端据此替换预测的火球，0表示没有对应的预测
+    private int castSequence;
+    
     public CustomFireball(EntityType<? extends Projectile> pEntityType, Level pLevel) {
         super(pEntityType, pLevel);
         this.setNoGravity(true);
+        this.visualSeed = this.random.nextLong();
     }
 
     public CustomFireball(Level pLevel, LivingEntity pShooter) {
         this(com.kirisame1969.weaving_infinity.registries.ModEntities.CUSTOM_FIREBALL.get(), pLevel);
         this.setOwner(pShooter);
+        this.casterId = pShooter.getUUID();
+    }
+
+    @Override
+    protected void defineSynchedData(SynchedEntityData.Builder builder) {
+        super.defineSynchedData(builder);
+        builder.define(DATA_LINEAGE, ProjectileLineage.NONE);
+    }
+
+    /**
+     * 设置投射物谱系
+     * @param lineage 谱系，见 ProjectileLineage
+     */
+    public void setLineage(int lineage) {
+        this.entityData.set(DATA_LINEAGE, lineage);
+    }
+    
+    /**
+     * 获取投射物谱系
+     * @return 谱系，非法术生成的火球返回 ProjectileLineage.NONE
+     */
+    public int getLineage() {
+        return this.entityData.get(DATA_LINEAGE);
+    }
+
+    /**
+     * 绑定法术计划和施法参数
+     * @param plan 生成此火球的法术计划
+     * @param source 施法来源
+     */
+    public void bindSpell(SpellPlan plan, CastSource source) {
+        this.boundPlan = plan != null ? plan : SpellPlan.EMPTY;
+        this.castSource = source;
+    }
+    
+    /**
+     * 获取绑定的法术计划
+     * @return 法术计划，未绑定时返回 SpellPlan.EMPTY
+     */
+    public SpellPlan getBoundPlan() {
+        return boundPlan;
+    }
+    
+    /**
+     * 获取绑定的施法来源
+     * @return 施法来源
+     */
+    public CastSource getCastSource() {
+        return castSource;
+    }
+
+    /**
+     * 获取施法者UUID
+     * @return 施法者UUID，可能为null
+     */
+    public UUID getCasterId() {
+        return casterId;
+    }
+
+    /**
+     * 设置生成此火球的预测施法序号
+     * @param castSequence 施法序号，0表示没有对应的预测
+     */
+    public void setCastSequence(int castSequence) {
+        this.castSequence = castSequence;
+    }
+    
+    /**
+     * 获取生成此火球的预测施法序号
+     * @return 施法序号，0表示没有对应的预测
+     */
+    public int getCastSequence() {
+        return castSequence;
+    }
+
+    /**
+     * 获取客户端视觉效果使用的随机种子
+     * @return 随机种子，服务器和客户端相同
+     */
+    public long getVisualSeed() {
+        return visualSeed;
+    }
+
+    @Override
+    public void tick() {
+        if (spawnOrigin == null) {
+            spawnOrigin = position();
+        }
+        super.tick();
+        if (this.isRemoved()) {
+            return;
+        }
+        if (this.level().isClientSide) {
+            // 按锚点计算位置，不累积每刻的浮点误差，与服务器的预测一致
+            if (anchorVelocity != null) {
+                this.setPos(predictedPosition());
+            }
+        } else {
+            checkLifetimeAndRange();
+            if (!this.isRemoved()) {
+                checkTrajectory();
+            }
+        }
+    }
+
+    /**
+     * 按锚点计算本刻的预测位置
+     * @return 预测位置
+     */
+    private Vec3 predictedPosition() {
+        return anchorPos.add(anchorVelocity.scale(tickCount - anchorTick));
+    }
+
+    /**
+     * 把当前状态设为新的锚点
+     */
+    private void resetAnchor() {
+        anchorPos = position();
+        anchorVelocity = getDeltaMovement();
+        anchorTick = tickCount;
+    }
+
+    /**
+     * 检查实际运动是否仍然符合预测轨迹（服务器）
+     * 被偏转、加速或传送后重新设定锚点，并发送给所有追踪此火球的玩家
+     */
+    private void checkTrajectory() {
+        if (anchorVelocity == null) {
+            resetAnchor();
+            return;
+        }
+        if (getDeltaMovement().equals(anchorVelocity)
+            && position().distanceToSqr(predictedPosition()) <= TRAJECTORY_TOLERANCE_SQR) {
+            return;
+        }
+        resetAnchor();
+        PacketDistributor.sendToPlayersTrackingEntity(this,
+            new ProjectileTrajectoryPayload(getId(), anchorPos, anchorVelocity, anchorTick));
+    }
+
+    /**
+     * 应用服务器发送的新锚点（客户端）
+     * @param position 锚点位置
+     * @param velocity 每刻的速度
+     * @param tick 锚点对应的刻数
+     */
+    public void applyTrajectory(Vec3 position, Vec3 velocity, int tick) {
+        this.anchorPos = position;
+        this.anchorVelocity = velocity;
+        this.anchorTick = tick;
+        this.setDeltaMovement(velocity);
+        this.setPos(predictedPosition());
+    }
+
+    @Override
+    public void writeSpawnData(RegistryFriendlyByteBuf buffer) {
+        // 开始追踪时的状态作为客户端的锚点
+        Vec3 position = position();
+        Vec3 velocity = getDeltaMovement();
+        buffer.writeDouble(position.x);
+        buffer.writeDouble(position.y);
+        buffer.writeDouble(position.z);
+        buffer.writeDouble(velocity.x);
+        buffer.writeDouble(velocity.y);
+        buffer.writeDouble(velocity.z);
+        buffer.writeVarInt(tickCount);
+        buffer.writeLong(visualSeed);
+        buffer.writeVarInt(castSequence);
+    }
+
+    @Override
+    public void readSpawnData(RegistryFriendlyByteBuf buffer) {
+        Vec3 position = new Vec3(buffer.readDouble(), buffer.readDouble(), buffer.readDouble());
+        Vec3 velocity = new Vec3(buffer.readDouble(), buffer.readDouble(), buffer.readDouble());
+        this.tickCount = buffer.readVarInt();
+        this.visualSeed = buffer.readLong();
+        this.castSequence = buffer.readVarInt();
+        this.spawnOrigin = position;
+        applyTrajectory(position, velocity, tickCount);
+        // 施法序号在这里才可用，此时火球已经加入客户端世界
+        CommonProxy.get().onFireballSpawned(this);
+    }
+
+    /**
+     * 超出最大存活时间或射程时移除投射物
+     */
+    private void checkLifetimeAndRange() {
+        ModuleConfig.ProjectileBudgetConfig config = ModuleConfig.getInstance().projectileBudget;
+        if (tickCount > config.maxLifetimeTicks
+            || position().distanceToSqr(spawnOrigin) > config.maxRange * config.maxRange) {
+            if (this.level() instanceof ServerLevel serverLevel) {
+                ProjectileBudget.forLevel(serverLevel).recordExpired();
+            }
+            this.discard();
+        }
+    }
+
+    @Override
+    public void addAdditionalSaveData(CompoundTag tag) {
+        super.addAdditionalSaveData(tag);
+        if (casterId != null) {
+            tag.putUUID("WeavingCaster", casterId);
+        }
+        tag.putInt("WeavingLineage", getLineage());
+        // 保存生成位置和已存活的刻数，区块重新加载后存活时间和射程限制继续累计，而不是从头开始
+        if (spawnOrigin != null) {
+            tag.put("WeavingOrigin", newDoubleList(spawnOrigin.x, spawnOrigin.y, spawnOrigin.z));
+        }
+        tag.putInt("WeavingAge", tickCount);
+        // 保存绑定的布局，区块重新加载后仍能恢复法术计划
+        if (!boundPlan.isEmpty()) {
+            ListTag layout = new ListTag();
+            for (String moduleId : boundPlan.layout()) {
+                layout.add(StringTag.valueOf(moduleId));
+            }
+            tag.put("WeavingPlan", layout);
+            tag.putString("WeavingCastSource", castSource.name());
+        }
+    }
+
+    @Override
+    public void readAdditionalSaveData(CompoundTag tag) {
+        super.readAdditionalSaveData(tag);
+        if (tag.hasUUID("WeavingCaster")) {
+            this.casterId = tag.getUUID("WeavingCaster");
+        }
+        if (tag.contains("WeavingLineage", Tag.TAG_INT)) {
+            setLineage(tag.getInt("WeavingLineage"));
+        } else {
+            // 旧版本的火球以实体标签区分来源，读取后转换为谱系并移除标签
+            ListTag tags = tag.getList("Tags", Tag.TAG_STRING);
+            boolean spell = false;
+            boolean split = false;
+            for (int i = 0; i < tags.size(); i++) {
+                String name = tags.getString(i);
+                spell |= ProjectileLineage.LEGACY_SPELL_TAG.equals(name);
+                split |= ProjectileLineage.LEGACY_SPLIT_TAG.equals(name);
+            }
+            setLineage(ProjectileLineage.fromLegacyTags(spell, split));
+            this.removeTag(ProjectileLineage.LEGACY_SPELL_TAG);
+            this.removeTag(ProjectileLineage.LEGACY_SPLIT_TAG);
+        }
+        if (tag.contains("WeavingOrigin", Tag.TAG_LIST)) {
+            ListTag origin = tag.getList("WeavingOrigin", Tag.TAG_DOUBLE);
+            if (origin.size() == 3) {
+                this.spawnOrigin = new Vec3(origin.getDouble(0), origin.getDouble(1), origin.getDouble(2));
+            }
+        }
+        if (tag.contains("WeavingAge", Tag.TAG_INT)) {
+            this.tickCount = tag.getInt("WeavingAge");
+        }
+        if (tag.contains("WeavingPlan", Tag.TAG_LIST)) {
+            ListTag layout = tag.getList("WeavingPlan", Tag.TAG_STRING);
+            List<String> moduleIds = new ArrayList<>(layout.size());
+            for (int i = 0; i < layout.size(); i++) {
+                moduleIds.add(layout.getString(i));
+            }
+            this.boundPlan = SpellPlanCache.forLayout(moduleIds);
+            try {
+                this.castSource = CastSource.valueOf(tag.getString("WeavingCastSource"));
+            } catch (IllegalArgumentException e) {
+                this.castSource = CastSource.SPELLBOOK;
+            }
+        }
+    }
+
+    @Override
+    public void handleHitDetection() {
+        // 服务器上使用世界共享的碰撞粗检测索引，命中规则与原版相同
+        if (!(this.level() instanceof ServerLevel serverLevel)) {
+            super.handleHitDetection();
+            return;
+        }
+        ProjectileBroadphase broadphase = ProjectileBroadphase.forLevel(serverLevel);
+        if (!ModuleConfig.getInstance().hitDetection.sharedBroadphase) {
+            broadphase.recordVanillaQuery();
+            super.handleHitDetection();
+            return;
+        }
+        HitResult hitResult = broadphase.getHitResultOnMoveVector(this, this::canHitEntity);
+        if (hitResult.getType() != HitResult.Type.MISS && !EventHooks.onProjectileImpact(this, hitResult)) {
+            this.onHit(hitResult);
+        }
     }
 
     @Override
@@ -38,24 +383,22 @@ public class CustomFireball extends AbstractMagicProjectile {
         if (tickCount <= 3) {
             return;
         }
+        // 按距离和投射物数量限制拖尾粒子，只在客户端调用
+        if (!CommonProxy.get().shouldEmitTrail(this)) {
+            return;
+        }
         var pos = position();
         this.level().addParticle(ParticleTypes.FLAME, pos.x, pos.y, pos.z, 0, 0, 0);
     }
 
     @Override
     public void impactParticles(double x, double y, double z) {
-        // 添加撞击粒子效果
-        for (int i = 0; i < 5; i++) {
-            this.level().addParticle(ParticleTypes.LAVA, x, y, z, 
-                this.random.nextGaussian() * 0.1,
-                this.random.nextGaussian() * 0.1,
-                this.random.nextGaussian() * 0.1);
-        }
+        // 撞击粒子由服务器通过 ImpactEffectBatcher 合并发送，客户端收到后统一展开
     }
 
     @Override
     public float getSpeed() {
-        return 1.85f;
+        return SPEED;
     }
 
     @Override
@@ -90,13 +433,13 @@ public class CustomFireball extends AbstractMagicProjectile {
      * @param hitPos 撞击位置
      */
     private void triggerHitEffects(Vec3 hitPos) {
-        // 添加撞击粒子效果
-        this.impactParticles(hitPos.x, hitPos.y, hitPos.z);
+        // 撞击粒子加入本刻的效果队列，与同一区块的其他效果合并为一个数据包
+        if (this.level() instanceof ServerLevel serverLevel) {
+            ImpactEffectBatcher.forLevel(serverLevel).queue(serverLevel, hitPos, ImpactEffectsPayload.KIND_FIREBALL_IMPACT, 1.0F);
+        }
         
-        // 检查是否有特殊标签并触发相应效果
-        if (this.getTags().contains("weaving_infinity_fireball") && 
-            !this.getTags().contains("weaving_infinity_split_fireball")) {
-            // 触发Weaving Infinity模组的特殊效果
+        // 由法术生成、且尚未达到最大分裂代数的火球触发修饰效果
+        if (ProjectileLineage.triggersOnHit(getLineage(), ModuleConfig.getInstance().splitModule.maxGenerations)) {
             com.kirisame1969.weaving_infinity.event.ModEventHandler.onCustomFireballHit(this, hitPos);
         }
     }
@@ -0,0 +1,71 @@
+/**
+ * 通用代理
+ *
+ * 通用代码（物品、实体等）需要调用客户端功能时经由本类分派，不直接引用客户端类：
+ * 专用服务器上使用本类的默认实现，客户端在模组构造时安装 ClientProxy 覆盖这些方法。
+ */
+package com.kirisame1969.weaving_infinity.common.proxy;
+
+import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.List;
+
+public class CommonProxy {
+    // 当前使用的代理，客户端会替换为 ClientProxy
+    private static CommonProxy instance = new CommonProxy();
+
+    /**
+     * 获取当前使用的代理
+     * @return 代理实例
+     */
+    public static CommonProxy get() {
+        return instance;
+    }
+
+    /**
+     * 安装代理（客户端在模组构造时调用）
+     * @param proxy 代理实例
+     */
+    public static void install(CommonProxy proxy) {
+        instance = proxy;
+    }
+
+    /**
+     * 获取法术核心的提示框行
+     * @param layout 布局组件，可能为null
+     * @return 提示框行（只读）
+     */
+    public List<Component> spellCoreTooltip(SpellLayout layout) {
+        return SpellCoreItem.buildTooltipLines(SpellPlanCache.forComponent(layout));
+    }
+
+    /**
+     * 在客户端预测一次施法
+     * @param player 施法的玩家
+     * @param plan 法术计划
+     */
+    public void predictCast(Player player, SpellPlan plan) {
+    }
+
+    /**
+     * 火球读取生成数据后调用（客户端）
+     * @param fireball 刚生成的火球
+     */
+    public void onFireballSpawned(CustomFireball fireball) {
+    }
+
+    /**
+     * 判断投射物本刻是否产生拖尾粒子
+     * @param projectile 投射物
+     * @return 是否产生，没有客户端时永远不产生
+     */
+    public boolean shouldEmitTrail(CustomFireball projectile) {
+        return false;
+    }
+}
@@ -6,12 +6,21 @@
  */
 package com.kirisame1969.weaving_infinity.core;
 
+import com.kirisame1969.weaving_infinity.api.module.ContextKeys;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
 import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
-import com.kirisame1969.weaving_infinity.api.module.ModuleType;
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.metrics.SpellMetrics;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.schedule.SpellScheduler;
+import com.kirisame1969.weaving_infinity.core.schedule.SpellTask;
+import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
 import io.redspace.ironsspellbooks.api.spells.CastSource;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import java.util.List;
 
@@ -36,19 +45,61 @@ public class ModuleExecutor {
     }
     
     /**
-     * 执行模块列表（核心版本）
+     * 执行模块列表
      * @param modules 模块列表
      * @param context 执行上下文
      */
     public static void executeModules(List<ISpellModule> modules, ModuleExecutionContext context) {
+        executeModules(SpellPlan.of(modules), context);
+    }
+    
+    /**
+     * 执行已编译的法术计划（核心版本）
+     * 在服务器世界中执行时受 SpellScheduler 的每刻预算约束，与其他延迟的工作一起按提交顺序执行：
+     * 队列不为空或预算耗尽时整个计划排队；执行中预算耗尽时计划在当前模块处挂起，
+     * 并在后续的刻中从 currentModuleIndex 处继续执行；需要排队而队列已满时拒绝本次施法，不会在预算之外执行
+     * @param plan 法术计划
+     * @param context 执行上下文
+     */
+    public static void executeModules(SpellPlan plan, ModuleExecutionContext context) {
+        context.plan = plan;
+        context.currentModuleIndex = 0;
+        // 每次从头执行一个计划计为一次施法
+        SpellMetrics.CASTS.increment();
+        
+        if (context.level instanceof ServerLevel serverLevel) {
+            SpellScheduler scheduler = SpellScheduler.forLevel(serverLevel);
+            scheduler.runOrDefer(new Continuation(plan, context, scheduler));
+        } else {
+            runFrom(plan, context, 0, null);
+        }
+    }
+    
+    /**
+     * 从指定位置开始执行法术计划
+     * @param plan 法术计划
+     * @param context 执行上下文
+     * @param start 起始模块索引
+     * @param scheduler 调度器，为null时不受预算约束；耗时和挂起次数由调度器自行统计
+     * @return 是否执行完毕；返回false表示已挂起，context.currentModuleIndex 指向下一个要执行的模块
+     */
+    private static boolean runFrom(SpellPlan plan, ModuleExecutionContext context, int start, SpellScheduler scheduler) {
+        long startTime = System.nanoTime();
+        
         // 按顺序执行所有模块
-        for (int i = 0; i < modules.size(); i++) {
+        for (int i = start; i < plan.size(); i++) {
             // 检查流程控制标记
             if (!context.shouldContinue) {
                 // 如果上下文指示停止执行，则退出循环
                 break;
             }
             
+            // 至少执行一个模块后才检查预算，保证挂起的计划总能向前推进
+            if (scheduler != null && i > start && !scheduler.hasBudget(System.nanoTime() - startTime)) {
+                context.currentModuleIndex = i;
+                return false;
+            }
+            
             // 处理跳过模块的逻辑
             if (context.skipNextModule) {
                 // 如果上下文指示跳过下一个模块，则跳过并重置标记
@@ -63,7 +114,8 @@ public class ModuleExecutor {
             }
             
             context.currentModuleIndex = i;
-            ISpellModule module = modules.get(i);
+            ISpellModule module = plan.get(i);
+            long moduleStart = System.nanoTime();
             
             try {
                 // 执行模块的主要功能
@@ -72,6 +124,43 @@ public class ModuleExecutor {
             } catch (Exception e) {
                 WeavingInfinity.LOGGER.error("Error executing module {}: {}", module.getId(), e.getMessage());
             }
+            SpellMetrics.recordModule(module.getId(), System.nanoTime() - moduleStart);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * 由调度器执行的法术计划，挂起后在后续的刻中继续执行
+     */
+    private static final class Continuation implements SpellTask {
+        private final SpellPlan plan;
+        private final ModuleExecutionContext context;
+        private final SpellScheduler scheduler;
+        
+        Continuation(SpellPlan plan, ModuleExecutionContext context, SpellScheduler scheduler) {
+            this.plan = plan;
+            this.context = context;
+            this.scheduler = scheduler;
+        }
+        
+        @Override
+        public boolean run() {
+            // 施法者已不存在时放弃剩余的模块
+            if (context.caster.isRemoved()) {
+                return true;
+            }
+            return runFrom(plan, context, context.currentModuleIndex, scheduler);
+        }
+        
+        @Override
+        public void onDropped() {
+            // 只有尚未开始的施法会被拒绝入队：整个施法被拒绝，提示施法者并移除客户端的预测
+            if (context.caster instanceof Player player) {
+                player.displayClientMessage(Component.translatable("message.weaving_infinity.spell_busy")
+                    .withStyle(ChatFormatting.RED), true);
+                SpellCoreItem.rejectPrediction(player, context.getInt(ContextKeys.CAST_SEQUENCE));
+            }
         }
     }
 }
\ No newline at end of file
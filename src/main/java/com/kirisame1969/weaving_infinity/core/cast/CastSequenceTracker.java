@@ -0,0 +1,50 @@
+/**
+ * 施法序号记录
+ *
+ * 客户端预测施法时，会在原版的使用物品数据包之前发送本次施法的序号（见 CastSequencePayload）。
+ * 服务器在处理使用物品时取出序号并写入执行上下文，生成的投射物携带此序号，
+ * 客户端据此把预测的火球替换为真实的实体，或在施法被拒绝时立即移除预测。
+ *
+ * 同一个连接上的数据包按发送顺序处理，因此序号总是先于对应的使用物品到达。
+ */
+package com.kirisame1969.weaving_infinity.core.cast;
+
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class CastSequenceTracker {
+    // 每个玩家尚未使用的施法序号
+    private static final Map<UUID, Integer> PENDING = new ConcurrentHashMap<>();
+
+    private CastSequenceTracker() {}
+
+    /**
+     * 记录玩家下一次施法的序号
+     * @param player 玩家
+     * @param sequence 施法序号
+     */
+    public static void record(ServerPlayer player, int sequence) {
+        PENDING.put(player.getUUID(), sequence);
+    }
+
+    /**
+     * 取出玩家本次施法的序号
+     * @param player 玩家
+     * @return 施法序号，客户端没有预测时返回0
+     */
+    public static int take(ServerPlayer player) {
+        Integer sequence = PENDING.remove(player.getUUID());
+        return sequence != null ? sequence : 0;
+    }
+
+    /**
+     * 丢弃玩家的施法序号（玩家退出时调用）
+     * @param player 玩家
+     */
+    public static void clear(ServerPlayer player) {
+        PENDING.remove(player.getUUID());
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * 爆炸合并器
+ *
+ * 每个服务器世界一个实例。一刻内所有击中爆炸先排队，在刻末统一结算：
+ * 彼此距离不超过 merge_distance 的爆炸合并为一次爆炸，只进行一次实体扫描，
+ * 粒子和音效作为一条撞击效果随所在区块的效果数据包一起发送。分裂齐射同时命中时，几十次重叠的爆炸会被合并为少数几次。
+ *
+ * 合并器只在服务器主线程上使用，不需要同步。
+ */
+package com.kirisame1969.weaving_infinity.core.effect;
+
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.core.metrics.SpellMetrics;
+import com.kirisame1969.weaving_infinity.network.ImpactEffectsPayload;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.sounds.SoundEvents;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Explosion;
+import net.minecraft.world.level.GameRules;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.event.EventHooks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public final class ExplosionBatcher {
+    // 合并后取最大半径
+    public static final String MERGE_MAX = "max";
+    // 合并后按体积叠加半径
+    public static final String MERGE_COMBINED = "combined";
+
+    // 每个世界的合并器（弱键，世界卸载后自动释放）
+    private static final Map<ServerLevel, ExplosionBatcher> BATCHERS = new WeakHashMap<>();
+
+    // 本刻排队的爆炸
+    private final List<Cluster> pending = new ArrayList<>();
+
+    // 统计计数器
+    private long queuedCount = 0L;
+    private long emittedCount = 0L;
+    private int largestCluster = 0;
+    private int lastTickQueued = 0;
+    private int lastTickEmitted = 0;
+
+    private ExplosionBatcher() {}
+
+    /**
+     * 获取世界对应的爆炸合并器
+     * @param level 服务器世界
+     * @return 合并器实例
+     */
+    public static ExplosionBatcher forLevel(ServerLevel level) {
+        return BATCHERS.computeIfAbsent(level, l -> new ExplosionBatcher());
+    }
+
+    /**
+     * 移除世界对应的爆炸合并器，丢弃尚未结算的爆炸
+     * @param level 服务器世界
+     */
+    public static void remove(ServerLevel level) {
+        BATCHERS.remove(level);
+    }
+
+    /**
+     * 获取所有世界及其合并器
+     * @return 世界到合并器的映射（快照）
+     */
+    public static Map<ServerLevel, ExplosionBatcher> all() {
+        return new HashMap<>(BATCHERS);
+    }
+
+    /**
+     * 将一次爆炸加入本刻的队列
+     * @param pos 爆炸位置
+     * @param radius 爆炸半径
+     */
+    public void queue(Vec3 pos, float radius) {
+        pending.add(new Cluster(pos, radius));
+        queuedCount++;
+    }
+
+    /**
+     * 合并并结算本刻排队的所有爆炸
+     * @param level 服务器世界
+     */
+    public void flush(ServerLevel level) {
+        if (pending.isEmpty()) {
+            lastTickQueued = 0;
+            lastTickEmitted = 0;
+            return;
+        }
+
+        ModuleConfig.ExplodeModuleConfig config = ModuleConfig.getInstance().explodeModule;
+        double mergeDistanceSqr = config.mergeDistance * config.mergeDistance;
+        boolean combined = MERGE_COMBINED.equals(config.mergeMode);
+
+        // 贪心聚类：每个爆炸并入第一个中心距离足够近的簇，否则自成一簇
+        List<Cluster> clusters = new ArrayList<>();
+        for (Cluster explosion : pending) {
+            Cluster target = null;
+            for (Cluster cluster : clusters) {
+                if (cluster.distanceSqr(explosion) <= mergeDistanceSqr) {
+                    target = cluster;
+                    break;
+                }
+            }
+            if (target != null) {
+                target.merge(explosion, combined);
+            } else {
+                clusters.add(explosion);
+            }
+        }
+
+        for (Cluster cluster : clusters) {
+            emit(level, cluster);
+            largestCluster = Math.max(largestCluster, cluster.count);
+        }
+
+        lastTickQueued = pending.size();
+        lastTickEmitted = clusters.size();
+        emittedCount += clusters.size();
+        pending.clear();
+    }
+
+    /**
+     * 产生一次合并后的爆炸
+     * 伤害、击退和方块破坏在服务器上完成；粒子和音效不再通过原版爆炸数据包发送，
+     * 而是作为一条撞击效果交给 ImpactEffectBatcher，与同一区块的其他效果合并发送
+     * @param level 服务器世界
+     * @param cluster 合并后的爆炸
+     */
+    private static void emit(ServerLevel level, Cluster cluster) {
+        // 与 Level.ExplosionInteraction.MOB 相同的方块交互规则
+        Explosion.BlockInteraction interaction = EventHooks.canEntityGrief(level, null)
+                ? (level.getGameRules().getBoolean(GameRules.RULE_MOB_EXPLOSION_DROP_DECAY)
+                        ? Explosion.BlockInteraction.DESTROY_WITH_DECAY
+                        : Explosion.BlockInteraction.DESTROY)
+                : Explosion.BlockInteraction.KEEP;
+
+        Explosion explosion = new Explosion(
+                level,
+                null,
+                null,
+                null,
+                cluster.x,
+                cluster.y,
+                cluster.z,
+                cluster.radius,
+                false,
+                interaction,
+                ParticleTypes.GUST_EMITTER_SMALL,
+                ParticleTypes.GUST_EMITTER_LARGE,
+                SoundEvents.GENERIC_EXPLODE
+        );
+        if (EventHooks.onExplosionStart(level, explosion)) {
+            return;
+        }
+        explosion.explode();
+        explosion.finalizeExplosion(false);
+        SpellMetrics.EXPLOSIONS.increment();
+
+        // 原版通过爆炸数据包同步玩家击退，这里改为标记受击，由实体追踪器发送速度更新
+        for (Player player : explosion.getHitPlayers().keySet()) {
+            player.hurtMarked = true;
+        }
+
+        ImpactEffectBatcher.forLevel(level).queue(level, new Vec3(cluster.x, cluster.y, cluster.z),
+                ImpactEffectsPayload.KIND_EXPLOSION, cluster.radius);
+    }
+
+    /**
+     * 获取排队的爆炸总数
+     * @return 爆炸数量
+     */
+    public long getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * 获取实际产生的爆炸总数
+     * @return 爆炸数量
+     */
+    public long getEmittedCount() {
+        return emittedCount;
+    }
+
+    /**
+     * 获取被合并掉的爆炸总数
+     * @return 爆炸数量
+     */
+    public long getMergedCount() {
+        return queuedCount - emittedCount - pending.size();
+    }
+
+    /**
+     * 获取单次合并包含的最多爆炸数量
+     * @return 爆炸数量
+     */
+    public int getLargestCluster() {
+        return largestCluster;
+    }
+
+    /**
+     * 获取上一次结算时排队的爆炸数量
+     * @return 爆炸数量
+     */
+    public int getLastTickQueued() {
+        return lastTickQueued;
+    }
+
+    /**
+     * 获取上一次结算时实际产生的爆炸数量
+     * @return 爆炸数量
+     */
+    public int getLastTickEmitted() {
+        return lastTickEmitted;
+    }
+
+    /**
+     * 一组合并的爆炸：中心为各爆炸位置的平均值
+     */
+    private static final class Cluster {
+        double x;
+        double y;
+        double z;
+        float radius;
+        int count = 1;
+
+        Cluster(Vec3 pos, float radius) {
+            this.x = pos.x;
+            this.y = pos.y;
+            this.z = pos.z;
+            this.radius = radius;
+        }
+
+        double distanceSqr(Cluster other) {
+            double dx = x - other.x;
+            double dy = y - other.y;
+            double dz = z - other.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        void merge(Cluster other, boolean combined) {
+            int total = count + other.count;
+            x = (x * count + other.x * other.count) / total;
+            y = (y * count + other.y * other.count) / total;
+            z = (z * count + other.z * other.count) / total;
+            if (combined) {
+                // 按体积叠加：r = cbrt(r1^3 + r2^3)
+                radius = (float) Math.cbrt((double) radius * radius * radius + (double) other.radius * other.radius * other.radius);
+            } else {
+                radius = Math.max(radius, other.radius);
+            }
+            count = total;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * 撞击效果合并器
+ *
+ * 每个服务器世界一个实例。一刻内产生的撞击效果按区块分组，
+ * 在刻末每个区块只发送一个 ImpactEffectsPayload 给追踪该区块的玩家，
+ * 客户端收到后在本地展开为粒子和音效。
+ *
+ * 合并器只在服务器主线程上使用，不需要同步。
+ */
+package com.kirisame1969.weaving_infinity.core.effect;
+
+import com.kirisame1969.weaving_infinity.network.ImpactEffectsPayload;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.network.PacketDistributor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public final class ImpactEffectBatcher {
+    // 每个世界的合并器（弱键，世界卸载后自动释放）
+    private static final Map<ServerLevel, ImpactEffectBatcher> BATCHERS = new WeakHashMap<>();
+
+    // 本刻的效果，按区块分组
+    private final Long2ObjectMap<List<ImpactEffectsPayload.Entry>> pending = new Long2ObjectOpenHashMap<>();
+
+    // 统计计数器
+    private long effectCount = 0L;
+    private long payloadCount = 0L;
+
+    private ImpactEffectBatcher() {}
+
+    /**
+     * 获取世界对应的撞击效果合并器
+     * @param level 服务器世界
+     * @return 合并器实例
+     */
+    public static ImpactEffectBatcher forLevel(ServerLevel level) {
+        return BATCHERS.computeIfAbsent(level, l -> new ImpactEffectBatcher());
+    }
+
+    /**
+     * 移除世界对应的撞击效果合并器
+     * @param level 服务器世界
+     */
+    public static void remove(ServerLevel level) {
+        BATCHERS.remove(level);
+    }
+
+    /**
+     * 将一个撞击效果加入本刻的队列
+     * @param level 服务器世界
+     * @param pos 效果位置
+     * @param kind 效果类型（见 ImpactEffectsPayload 中的常量）
+     * @param intensity 效果强度
+     */
+    public void queue(ServerLevel level, Vec3 pos, byte kind, float intensity) {
+        int chunkX = SectionPos.blockToSectionCoord(pos.x);
+        int chunkZ = SectionPos.blockToSectionCoord(pos.z);
+        List<ImpactEffectsPayload.Entry> entries = pending.computeIfAbsent(ChunkPos.asLong(chunkX, chunkZ), key -> new ArrayList<>());
+        entries.add(new ImpactEffectsPayload.Entry(
+            (float) (pos.x - SectionPos.sectionToBlockCoord(chunkX)),
+            (float) pos.y,
+            (float) (pos.z - SectionPos.sectionToBlockCoord(chunkZ)),
+            kind,
+            intensity,
+            level.random.nextInt()
+        ));
+        effectCount++;
+    }
+
+    /**
+     * 发送本刻的所有效果，每个区块一个数据包
+     * @param level 服务器世界
+     */
+    public void flush(ServerLevel level) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Long2ObjectMap.Entry<List<ImpactEffectsPayload.Entry>> entry : pending.long2ObjectEntrySet()) {
+            ChunkPos chunkPos = new ChunkPos(entry.getLongKey());
+            PacketDistributor.sendToPlayersTrackingChunk(level, chunkPos,
+                new ImpactEffectsPayload(chunkPos.x, chunkPos.z, entry.getValue()));
+            payloadCount++;
+        }
+        pending.clear();
+    }
+
+    /**
+     * 获取排队的效果总数
+     * @return 效果数量
+     */
+    public long getEffectCount() {
+        return effectCount;
+    }
+
+    /**
+     * 获取发送的数据包总数
+     * @return 数据包数量
+     */
+    public long getPayloadCount() {
+        return payloadCount;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * 耗时直方图
+ *
+ * 以纳秒记录耗时，按对数分桶：每个2的幂区间再等分为4个子桶，相对误差不超过25%。
+ * 每个桶是一个 LongAdder，记录时无锁、不分配内存，可以在服务器主线程上常开。
+ * 桶计数和 RollingRate 一样每秒结转一次，存入最近5分钟的每秒环形缓冲区，
+ * 百分位数按最近若干秒计算，取所在桶的上界，宁可高估也不低估。
+ * 结转和读取只在服务器主线程上进行。
+ */
+package com.kirisame1969.weaving_infinity.core.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+    // 小于此值的耗时每纳秒一个桶
+    private static final int LINEAR_LIMIT = 16;
+    private static final int MIN_EXPONENT = 4;
+    // 最大记录约 2^40 纳秒（约18分钟），更长的耗时计入最后一个桶
+    private static final int MAX_EXPONENT = 40;
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+    // 每秒快照的一项：高位为计数，低8位为桶序号
+    private static final int INDEX_BITS = 8;
+    private static final long[] EMPTY_SECOND = new long[0];
+
+    // 当前这一秒尚未结转的桶计数
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    // 窗口开始后的总次数和总耗时，用于平均值
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    // 每秒的非空桶，head 指向最近结转的一秒
+    private final long[][] seconds = new long[RollingRate.WINDOW_SECONDS][];
+    private int head = -1;
+    private int filled = 0;
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        if (nanos < 0L) {
+            nanos = 0L;
+        }
+        buckets[bucketIndex(nanos)].increment();
+        count.increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * 结转当前这一秒的桶计数，每秒调用一次
+     * 只保存非空的桶，空闲的秒不分配内存
+     */
+    void roll() {
+        int nonEmpty = 0;
+        long[] scratch = null;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucketCount = buckets[i].sumThenReset();
+            if (bucketCount == 0L) {
+                continue;
+            }
+            if (scratch == null) {
+                scratch = new long[BUCKET_COUNT];
+            }
+            scratch[nonEmpty++] = (bucketCount << INDEX_BITS) | i;
+        }
+        head = (head + 1) % RollingRate.WINDOW_SECONDS;
+        seconds[head] = scratch == null ? EMPTY_SECOND : Arrays.copyOf(scratch, nonEmpty);
+        filled = Math.min(filled + 1, RollingRate.WINDOW_SECONDS);
+    }
+
+    /**
+     * 计算最近若干秒的百分位数，窗口开始不足这么久时按已有的秒数计算
+     * @param quantile 分位（0到1之间）
+     * @param window 秒数
+     * @return 耗时上界（纳秒），窗口内没有记录时返回0
+     */
+    public long percentile(double quantile, int window) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = collect(window, counts);
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 获取最近若干秒的记录次数
+     * @param window 秒数
+     * @return 记录次数
+     */
+    public long count(int window) {
+        return collect(window, null);
+    }
+
+    /**
+     * 汇总最近若干秒的桶计数
+     * @param window 秒数
+     * @param counts 每个桶的计数，为null时只计算总数
+     * @return 总次数
+     */
+    private long collect(int window, long[] counts) {
+        int n = Math.min(window, filled);
+        long total = 0L;
+        for (int i = 0; i < n; i++) {
+            for (long entry : seconds[(head - i + RollingRate.WINDOW_SECONDS) % RollingRate.WINDOW_SECONDS]) {
+                long bucketCount = entry >>> INDEX_BITS;
+                if (counts != null) {
+                    counts[(int) (entry & ((1L << INDEX_BITS) - 1))] += bucketCount;
+                }
+                total += bucketCount;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 获取平均耗时
+     * @return 平均耗时（纳秒），没有记录时返回0
+     */
+    public double mean() {
+        long total = count.sum();
+        return total == 0L ? 0.0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * 获取窗口开始后的记录次数（包括尚未结转的这一秒）
+     * @return 记录次数
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 清空所有记录
+     */
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        Arrays.fill(seconds, null);
+        head = -1;
+        filled = 0;
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < LINEAR_LIMIT) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = MIN_EXPONENT + (index - LINEAR_LIMIT) / SUB_BUCKETS;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1L;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * 滚动速率计数器
+ *
+ * 任何线程都可以无锁地累加计数（LongAdder 分段计数）。计数每秒结转一次，
+ * 存入最近5分钟的每秒环形缓冲区，用于计算1秒、1分钟和5分钟的平均速率。
+ * 结转和读取只在服务器主线程上进行。
+ *
+ * 也可以作为采样值使用：每秒加入一次当前值，速率即为窗口内的平均值。
+ */
+package com.kirisame1969.weaving_infinity.core.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class RollingRate {
+    // 保留的秒数（5分钟）
+    public static final int WINDOW_SECONDS = 300;
+
+    // 当前这一秒尚未结转的计数
+    private final LongAdder pending = new LongAdder();
+
+    // 每秒的计数，head 指向最近结转的一秒
+    private final long[] seconds = new long[WINDOW_SECONDS];
+    private int head = -1;
+    private int filled = 0;
+
+    // 窗口开始后已结转的总数
+    private long total = 0L;
+
+    /**
+     * 计数加一
+     */
+    public void increment() {
+        pending.increment();
+    }
+
+    /**
+     * 累加计数
+     * @param amount 数量
+     */
+    public void add(long amount) {
+        pending.add(amount);
+    }
+
+    /**
+     * 结转当前这一秒的计数，每秒调用一次
+     */
+    void roll() {
+        long count = pending.sumThenReset();
+        head = (head + 1) % WINDOW_SECONDS;
+        seconds[head] = count;
+        filled = Math.min(filled + 1, WINDOW_SECONDS);
+        total += count;
+    }
+
+    /**
+     * 计算最近若干秒的平均速率，窗口开始不足这么久时按已有的秒数计算
+     * @param window 秒数
+     * @return 每秒计数
+     */
+    public double rate(int window) {
+        int n = Math.min(window, filled);
+        if (n == 0) {
+            return 0.0;
+        }
+        long sum = 0L;
+        for (int i = 0; i < n; i++) {
+            sum += seconds[(head - i + WINDOW_SECONDS) % WINDOW_SECONDS];
+        }
+        return (double) sum / n;
+    }
+
+    /**
+     * 获取窗口开始后的总计数（不含尚未结转的这一秒）
+     * @return 总计数
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * 清空所有计数
+     */
+    void reset() {
+        pending.reset();
+        Arrays.fill(seconds, 0L);
+        head = -1;
+        filled = 0;
+        total = 0L;
+    }
+}
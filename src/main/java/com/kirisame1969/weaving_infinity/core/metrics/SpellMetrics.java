@@ -0,0 +1,171 @@
+/**
+ * 法术子系统指标
+ *
+ * 常开的全局计数器和耗时直方图：施法次数、每个模块的执行耗时、撞击处理次数、
+ * 分裂生成的子弹数量、爆炸次数以及存活的投射物数量。
+ * 记录只是一次 LongAdder 累加，不加锁；服务器每秒结转一次计数，
+ * 由 /spellcore stats 显示1秒、1分钟、5分钟的速率以及最近1分钟、5分钟的 p50/p99 耗时。
+ */
+package com.kirisame1969.weaving_infinity.core.metrics;
+
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBudget;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public final class SpellMetrics {
+    private static final long ROLL_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    public static final RollingRate CASTS = new RollingRate();
+    public static final RollingRate IMPACTS = new RollingRate();
+    public static final RollingRate SPLIT_CHILDREN = new RollingRate();
+    public static final RollingRate EXPLOSIONS = new RollingRate();
+    // 每秒采样一次存活投射物数量，速率即为平均数量
+    public static final RollingRate LIVE_PROJECTILES = new RollingRate();
+
+    // 模块ID -> 执行统计
+    private static final Map<ResourceLocation, ModuleStats> MODULES = new ConcurrentHashMap<>();
+
+    private static long nextRollNanos = System.nanoTime() + ROLL_INTERVAL_NANOS;
+    private static long windowStartNanos = System.nanoTime();
+    private static int lastLiveProjectiles = 0;
+
+    private SpellMetrics() {}
+
+    /**
+     * 记录一次模块执行
+     * @param moduleId 模块ID
+     * @param nanos 执行耗时（纳秒）
+     */
+    public static void recordModule(ResourceLocation moduleId, long nanos) {
+        ModuleStats stats = MODULES.get(moduleId);
+        if (stats == null) {
+            stats = MODULES.computeIfAbsent(moduleId, id -> new ModuleStats());
+        }
+        stats.executions.increment();
+        stats.latency.record(nanos);
+    }
+
+    /**
+     * 服务器每刻调用，每过一秒结转一次计数
+     */
+    public static void tick() {
+        long now = System.nanoTime();
+        if (now < nextRollNanos) {
+            return;
+        }
+        int live = 0;
+        for (ProjectileBudget budget : ProjectileBudget.all().values()) {
+            live += budget.getLiveCount();
+        }
+        lastLiveProjectiles = live;
+
+        // 服务器卡顿超过一秒时补齐空白的秒，保持速率按真实时间计算
+        // 补齐的每一秒都采样一次存活数量，卡顿期间投射物仍然存在
+        int missed = 0;
+        while (now >= nextRollNanos && missed < RollingRate.WINDOW_SECONDS) {
+            LIVE_PROJECTILES.add(live);
+            rollAll();
+            nextRollNanos += ROLL_INTERVAL_NANOS;
+            missed++;
+        }
+        if (now >= nextRollNanos) {
+            nextRollNanos = now + ROLL_INTERVAL_NANOS;
+        }
+    }
+
+    private static void rollAll() {
+        CASTS.roll();
+        IMPACTS.roll();
+        SPLIT_CHILDREN.roll();
+        EXPLOSIONS.roll();
+        LIVE_PROJECTILES.roll();
+        for (ModuleStats stats : MODULES.values()) {
+            stats.executions.roll();
+            stats.latency.roll();
+        }
+    }
+
+    /**
+     * 清空所有计数和直方图，开始新的统计窗口
+     */
+    public static void reset() {
+        CASTS.reset();
+        IMPACTS.reset();
+        SPLIT_CHILDREN.reset();
+        EXPLOSIONS.reset();
+        LIVE_PROJECTILES.reset();
+        for (ModuleStats stats : MODULES.values()) {
+            stats.executions.reset();
+            stats.latency.reset();
+        }
+        windowStartNanos = System.nanoTime();
+        nextRollNanos = windowStartNanos + ROLL_INTERVAL_NANOS;
+    }
+
+    /**
+     * 生成统计信息的文本描述
+     * @return 每行一条统计
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        long windowSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - windowStartNanos);
+        lines.add(String.format("window: %ds", windowSeconds));
+        lines.add(describeRate("casts", CASTS));
+        lines.add(describeRate("impacts", IMPACTS));
+        lines.add(describeRate("split_children", SPLIT_CHILDREN));
+        lines.add(describeRate("explosions", EXPLOSIONS));
+        lines.add(String.format("live_projectiles: now=%d avg_1m=%.1f avg_5m=%.1f",
+            lastLiveProjectiles,
+            LIVE_PROJECTILES.rate(60),
+            LIVE_PROJECTILES.rate(RollingRate.WINDOW_SECONDS)));
+
+        // 按模块ID排序，输出顺序稳定
+        for (Map.Entry<ResourceLocation, ModuleStats> entry : new TreeMap<>(MODULES).entrySet()) {
+            ModuleStats stats = entry.getValue();
+            if (stats.latency.count() == 0L) {
+                continue;
+            }
+            lines.add(String.format("%s: 1s=%.2f/s 1m=%.2f/s 5m=%.2f/s p50_1m=%s p99_1m=%s p50_5m=%s p99_5m=%s n_5m=%d total=%d",
+                entry.getKey(),
+                stats.executions.rate(1),
+                stats.executions.rate(60),
+                stats.executions.rate(RollingRate.WINDOW_SECONDS),
+                formatNanos(stats.latency.percentile(0.50, 60)),
+                formatNanos(stats.latency.percentile(0.99, 60)),
+                formatNanos(stats.latency.percentile(0.50, RollingRate.WINDOW_SECONDS)),
+                formatNanos(stats.latency.percentile(0.99, RollingRate.WINDOW_SECONDS)),
+                stats.latency.count(RollingRate.WINDOW_SECONDS),
+                stats.latency.count()));
+        }
+        return lines;
+    }
+
+    private static String describeRate(String name, RollingRate rate) {
+        return String.format("%s: 1s=%.2f/s 1m=%.2f/s 5m=%.2f/s total=%d",
+            name, rate.rate(1), rate.rate(60), rate.rate(RollingRate.WINDOW_SECONDS), rate.total());
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000L) {
+            return String.format("%.1fus", nanos / 1_000.0);
+        }
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * 单个模块的执行统计
+     */
+    private static final class ModuleStats {
+        final RollingRate executions = new RollingRate();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
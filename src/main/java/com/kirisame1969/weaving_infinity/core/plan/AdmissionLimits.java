@@ -0,0 +1,29 @@
+/**
+ * 施法准入上限
+ *
+ * 配置中 admission 部分的不可变快照。服务器按本地配置判定是否允许施放；
+ * 客户端使用服务器同步的上限（见 ServerAdmissionLimits）显示提示框和判断能否预测施法，
+ * 客户端的判定只作参考，最终以服务器为准。
+ */
+package com.kirisame1969.weaving_infinity.core.plan;
+
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+
+public record AdmissionLimits(int maxEntities, int maxExplosions, float maxTickCostMicros, float maxComplexity) {
+    /**
+     * 从配置创建上限快照
+     * @param config 准入配置
+     * @return 上限快照
+     */
+    public static AdmissionLimits fromConfig(ModuleConfig.AdmissionConfig config) {
+        return new AdmissionLimits(config.maxEntities, config.maxExplosions, config.maxTickCostMicros, config.maxComplexity);
+    }
+
+    /**
+     * 获取本地配置的上限
+     * @return 上限快照
+     */
+    public static AdmissionLimits local() {
+        return fromConfig(ModuleConfig.getInstance().admission);
+    }
+}
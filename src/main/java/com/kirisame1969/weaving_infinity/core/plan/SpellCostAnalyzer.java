@@ -0,0 +1,176 @@
+/**
+ * 法术开销分析器
+ *
+ * 根据模块声明的开销提示（ISpellModule.getCostHint）静态估算一次施法在最坏情况下
+ * 生成的实体、产生的爆炸和服务器耗时，并按配置的上限决定法术核心能否添加模块或施放。
+ *
+ * 估算规则与撞击时的分派方式一致：每个基础模块生成的投射物撞击一次，
+ * 撞击时按标签分派修饰效果，同一个修饰模块重复安装不会叠加；
+ * 分裂出的子弹由第一个基础模块克隆，代数小于配置的最大分裂代数的子弹撞击时继续触发修饰效果，
+ * 因此每一代的数量是上一代的（每次撞击的子弹数）倍，最后一代撞击时不再触发修饰效果。
+ */
+package com.kirisame1969.weaving_infinity.core.plan;
+
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleCostHint;
+import com.kirisame1969.weaving_infinity.api.module.ModuleType;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.network.ServerAdmissionLimits;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class SpellCostAnalyzer {
+    private SpellCostAnalyzer() {}
+
+    /**
+     * 分析模块列表的最坏情况开销
+     * @param modules 模块列表，按执行顺序排列
+     * @return 开销报告
+     */
+    public static SpellCostReport analyze(List<ISpellModule> modules) {
+        return analyze(modules.toArray(new ISpellModule[0]));
+    }
+
+    /**
+     * 分析模块数组的最坏情况开销（法术计划编译时调用）
+     * @param modules 模块数组，按执行顺序排列
+     * @return 开销报告
+     */
+    static SpellCostReport analyze(ISpellModule[] modules) {
+        if (modules.length == 0) {
+            return SpellCostReport.EMPTY;
+        }
+
+        long projectiles = 0L;
+        double cost = 0.0;
+        float complexity = 0.0f;
+        ModuleCostHint primaryBase = null;
+        List<ISpellModule> modifiers = new ArrayList<>();
+        for (ISpellModule module : modules) {
+            complexity += module.getBaseComplexity();
+            if (module.getModuleType() == ModuleType.BASE) {
+                ModuleCostHint hint = module.getCostHint();
+                if (primaryBase == null) {
+                    primaryBase = hint;
+                }
+                projectiles += hint.projectilesPerCast();
+                cost += (double) hint.projectilesPerCast() * hint.costMicros();
+            } else if (!modifiers.contains(module)) {
+                modifiers.add(module);
+            }
+        }
+
+        // 每次触发修饰效果的撞击产生的子弹、爆炸和耗时
+        long childrenPerImpact = 0L;
+        long explosionsPerImpact = 0L;
+        double costPerImpact = 0.0;
+        for (ISpellModule modifier : modifiers) {
+            ModuleCostHint hint = modifier.getCostHint();
+            if (primaryBase != null) {
+                childrenPerImpact += hint.childrenPerImpact();
+            }
+            explosionsPerImpact += hint.explosionsPerImpact();
+            costPerImpact += hint.costMicros();
+        }
+
+        // 逐代累计：每个投射物撞击一次，代数小于最大分裂代数的投射物触发所有不同的修饰模块
+        int maxGenerations = ModuleConfig.getInstance().splitModule.maxGenerations;
+        long triggering = 0L;
+        long children = 0L;
+        long generation = projectiles;
+        for (int g = 0; g < maxGenerations && generation > 0; g++) {
+            triggering = saturatingAdd(triggering, generation);
+            generation = saturatingMultiply(generation, childrenPerImpact);
+            children = saturatingAdd(children, generation);
+        }
+        long explosions = saturatingMultiply(triggering, explosionsPerImpact);
+        cost += (double) triggering * costPerImpact;
+        if (primaryBase != null) {
+            cost += (double) children * primaryBase.costMicros();
+        }
+
+        return new SpellCostReport(
+            saturate(projectiles),
+            saturate(saturatingAdd(projectiles, children)),
+            saturate(explosions),
+            (float) cost,
+            complexity);
+    }
+
+    /**
+     * 按服务器本地配置的上限检查开销报告（服务器上的权威判定）
+     * @param report 开销报告
+     * @return 超出的上限说明，未超出时返回null
+     */
+    public static Component checkAdmission(SpellCostReport report) {
+        return checkAdmission(report, AdmissionLimits.local());
+    }
+
+    /**
+     * 按服务器同步的上限检查开销报告（客户端的参考判定，用于提示框和施法预测）
+     * 开销报告本身按客户端的模块配置估算，结果可能与服务器不同，施放时仍以服务器的判定为准
+     * @param report 开销报告
+     * @return 超出的上限说明，未超出时返回null
+     */
+    public static Component checkAdvisory(SpellCostReport report) {
+        return checkAdmission(report, ServerAdmissionLimits.get());
+    }
+
+    /**
+     * 按指定的上限检查开销报告
+     * @param report 开销报告
+     * @param limits 上限
+     * @return 超出的上限说明，未超出时返回null
+     */
+    public static Component checkAdmission(SpellCostReport report, AdmissionLimits limits) {
+        if (limits.maxEntities() > 0 && report.entities() > limits.maxEntities()) {
+            return Component.translatable("spell_cost.weaving_infinity.limit.entities", report.entities(), limits.maxEntities());
+        }
+        if (limits.maxExplosions() > 0 && report.explosions() > limits.maxExplosions()) {
+            return Component.translatable("spell_cost.weaving_infinity.limit.explosions", report.explosions(), limits.maxExplosions());
+        }
+        if (limits.maxTickCostMicros() > 0 && report.tickCostMicros() > limits.maxTickCostMicros()) {
+            return Component.translatable("spell_cost.weaving_infinity.limit.tick_cost",
+                formatMicros(report.tickCostMicros()), formatMicros(limits.maxTickCostMicros()));
+        }
+        if (limits.maxComplexity() > 0 && report.complexity() > limits.maxComplexity()) {
+            return Component.translatable("spell_cost.weaving_infinity.limit.complexity",
+                String.format("%.1f", report.complexity()), String.format("%.1f", limits.maxComplexity()));
+        }
+        return null;
+    }
+
+    /**
+     * 生成开销报告的文本描述，用于工具提示和命令输出
+     * @param report 开销报告
+     * @return 文本组件
+     */
+    public static MutableComponent describe(SpellCostReport report) {
+        return Component.translatable("spell_cost.weaving_infinity.summary",
+            report.entities(), report.explosions(), formatMicros(report.tickCostMicros()),
+            String.format("%.1f", report.complexity()));
+    }
+
+    private static String formatMicros(float micros) {
+        return String.format("%.0f", micros);
+    }
+
+    private static int saturate(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    // 多代分裂的数量按指数增长，超过int范围后保持饱和，不会溢出为负数
+    private static long saturatingAdd(long a, long b) {
+        return Math.min(a + b, Integer.MAX_VALUE);
+    }
+
+    private static long saturatingMultiply(long a, long b) {
+        if (a == 0L || b == 0L) {
+            return 0L;
+        }
+        return a > Integer.MAX_VALUE / b ? Integer.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * 法术开销报告
+ *
+ * SpellCostAnalyzer 对一个模块布局静态分析的结果，描述一次施法在最坏情况下的开销。
+ * 报告随法术计划一起编译并缓存，配置重载后与计划一同重新计算。
+ *
+ * @param projectiles 基础模块直接生成的投射物数量
+ * @param entities 生成的实体总数（投射物加上分裂的子弹）
+ * @param explosions 产生的爆炸数量
+ * @param tickCostMicros 估计的服务器耗时（微秒）
+ * @param complexity 模块复杂度之和
+ */
+package com.kirisame1969.weaving_infinity.core.plan;
+
+public record SpellCostReport(int projectiles, int entities, int explosions, float tickCostMicros, float complexity) {
+    // 空计划的报告
+    public static final SpellCostReport EMPTY = new SpellCostReport(0, 0, 0, 0.0f, 0.0f);
+
+    /**
+     * 检查本报告的每一项开销都不超过另一个报告
+     * @param other 另一个报告
+     * @return 是否不比另一个报告更差
+     */
+    public boolean isNoWorseThan(SpellCostReport other) {
+        return entities <= other.entities && explosions <= other.explosions
+            && tickCostMicros <= other.tickCostMicros && complexity <= other.complexity;
+    }
+}
\ No newline at end of file
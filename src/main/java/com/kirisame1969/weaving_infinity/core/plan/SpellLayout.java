@@ -0,0 +1,130 @@
+/**
+ * 法术核心的模块布局
+ *
+ * 作为物品数据组件（weaving_infinity:spell_layout）保存在法术核心上，按槽位顺序记录模块ID，空字符串表示空槽位。
+ * 组件不可变，读取时不需要复制；SpellPlanCache 以组件实例为键缓存编译结果。
+ *
+ * 存档中使用模块ID字符串列表（CODEC），网络同步时使用变长整数编码的数字ID（STREAM_CODEC），
+ * 数字ID表在登录和 /reload 时由服务器同步给客户端（见 ModuleIdMap）。
+ */
+package com.kirisame1969.weaving_infinity.core.plan;
+
+import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
+import com.kirisame1969.weaving_infinity.network.ModuleIdMap;
+import com.mojang.serialization.Codec;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record SpellLayout(List<String> modules) {
+    public static final SpellLayout EMPTY = new SpellLayout(List.of());
+
+    public static final Codec<SpellLayout> CODEC = Codec.STRING.listOf().xmap(SpellLayout::new, SpellLayout::modules);
+    public static final StreamCodec<FriendlyByteBuf, SpellLayout> STREAM_CODEC = StreamCodec.of(SpellLayout::write, SpellLayout::read);
+
+    // 网络编码中每个槽位的标记：0为空槽位，1表示后面跟随完整的模块ID，其余为数字ID加2
+    private static final int WIRE_EMPTY = 0;
+    private static final int WIRE_LITERAL = 1;
+    private static final int WIRE_NUMERIC_OFFSET = 2;
+
+    // 网络编码中完整模块ID的最大长度，与 ResourceLocation 的常见上限相当
+    private static final int MAX_LITERAL_LENGTH = 256;
+
+    public SpellLayout {
+        modules = List.copyOf(modules);
+    }
+
+    /**
+     * 是否没有任何槽位
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return modules.isEmpty();
+    }
+
+    /**
+     * 获取槽位数量（包括空槽位）
+     * @return 槽位数量
+     */
+    public int size() {
+        return modules.size();
+    }
+
+    /**
+     * 返回在指定槽位放入模块后的新布局，槽位不足时用空槽位补齐
+     * @param index 槽位索引
+     * @param moduleId 模块ID
+     * @return 新布局
+     */
+    public SpellLayout withModule(int index, String moduleId) {
+        List<String> updated = new ArrayList<>(modules);
+        while (updated.size() <= index) {
+            updated.add("");
+        }
+        updated.set(index, moduleId);
+        return new SpellLayout(updated);
+    }
+
+    /**
+     * 返回清空指定槽位后的新布局
+     * @param index 槽位索引
+     * @return 新布局，槽位不存在时返回自身
+     */
+    public SpellLayout withoutModule(int index) {
+        if (index < 0 || index >= modules.size()) {
+            return this;
+        }
+        List<String> updated = new ArrayList<>(modules);
+        updated.set(index, "");
+        return new SpellLayout(updated);
+    }
+
+    private static void write(FriendlyByteBuf buf, SpellLayout layout) {
+        // 超出最大槽位数量的部分（例如命令生成的物品）不发送，对方会拒绝解码
+        int size = Math.min(layout.modules.size(), SpellCoreItem.getMaxSlots());
+        buf.writeVarInt(size);
+        for (int i = 0; i < size; i++) {
+            String moduleId = layout.modules.get(i);
+            if (moduleId.isEmpty()) {
+                buf.writeVarInt(WIRE_EMPTY);
+                continue;
+            }
+            int numericId = ModuleIdMap.toNetwork(moduleId);
+            if (numericId >= 0) {
+                buf.writeVarInt(numericId + WIRE_NUMERIC_OFFSET);
+            } else if (moduleId.length() > MAX_LITERAL_LENGTH) {
+                // 过长的未知ID对方会拒绝解码，按空槽位发送
+                buf.writeVarInt(WIRE_EMPTY);
+            } else {
+                // 对方不认识的模块（例如已删除的数据包模块）按原样发送，避免丢失
+                buf.writeVarInt(WIRE_LITERAL);
+                buf.writeUtf(moduleId);
+            }
+        }
+    }
+
+    private static SpellLayout read(FriendlyByteBuf buf) {
+        // 槽位数量不会超过法术核心的最大槽位数量，防止恶意数据包申请过大的列表
+        int size = buf.readVarInt();
+        if (size < 0 || size > SpellCoreItem.getMaxSlots()) {
+            throw new DecoderException("Spell layout has too many slots: " + size);
+        }
+        List<String> modules = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int wire = buf.readVarInt();
+            if (wire == WIRE_EMPTY) {
+                modules.add("");
+            } else if (wire == WIRE_LITERAL) {
+                modules.add(buf.readUtf(MAX_LITERAL_LENGTH));
+            } else {
+                // 数字ID表尚未同步到最新时按空槽位处理，不断开连接
+                String moduleId = ModuleIdMap.fromNetwork(wire - WIRE_NUMERIC_OFFSET);
+                modules.add(moduleId != null ? moduleId : "");
+            }
+        }
+        return new SpellLayout(modules);
+    }
+}
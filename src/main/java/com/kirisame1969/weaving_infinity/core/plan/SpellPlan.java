@@ -0,0 +1,291 @@
+/**
+ * 已编译的法术计划
+ *
+ * 法术核心中模块布局的不可变编译结果：模块已解析为实例数组，
+ * 基础模块与修饰模块已预先拆分，法力消耗、冷却和复杂度已预先汇总，最坏情况的开销已预先分析。
+ * 相同布局的法术核心共享同一个实例（见 SpellPlanCache），执行时无需再解码NBT。
+ */
+package com.kirisame1969.weaving_infinity.core.plan;
+
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleType;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class SpellPlan {
+    // 空计划，用于没有安装任何模块的法术核心
+    public static final SpellPlan EMPTY = new SpellPlan(List.of(), new ISpellModule[0]);
+
+    // 原始布局（模块ID字符串，包含空槽位），用作驻留键
+    private final List<String> layout;
+
+    // 解析后的模块，按执行顺序排列
+    private final ISpellModule[] modules;
+    private final List<ISpellModule> moduleView;
+
+    // 预先拆分的基础模块和修饰模块
+    private final ISpellModule[] baseModules;
+    private final ISpellModule[] modifierModules;
+
+    // 第一个基础模块（用于克隆投射物），可能为null
+    private final ISpellModule primaryBase;
+
+    // 计划中所有模块标签的并集，以及按数字ID记录的模块位集
+    private final long tagMask;
+    private final long[] moduleBits;
+
+    // 汇总数值
+    private final int totalManaConsumption;
+    private final int totalCooldown;
+    private final float totalComplexity;
+
+    // 最坏情况的开销分析
+    private final SpellCostReport costReport;
+
+    // 编译时的配置版本号，配置重载后汇总数值需要重新计算
+    private final long configEpoch;
+
+    private SpellPlan(List<String> layout, ISpellModule[] modules) {
+        // 先记录版本号再读取配置，重载与编译同时发生时计划只会被视为过期
+        this.configEpoch = ModuleConfig.currentEpoch();
+        this.layout = layout;
+        this.modules = modules;
+        this.moduleView = Collections.unmodifiableList(Arrays.asList(modules));
+
+        List<ISpellModule> bases = new ArrayList<>();
+        List<ISpellModule> modifiers = new ArrayList<>();
+        int mana = 0;
+        int cooldown = 0;
+        float complexity = 0.0f;
+        long tags = 0L;
+        long[] bits = new long[(ModuleRegistry.getModuleCount() + 63) >>> 6];
+        for (ISpellModule module : modules) {
+            tags |= ModuleRegistry.getTagMask(module);
+            int numericId = ModuleRegistry.getNumericId(module);
+            if (numericId >= 0) {
+                bits[numericId >>> 6] |= 1L << numericId;
+            }
+            if (module.getModuleType() == ModuleType.BASE) {
+                bases.add(module);
+            } else {
+                modifiers.add(module);
+            }
+            mana += module.getBaseManaConsumption();
+            cooldown += module.getBaseCooldown();
+            complexity += module.getBaseComplexity();
+        }
+
+        this.baseModules = bases.toArray(new ISpellModule[0]);
+        this.modifierModules = modifiers.toArray(new ISpellModule[0]);
+        this.primaryBase = this.baseModules.length > 0 ? this.baseModules[0] : null;
+        this.tagMask = tags;
+        this.moduleBits = bits;
+        this.totalManaConsumption = mana;
+        this.totalCooldown = cooldown;
+        this.totalComplexity = complexity;
+        this.costReport = SpellCostAnalyzer.analyze(modules);
+    }
+
+    /**
+     * 编译模块布局
+     * 无法解析的模块ID（包括空槽位）会被跳过
+     * @param layout 模块ID列表
+     * @return 编译后的法术计划
+     */
+    static SpellPlan compile(List<String> layout) {
+        List<ISpellModule> resolved = new ArrayList<>(layout.size());
+        for (String moduleId : layout) {
+            ISpellModule module = ModuleRegistry.getModule(moduleId);
+            if (module != null) {
+                resolved.add(module);
+            }
+        }
+        return new SpellPlan(List.copyOf(layout), resolved.toArray(new ISpellModule[0]));
+    }
+
+    /**
+     * 从已解析的模块列表直接构建计划（不驻留）
+     * @param modules 模块列表
+     * @return 法术计划
+     */
+    public static SpellPlan of(List<ISpellModule> modules) {
+        if (modules == null || modules.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> layout = new ArrayList<>(modules.size());
+        for (ISpellModule module : modules) {
+            layout.add(module.getId().toString());
+        }
+        return new SpellPlan(List.copyOf(layout), modules.toArray(new ISpellModule[0]));
+    }
+
+    /**
+     * 获取原始布局
+     * @return 模块ID列表
+     */
+    public List<String> layout() {
+        return layout;
+    }
+
+    /**
+     * 获取模块数量
+     * @return 模块数量
+     */
+    public int size() {
+        return modules.length;
+    }
+
+    /**
+     * 是否没有任何可执行的模块
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return modules.length == 0;
+    }
+
+    /**
+     * 获取指定位置的模块
+     * @param index 模块索引
+     * @return 模块实例
+     */
+    public ISpellModule get(int index) {
+        return modules[index];
+    }
+
+    /**
+     * 获取模块的只读视图
+     * @return 模块列表
+     */
+    public List<ISpellModule> modules() {
+        return moduleView;
+    }
+
+    /**
+     * 获取基础模块数量
+     * @return 基础模块数量
+     */
+    public int baseModuleCount() {
+        return baseModules.length;
+    }
+
+    /**
+     * 获取指定位置的基础模块
+     * @param index 基础模块索引
+     * @return 基础模块
+     */
+    public ISpellModule baseModule(int index) {
+        return baseModules[index];
+    }
+
+    /**
+     * 获取修饰模块数量
+     * @return 修饰模块数量
+     */
+    public int modifierModuleCount() {
+        return modifierModules.length;
+    }
+
+    /**
+     * 获取指定位置的修饰模块
+     * @param index 修饰模块索引
+     * @return 修饰模块
+     */
+    public ISpellModule modifierModule(int index) {
+        return modifierModules[index];
+    }
+
+    /**
+     * 获取第一个基础模块
+     * @return 基础模块，如果不存在则返回null
+     */
+    public ISpellModule primaryBase() {
+        return primaryBase;
+    }
+
+    /**
+     * 获取计划的标签位掩码
+     * @return 所有模块标签的并集
+     */
+    public long tagMask() {
+        return tagMask;
+    }
+
+    /**
+     * 检查计划中是否有模块携带指定标签
+     * @param tag 模块标签
+     * @return 是否携带
+     */
+    public boolean hasTag(ModuleTag tag) {
+        return tag.isIn(tagMask);
+    }
+
+    /**
+     * 检查计划中是否包含指定数字ID的模块
+     * @param numericId 模块数字ID
+     * @return 是否包含
+     */
+    public boolean hasModule(int numericId) {
+        int word = numericId >>> 6;
+        return numericId >= 0 && word < moduleBits.length && (moduleBits[word] & (1L << numericId)) != 0;
+    }
+
+    /**
+     * 获取编译时的配置版本号
+     * @return 配置版本号
+     */
+    public long configEpoch() {
+        return configEpoch;
+    }
+
+    /**
+     * 配置重载后计划是否已过期
+     * 空计划不依赖配置，永远不会过期
+     * @return 是否需要重新编译
+     */
+    public boolean isStale() {
+        return modules.length > 0 && configEpoch != ModuleConfig.currentEpoch();
+    }
+
+    /**
+     * 获取总法力消耗
+     * @return 法力消耗值
+     */
+    public int totalManaConsumption() {
+        return totalManaConsumption;
+    }
+
+    /**
+     * 获取总冷却时间
+     * @return 冷却时间（刻）
+     */
+    public int totalCooldown() {
+        return totalCooldown;
+    }
+
+    /**
+     * 获取总复杂度
+     * @return 复杂度值
+     */
+    public float totalComplexity() {
+        return totalComplexity;
+    }
+
+    /**
+     * 获取最坏情况的开销分析
+     * @return 开销报告
+     */
+    public SpellCostReport costReport() {
+        return costReport;
+    }
+
+    @Override
+    public String toString() {
+        return "SpellPlan" + layout;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * 法术计划缓存
+ *
+ * 负责把法术核心的模块布局编译为 SpellPlan 并进行驻留：
+ * 1. 相同布局只编译一次，所有相同的法术核心共享同一个计划实例
+ * 2. 以布局组件（SpellLayout）实例（按引用）为键缓存编译结果，命中时无需比较或遍历布局
+ *
+ * 物品组件是不可变的，复制物品堆时组件实例会被共享，因此按引用缓存命中率很高；
+ * 弱引用键保证物品被回收后缓存条目随之释放；驻留表使用弱引用值，
+ * 没有任何物品或调用者再引用的计划会被回收，驻留表不会随见过的布局数量无限增长。
+ * 配置重载后，版本号过期的计划在下次访问时重新编译；
+ * 数据包模块重载后，只有引用了变化模块的计划会被丢弃。
+ */
+package com.kirisame1969.weaving_infinity.core.plan;
+
+import com.google.common.collect.MapMaker;
+import com.kirisame1969.weaving_infinity.registries.ModDataComponents;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+public final class SpellPlanCache {
+    // 布局 -> 计划 的驻留表（弱值，计划由 BY_COMPONENT 和正在使用它的调用者保持存活）
+    private static final ConcurrentMap<List<String>, SpellPlan> INTERNED = new MapMaker().weakValues().makeMap();
+
+    // 组件实例 -> 计划 的引用缓存（弱键，按引用比较）
+    private static final ConcurrentMap<SpellLayout, SpellPlan> BY_COMPONENT = new MapMaker().weakKeys().makeMap();
+
+    private SpellPlanCache() {}
+
+    /**
+     * 获取物品堆对应的法术计划
+     * @param stack 法术核心物品堆
+     * @return 法术计划，没有模块时返回 SpellPlan.EMPTY
+     */
+    public static SpellPlan forStack(ItemStack stack) {
+        return forComponent(stack.get(ModDataComponents.SPELL_LAYOUT.get()));
+    }
+
+    /**
+     * 获取布局组件对应的法术计划
+     * @param layout 布局组件，可能为null
+     * @return 法术计划，没有模块时返回 SpellPlan.EMPTY
+     */
+    public static SpellPlan forComponent(SpellLayout layout) {
+        if (layout == null || layout.isEmpty()) {
+            return SpellPlan.EMPTY;
+        }
+
+        SpellPlan plan = BY_COMPONENT.get(layout);
+        if (plan == null || plan.isStale()) {
+            plan = forLayout(layout.modules());
+            BY_COMPONENT.put(layout, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 获取布局对应的驻留计划
+     * @param layout 模块ID列表
+     * @return 法术计划
+     */
+    public static SpellPlan forLayout(List<String> layout) {
+        if (layout.isEmpty()) {
+            return SpellPlan.EMPTY;
+        }
+        SpellPlan plan = INTERNED.get(layout);
+        if (plan != null && !plan.isStale()) {
+            return plan;
+        }
+        // 未驻留或配置重载后过期时重新编译
+        return INTERNED.compute(List.copyOf(layout),
+            (key, existing) -> existing != null && !existing.isStale() ? existing : SpellPlan.compile(key));
+    }
+
+    /**
+     * 获取布局对应的计划，但不把新编译的计划加入驻留表
+     * 用于校验尚未提交的布局：已驻留的计划直接复用，否则编译一份只供调用者使用的临时计划
+     * @param layout 模块ID列表
+     * @return 法术计划
+     */
+    public static SpellPlan compileTransient(List<String> layout) {
+        if (layout.isEmpty()) {
+            return SpellPlan.EMPTY;
+        }
+        SpellPlan plan = INTERNED.get(layout);
+        if (plan != null && !plan.isStale()) {
+            return plan;
+        }
+        return SpellPlan.compile(List.copyOf(layout));
+    }
+
+    /**
+     * 清空所有缓存的计划（模块注册表或配置变化后调用）
+     */
+    public static void invalidateAll() {
+        INTERNED.clear();
+        BY_COMPONENT.clear();
+    }
+
+    /**
+     * 丢弃引用了指定模块的计划（数据包模块新增、修改或删除后调用）
+     * 布局按模块ID字符串比较，因此引用了此前不存在的模块的计划也会被丢弃
+     * @param moduleIds 发生变化的模块ID
+     * @return 丢弃的驻留计划数量
+     */
+    public static int invalidateModules(Set<String> moduleIds) {
+        if (moduleIds.isEmpty()) {
+            return 0;
+        }
+        int before = INTERNED.size();
+        INTERNED.keySet().removeIf(layout -> referencesAny(layout, moduleIds));
+        BY_COMPONENT.values().removeIf(plan -> referencesAny(plan.layout(), moduleIds));
+        return before - INTERNED.size();
+    }
+
+    private static boolean referencesAny(List<String> layout, Set<String> moduleIds) {
+        for (int i = 0; i < layout.size(); i++) {
+            if (moduleIds.contains(layout.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取已驻留的计划数量（可能包括尚未清理的已回收条目）
+     * @return 计划数量
+     */
+    public static int internedCount() {
+        return INTERNED.size();
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * 投射物碰撞粗检测
+ *
+ * 每个服务器世界一个实例，按区段（16x16x16）维护世界内实体的空间哈希，供所有法术投射物共享。
+ * 实体加入、离开世界或跨越区段时只标记为待更新，在下一次查询前只重新放置这些实体，不重建整个索引。
+ * 投射物的扫掠线段检测按原版 ProjectileUtil.getHitResultOnMoveVector 的规则进行
+ * （方块裁剪、扫掠包围盒、随存活时间增长的碰撞余量），命中结果与原版一致。
+ *
+ * 粗检测只在服务器主线程上使用，不需要同步。
+ */
+package com.kirisame1969.weaving_infinity.core.projectile;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.projectile.Projectile;
+import net.minecraft.world.level.ClipContext;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.EntityHitResult;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.entity.PartEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+public final class ProjectileBroadphase {
+    // 实体位置与包围盒之间允许的最大偏差，与原版区段存储的查询扩展量相同
+    private static final double SECTION_QUERY_INFLATE = 2.0;
+
+    // 未放入索引的实体
+    private static final long NO_SECTION = Long.MIN_VALUE;
+
+    // 每个世界的粗检测索引（弱键，世界卸载后自动释放）
+    private static final Map<ServerLevel, ProjectileBroadphase> BROADPHASES = new WeakHashMap<>();
+
+    private final ServerLevel level;
+
+    // 区段 -> 区段内的实体
+    private final Long2ObjectMap<List<Entity>> sections = new Long2ObjectOpenHashMap<>();
+
+    // 实体 -> 所在区段
+    private final Object2LongOpenHashMap<Entity> entitySections = new Object2LongOpenHashMap<>();
+
+    // 等待重新放置的实体
+    private final ReferenceLinkedOpenHashSet<Entity> dirty = new ReferenceLinkedOpenHashSet<>();
+
+    // 统计计数器
+    private long queryCount = 0L;
+    private long vanillaQueryCount = 0L;
+    private long sectionsVisited = 0L;
+    private long candidatesTested = 0L;
+    private long relocations = 0L;
+
+    private ProjectileBroadphase(ServerLevel level) {
+        this.level = level;
+        this.entitySections.defaultReturnValue(NO_SECTION);
+        // 首次使用时放入世界内的所有实体，之后只做增量更新
+        for (Entity entity : level.getAllEntities()) {
+            place(entity);
+        }
+    }
+
+    /**
+     * 获取世界对应的粗检测索引，不存在时创建
+     * @param level 服务器世界
+     * @return 粗检测索引
+     */
+    public static ProjectileBroadphase forLevel(ServerLevel level) {
+        return BROADPHASES.computeIfAbsent(level, ProjectileBroadphase::new);
+    }
+
+    /**
+     * 获取世界对应的粗检测索引，不存在时不创建
+     * @param level 服务器世界
+     * @return 粗检测索引，可能为null
+     */
+    public static ProjectileBroadphase getIfPresent(ServerLevel level) {
+        return BROADPHASES.get(level);
+    }
+
+    /**
+     * 移除世界对应的粗检测索引
+     * @param level 服务器世界
+     */
+    public static void remove(ServerLevel level) {
+        BROADPHASES.remove(level);
+    }
+
+    /**
+     * 获取所有世界及其粗检测索引
+     * @return 世界到索引的映射（快照）
+     */
+    public static Map<ServerLevel, ProjectileBroadphase> all() {
+        return new HashMap<>(BROADPHASES);
+    }
+
+    /**
+     * 标记实体需要重新放置（加入、离开世界或跨越区段时调用）
+     * @param entity 实体
+     */
+    public void markDirty(Entity entity) {
+        dirty.add(entity);
+    }
+
+    /**
+     * 记录一次未经过粗检测的原版查询，用于比较查询次数
+     */
+    public void recordVanillaQuery() {
+        vanillaQueryCount++;
+    }
+
+    /**
+     * 计算投射物本刻的命中结果，与 ProjectileUtil.getHitResultOnMoveVector 一致
+     * @param projectile 投射物
+     * @param filter 可命中实体的过滤条件
+     * @return 命中结果，未命中时类型为 MISS
+     */
+    public HitResult getHitResultOnMoveVector(Projectile projectile, Predicate<Entity> filter) {
+        Vec3 delta = projectile.getDeltaMovement();
+        Vec3 start = projectile.position();
+        Vec3 end = start.add(delta);
+
+        HitResult hitResult = level.clip(new ClipContext(start, end, ClipContext.Block.COLLIDER, ClipContext.Fluid.NONE, projectile));
+        if (hitResult.getType() != HitResult.Type.MISS) {
+            end = hitResult.getLocation();
+        }
+
+        // 碰撞余量随存活时间增长，与原版 ProjectileUtil.computeMargin 相同
+        float margin = Math.max(0.0F, Math.min(0.3F, (float) (projectile.tickCount - 2) / 20.0F));
+        AABB sweep = projectile.getBoundingBox().expandTowards(delta).inflate(1.0);
+        EntityHitResult entityHit = getEntityHitResult(projectile, start, end, sweep, filter, margin);
+        return entityHit != null ? entityHit : hitResult;
+    }
+
+    private EntityHitResult getEntityHitResult(Entity except, Vec3 start, Vec3 end, AABB area, Predicate<Entity> filter, float margin) {
+        flushDirty();
+        queryCount++;
+
+        double nearest = Double.MAX_VALUE;
+        Entity hit = null;
+
+        int minX = SectionPos.posToSectionCoord(area.minX - SECTION_QUERY_INFLATE);
+        int minY = SectionPos.posToSectionCoord(area.minY - SECTION_QUERY_INFLATE);
+        int minZ = SectionPos.posToSectionCoord(area.minZ - SECTION_QUERY_INFLATE);
+        int maxX = SectionPos.posToSectionCoord(area.maxX + SECTION_QUERY_INFLATE);
+        int maxY = SectionPos.posToSectionCoord(area.maxY + SECTION_QUERY_INFLATE);
+        int maxZ = SectionPos.posToSectionCoord(area.maxZ + SECTION_QUERY_INFLATE);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    List<Entity> entities = sections.get(SectionPos.asLong(x, y, z));
+                    if (entities == null) {
+                        continue;
+                    }
+                    sectionsVisited++;
+                    for (int i = 0; i < entities.size(); i++) {
+                        Entity entity = entities.get(i);
+                        if (!entity.getBoundingBox().intersects(area)) {
+                            continue;
+                        }
+                        if (entity != except && filter.test(entity)) {
+                            double distance = clipDistance(entity, start, end, margin);
+                            if (distance < nearest) {
+                                nearest = distance;
+                                hit = entity;
+                            }
+                        }
+                        // 多部件实体（如末影龙）的部件不在区段中，与原版一样随本体一起检测
+                        if (entity.isMultipartEntity()) {
+                            for (PartEntity<?> part : entity.getParts()) {
+                                if (part != except && part.getBoundingBox().intersects(area) && filter.test(part)) {
+                                    double distance = clipDistance(part, start, end, margin);
+                                    if (distance < nearest) {
+                                        nearest = distance;
+                                        hit = part;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return hit != null ? new EntityHitResult(hit) : null;
+    }
+
+    private double clipDistance(Entity entity, Vec3 start, Vec3 end, float margin) {
+        candidatesTested++;
+        Optional<Vec3> clip = entity.getBoundingBox().inflate(margin).clip(start, end);
+        return clip.isPresent() ? start.distanceToSqr(clip.get()) : Double.MAX_VALUE;
+    }
+
+    /**
+     * 重新放置所有被标记的实体
+     */
+    private void flushDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        for (Entity entity : dirty) {
+            unplace(entity);
+            // 只保留仍在本世界中的实体
+            if (!entity.isRemoved() && level.getEntity(entity.getId()) == entity) {
+                place(entity);
+            }
+            relocations++;
+        }
+        dirty.clear();
+    }
+
+    private void place(Entity entity) {
+        long section = SectionPos.asLong(entity.blockPosition());
+        sections.computeIfAbsent(section, key -> new ArrayList<>()).add(entity);
+        entitySections.put(entity, section);
+    }
+
+    private void unplace(Entity entity) {
+        long section = entitySections.removeLong(entity);
+        if (section == NO_SECTION) {
+            return;
+        }
+        List<Entity> entities = sections.get(section);
+        if (entities != null && entities.remove(entity) && entities.isEmpty()) {
+            sections.remove(section);
+        }
+    }
+
+    /**
+     * 获取经过粗检测的查询次数
+     * @return 查询次数
+     */
+    public long getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * 获取未经过粗检测的原版查询次数
+     * @return 查询次数
+     */
+    public long getVanillaQueryCount() {
+        return vanillaQueryCount;
+    }
+
+    /**
+     * 获取查询访问的非空区段总数
+     * @return 区段数量
+     */
+    public long getSectionsVisited() {
+        return sectionsVisited;
+    }
+
+    /**
+     * 获取进行精确线段检测的候选实体总数
+     * @return 实体数量
+     */
+    public long getCandidatesTested() {
+        return candidatesTested;
+    }
+
+    /**
+     * 获取增量更新中重新放置的实体总数
+     * @return 实体数量
+     */
+    public long getRelocations() {
+        return relocations;
+    }
+
+    /**
+     * 获取索引中的实体数量
+     * @return 实体数量
+     */
+    public int getIndexedCount() {
+        return entitySections.size();
+    }
+}
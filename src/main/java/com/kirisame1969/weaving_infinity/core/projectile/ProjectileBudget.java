@@ -0,0 +1,204 @@
+/**
+ * 投射物预算
+ *
+ * 每个服务器世界一个实例，记录当前存活的法术投射物，按施法者和世界两个维度计数。
+ * 生成新投射物前需要先申请预算：超出配置的上限时，根据策略拒绝生成或移除最早生成的投射物。
+ * 计数基于插入有序的集合，计数、登记、注销和找出最早的投射物都是O(1)操作。
+ *
+ * 预算只在服务器主线程上使用，不需要同步。
+ */
+package com.kirisame1969.weaving_infinity.core.projectile;
+
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import net.minecraft.server.level.ServerLevel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+public final class ProjectileBudget {
+    // 超出上限时移除最早的投射物
+    public static final String POLICY_EVICT_OLDEST = "evict_oldest";
+    // 超出上限时拒绝生成
+    public static final String POLICY_REFUSE = "refuse";
+
+    // 每个世界的预算（弱键，世界卸载后自动释放）
+    private static final Map<ServerLevel, ProjectileBudget> BUDGETS = new WeakHashMap<>();
+
+    // 世界内所有存活的投射物，按生成顺序排列
+    private final LinkedHashSet<CustomFireball> levelProjectiles = new LinkedHashSet<>();
+
+    // 每个施法者的存活投射物，按生成顺序排列
+    private final Map<UUID, LinkedHashSet<CustomFireball>> byCaster = new HashMap<>();
+
+    // 统计计数器
+    private long refusedCount = 0L;
+    private long evictedCount = 0L;
+    private long expiredCount = 0L;
+
+    private ProjectileBudget() {}
+
+    /**
+     * 获取世界对应的投射物预算
+     * @param level 服务器世界
+     * @return 预算实例
+     */
+    public static ProjectileBudget forLevel(ServerLevel level) {
+        return BUDGETS.computeIfAbsent(level, l -> new ProjectileBudget());
+    }
+
+    /**
+     * 移除世界对应的投射物预算
+     * @param level 服务器世界
+     */
+    public static void remove(ServerLevel level) {
+        BUDGETS.remove(level);
+    }
+
+    /**
+     * 获取所有世界及其预算
+     * @return 世界到预算的映射（快照）
+     */
+    public static Map<ServerLevel, ProjectileBudget> all() {
+        return new HashMap<>(BUDGETS);
+    }
+
+    /**
+     * 申请生成一个新投射物
+     * 超出上限时按配置的策略处理：移除最早的投射物腾出空间，或拒绝生成
+     * @param caster 施法者UUID
+     * @return 是否允许生成
+     */
+    public boolean admit(UUID caster) {
+        ModuleConfig.ProjectileBudgetConfig config = ModuleConfig.getInstance().projectileBudget;
+        boolean evict = !POLICY_REFUSE.equals(config.overflowPolicy);
+
+        LinkedHashSet<CustomFireball> owned = byCaster.get(caster);
+        if (owned != null && owned.size() >= config.maxPerCaster) {
+            if (!evict) {
+                refusedCount++;
+                return false;
+            }
+            evictOldest(owned, owned.size() - config.maxPerCaster + 1);
+        }
+
+        if (levelProjectiles.size() >= config.maxPerLevel) {
+            if (!evict) {
+                refusedCount++;
+                return false;
+            }
+            evictOldest(levelProjectiles, levelProjectiles.size() - config.maxPerLevel + 1);
+        }
+        return true;
+    }
+
+    /**
+     * 登记一个已加入世界的投射物
+     * @param projectile 投射物
+     */
+    public void track(CustomFireball projectile) {
+        if (levelProjectiles.add(projectile)) {
+            UUID caster = projectile.getCasterId();
+            if (caster != null) {
+                byCaster.computeIfAbsent(caster, id -> new LinkedHashSet<>()).add(projectile);
+            }
+        }
+    }
+
+    /**
+     * 注销一个已离开世界的投射物
+     * @param projectile 投射物
+     */
+    public void untrack(CustomFireball projectile) {
+        if (levelProjectiles.remove(projectile)) {
+            UUID caster = projectile.getCasterId();
+            if (caster != null) {
+                LinkedHashSet<CustomFireball> owned = byCaster.get(caster);
+                if (owned != null && owned.remove(projectile) && owned.isEmpty()) {
+                    byCaster.remove(caster);
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录一次因超时或超出射程被移除的投射物
+     */
+    public void recordExpired() {
+        expiredCount++;
+    }
+
+    private void evictOldest(Collection<CustomFireball> projectiles, int count) {
+        for (int i = 0; i < count && !projectiles.isEmpty(); i++) {
+            Iterator<CustomFireball> iterator = projectiles.iterator();
+            CustomFireball oldest = iterator.next();
+            untrack(oldest);
+            oldest.discard();
+            evictedCount++;
+        }
+    }
+
+    /**
+     * 获取世界内存活的投射物数量
+     * @return 投射物数量
+     */
+    public int getLiveCount() {
+        return levelProjectiles.size();
+    }
+
+    /**
+     * 获取指定施法者存活的投射物数量
+     * @param caster 施法者UUID
+     * @return 投射物数量
+     */
+    public int getLiveCount(UUID caster) {
+        LinkedHashSet<CustomFireball> owned = byCaster.get(caster);
+        return owned != null ? owned.size() : 0;
+    }
+
+    /**
+     * 获取存活投射物最多的施法者
+     * @param limit 最多返回的数量
+     * @return 施法者及其投射物数量，按数量降序排列
+     */
+    public List<Map.Entry<UUID, Integer>> getTopCasters(int limit) {
+        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>(byCaster.size());
+        for (Map.Entry<UUID, LinkedHashSet<CustomFireball>> entry : byCaster.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue().size()));
+        }
+        entries.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * 获取因超出上限被拒绝的生成次数
+     * @return 拒绝次数
+     */
+    public long getRefusedCount() {
+        return refusedCount;
+    }
+
+    /**
+     * 获取因超出上限被移除的投射物数量
+     * @return 移除数量
+     */
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * 获取因超时或超出射程被移除的投射物数量
+     * @return 移除数量
+     */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+}
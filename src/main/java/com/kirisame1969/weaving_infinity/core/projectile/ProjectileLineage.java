@@ -0,0 +1,124 @@
+/**
+ * 投射物谱系
+ *
+ * 把法术投射物的来源压缩为一个int，作为同步实体数据保存在投射物上，取代原来的字符串实体标签：
+ * - 第0~3位：分裂代数，施法直接生成的投射物为0，每分裂一次加1
+ * - 第4~7位：标记位，例如是否由法术计划生成
+ * - 第8~31位：根施法ID，同一次施法及其所有分裂后代相同
+ *
+ * 撞击时只需位运算即可判断是否触发修饰效果，不再逐个比较字符串集合。
+ */
+package com.kirisame1969.weaving_infinity.core.projectile;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class ProjectileLineage {
+    // 没有谱系的投射物（非本模组的法术生成）
+    public static final int NONE = 0;
+
+    // 代数可以表示的最大值
+    public static final int MAX_GENERATION = 0xF;
+
+    // 由法术计划生成，撞击时按计划分派修饰效果
+    public static final int FLAG_SPELL = 1 << 4;
+
+    // 旧版本使用的实体标签，只用于迁移存档中的投射物
+    public static final String LEGACY_SPELL_TAG = "weaving_infinity_fireball";
+    public static final String LEGACY_SPLIT_TAG = "weaving_infinity_split_fireball";
+
+    private static final int GENERATION_MASK = 0xF;
+    private static final int FLAGS_MASK = 0xF0;
+    private static final int ROOT_SHIFT = 8;
+    private static final int ROOT_MASK = 0xFFFFFF;
+
+    // 下一个根施法ID（只取低24位，0保留）
+    private static final AtomicInteger NEXT_ROOT = new AtomicInteger();
+
+    private ProjectileLineage() {}
+
+    /**
+     * 为一次新的施法创建谱系
+     * @return 代数为0、带有法术标记的谱系
+     */
+    public static int newCast() {
+        int root;
+        do {
+            root = NEXT_ROOT.incrementAndGet() & ROOT_MASK;
+        } while (root == 0);
+        return of(0, root, FLAG_SPELL);
+    }
+
+    /**
+     * 组合谱系
+     * @param generation 分裂代数，超出范围时截断到 MAX_GENERATION
+     * @param rootId 根施法ID（低24位有效）
+     * @param flags 标记位
+     * @return 谱系
+     */
+    public static int of(int generation, int rootId, int flags) {
+        return Math.min(Math.max(generation, 0), MAX_GENERATION)
+            | (flags & FLAGS_MASK)
+            | (rootId & ROOT_MASK) << ROOT_SHIFT;
+    }
+
+    /**
+     * 获取分裂出的子投射物的谱系
+     * 根施法ID和标记位保持不变，代数加1（不超过 MAX_GENERATION）
+     * @param lineage 父投射物的谱系
+     * @return 子投射物的谱系
+     */
+    public static int child(int lineage) {
+        return of(generation(lineage) + 1, rootId(lineage), lineage);
+    }
+
+    /**
+     * 获取分裂代数
+     * @param lineage 谱系
+     * @return 代数
+     */
+    public static int generation(int lineage) {
+        return lineage & GENERATION_MASK;
+    }
+
+    /**
+     * 获取根施法ID
+     * @param lineage 谱系
+     * @return 根施法ID，没有谱系时为0
+     */
+    public static int rootId(int lineage) {
+        return lineage >>> ROOT_SHIFT & ROOT_MASK;
+    }
+
+    /**
+     * 检查是否带有标记
+     * @param lineage 谱系
+     * @param flag 标记位
+     * @return 是否带有
+     */
+    public static boolean hasFlag(int lineage, int flag) {
+        return (lineage & flag) != 0;
+    }
+
+    /**
+     * 撞击时是否触发修饰效果：由法术计划生成，且代数小于配置的最大分裂代数
+     * @param lineage 谱系
+     * @param maxGenerations 最大分裂代数
+     * @return 是否触发
+     */
+    public static boolean triggersOnHit(int lineage, int maxGenerations) {
+        return hasFlag(lineage, FLAG_SPELL) && generation(lineage) < maxGenerations;
+    }
+
+    /**
+     * 从旧版本的实体标签推导谱系
+     * @param spell 是否带有法术标签
+     * @param split 是否带有分裂标签
+     * @return 谱系，不是法术投射物时返回 NONE
+     */
+    public static int fromLegacyTags(boolean spell, boolean split) {
+        if (!spell) {
+            return NONE;
+        }
+        return split ? of(1, 0, FLAG_SPELL) : of(0, 0, FLAG_SPELL);
+    }
+}
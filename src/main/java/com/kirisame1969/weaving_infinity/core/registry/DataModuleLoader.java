@@ -0,0 +1,257 @@
+/**
+ * 数据包模块加载器
+ *
+ * 从数据包的 data/<命名空间>/weaving_infinity/modules/*.json 读取模块定义（见 DataModuleDefinition），
+ * 文件路径即模块ID，例如 data/examplepack/weaving_infinity/modules/heavy_fireball.json
+ * 定义模块 examplepack:heavy_fireball。
+ *
+ * 所有文件在后台执行器上并行读取和解析，服务器主线程只负责安装结果。
+ * 加载器记录每个文件内容的哈希，/reload 时内容未变化的文件不再解析，沿用上次创建的模块实例；
+ * 只有新增、修改或删除的模块会使引用它们的法术计划失效。
+ */
+package com.kirisame1969.weaving_infinity.core.registry;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.module.modules.data.DataDrivenModule;
+import com.kirisame1969.weaving_infinity.module.modules.data.DataModuleDefinition;
+import net.minecraft.resources.FileToIdConverter;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.PreparableReloadListener;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.profiling.ProfilerFiller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public final class DataModuleLoader implements PreparableReloadListener {
+    public static final DataModuleLoader INSTANCE = new DataModuleLoader();
+
+    private static final FileToIdConverter LISTER = FileToIdConverter.json("weaving_infinity/modules");
+    private static final Gson GSON = new Gson();
+
+    // 模块ID -> 上次加载的结果，只在服务器主线程上替换
+    private volatile Map<ResourceLocation, Loaded> loaded = Map.of();
+
+    // 客户端是否安装了远程服务器同步的数据包模块（仅客户端）
+    private static volatile boolean remoteInstalled = false;
+
+    private DataModuleLoader() {}
+
+    @Override
+    public CompletableFuture<Void> reload(PreparationBarrier barrier, ResourceManager resourceManager,
+                                          ProfilerFiller preparationsProfiler, ProfilerFiller reloadProfiler,
+                                          Executor backgroundExecutor, Executor gameExecutor) {
+        Map<ResourceLocation, Loaded> previous = loaded;
+        long startNanos = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> LISTER.listMatchingResources(resourceManager), backgroundExecutor)
+            .thenCompose(resources -> {
+                // 每个文件一个后台任务，并行读取、计算哈希和解析
+                List<CompletableFuture<Prepared>> tasks = new ArrayList<>(resources.size());
+                for (Map.Entry<ResourceLocation, Resource> entry : resources.entrySet()) {
+                    ResourceLocation moduleId = LISTER.fileToId(entry.getKey());
+                    Loaded last = previous.get(moduleId);
+                    tasks.add(CompletableFuture.supplyAsync(
+                        () -> prepare(moduleId, entry.getKey(), entry.getValue(), last), backgroundExecutor));
+                }
+                return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                    .thenApply(ignored -> tasks.stream().map(CompletableFuture::join).toList());
+            })
+            .thenCompose(barrier::wait)
+            .thenAcceptAsync(prepared -> apply(prepared, startNanos), gameExecutor);
+    }
+
+    @Override
+    public String getName() {
+        return "WeavingInfinity data modules";
+    }
+
+    /**
+     * 读取单个文件（后台线程）
+     * 内容哈希与上次相同时不解析，直接标记为未变化
+     */
+    private static Prepared prepare(ResourceLocation moduleId, ResourceLocation file, Resource resource, Loaded last) {
+        byte[] bytes;
+        try (InputStream stream = resource.open()) {
+            bytes = stream.readAllBytes();
+        } catch (IOException e) {
+            return Prepared.failed(moduleId, null, List.of("cannot read " + file + ": " + e.getMessage()));
+        }
+
+        HashCode hash = Hashing.sha256().hashBytes(bytes);
+        if (last != null && last.hash.equals(hash)) {
+            return new Prepared(moduleId, hash, null, List.of(), true);
+        }
+
+        DataModuleDefinition definition;
+        try {
+            definition = GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), DataModuleDefinition.class);
+        } catch (JsonParseException e) {
+            return Prepared.failed(moduleId, hash, List.of(String.valueOf(e.getMessage())));
+        }
+        if (definition == null) {
+            return Prepared.failed(moduleId, hash, List.of("file is empty"));
+        }
+        return new Prepared(moduleId, hash, definition, definition.validate(), false);
+    }
+
+    /**
+     * 安装解析结果（服务器主线程）
+     */
+    private void apply(List<Prepared> preparedFiles, long startNanos) {
+        Map<ResourceLocation, Loaded> previous = loaded;
+        Map<ResourceLocation, Loaded> next = new LinkedHashMap<>();
+        Set<String> changed = new HashSet<>();
+        int parsed = 0;
+        int reused = 0;
+
+        for (Prepared prepared : preparedFiles) {
+            Loaded last = previous.get(prepared.moduleId);
+            if (prepared.unchanged && last != null) {
+                next.put(prepared.moduleId, last);
+                reused++;
+                continue;
+            }
+            parsed++;
+            changed.add(prepared.moduleId.toString());
+            next.put(prepared.moduleId, new Loaded(prepared.hash, create(prepared)));
+        }
+
+        // 已被删除的文件
+        for (ResourceLocation moduleId : previous.keySet()) {
+            if (!next.containsKey(moduleId)) {
+                changed.add(moduleId.toString());
+            }
+        }
+
+        loaded = Map.copyOf(next);
+        Map<String, ISpellModule> modules = new LinkedHashMap<>();
+        for (Map.Entry<ResourceLocation, Loaded> entry : next.entrySet()) {
+            if (entry.getValue().module != null) {
+                modules.put(entry.getKey().toString(), entry.getValue().module);
+            }
+        }
+        int rejected = ModuleRegistry.installDataModules(modules);
+        int invalidated = SpellPlanCache.invalidateModules(changed);
+
+        WeavingInfinity.LOGGER.info("Loaded {} data modules ({} parsed, {} unchanged, {} changed, {} rejected, {} plans invalidated, {}/{} tag bits in use) in {} ms",
+            modules.size() - rejected, parsed, reused, changed.size(), rejected, invalidated,
+            ModuleTag.usedBitCount(), ModuleTag.MAX_TAGS, (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+
+    /**
+     * 丢弃上次加载的结果并卸载所有数据包模块（服务器停止时调用）
+     * 下一个世界的 /reload 会重新解析所有文件
+     */
+    public void reset() {
+        loaded = Map.of();
+        ModuleRegistry.clearDataModules();
+    }
+
+    /**
+     * 根据解析结果创建模块，失败时返回null
+     */
+    private static ISpellModule create(Prepared prepared) {
+        if (!prepared.errors.isEmpty()) {
+            WeavingInfinity.LOGGER.error("Invalid data module {}: {}", prepared.moduleId, prepared.errors);
+            return null;
+        }
+        return instantiate(prepared.moduleId, prepared.definition);
+    }
+
+    /**
+     * 根据已校验的定义创建模块，父模块无效时返回null
+     * 标签不在这里驻留，安装时由 ModuleRegistry 随数据包模块整体重新分配
+     * @param moduleId 模块ID
+     * @param definition 模块定义
+     * @return 模块实例
+     */
+    private static ISpellModule instantiate(ResourceLocation moduleId, DataModuleDefinition definition) {
+        ISpellModule parent = ModuleRegistry.getModule(definition.parent);
+        if (parent == null || parent instanceof DataDrivenModule) {
+            WeavingInfinity.LOGGER.error("Data module {} has unknown or data-defined parent {}", moduleId, definition.parent);
+            return null;
+        }
+        return new DataDrivenModule(moduleId, parent, definition);
+    }
+
+    /**
+     * 获取当前安装的数据包模块定义，用于同步给客户端
+     * @return 模块ID -> 模块定义
+     */
+    public static Map<ResourceLocation, DataModuleDefinition> installedDefinitions() {
+        Map<ResourceLocation, DataModuleDefinition> definitions = new LinkedHashMap<>();
+        for (ISpellModule module : ModuleRegistry.getDataModules().values()) {
+            if (module instanceof DataDrivenModule dataModule) {
+                definitions.put(dataModule.getId(), dataModule.getDefinition());
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * 安装服务器同步的数据包模块定义（客户端，远程服务器）
+     * 定义经过与服务器相同的校验和创建流程，客户端无法创建的模块在提示框中显示为未知模块
+     * @param definitions 模块ID -> 模块定义
+     */
+    public static void installRemote(Map<ResourceLocation, DataModuleDefinition> definitions) {
+        Map<String, ISpellModule> modules = new LinkedHashMap<>();
+        for (Map.Entry<ResourceLocation, DataModuleDefinition> entry : definitions.entrySet()) {
+            List<String> errors = entry.getValue().validate();
+            if (!errors.isEmpty()) {
+                WeavingInfinity.LOGGER.error("Invalid data module {} from server: {}", entry.getKey(), errors);
+                continue;
+            }
+            ISpellModule module = instantiate(entry.getKey(), entry.getValue());
+            if (module != null) {
+                modules.put(entry.getKey().toString(), module);
+            }
+        }
+        ModuleRegistry.installDataModules(modules);
+        SpellPlanCache.invalidateAll();
+        remoteInstalled = true;
+    }
+
+    /**
+     * 卸载服务器同步的数据包模块（客户端断开连接时调用）
+     * 没有安装过远程模块时（例如单人游戏）不做任何事，内置服务器的模块由它自己在停止时卸载
+     */
+    public static void clearRemote() {
+        if (!remoteInstalled) {
+            return;
+        }
+        remoteInstalled = false;
+        ModuleRegistry.clearDataModules();
+        SpellPlanCache.invalidateAll();
+    }
+
+    /**
+     * 后台线程的解析结果
+     */
+    private record Prepared(ResourceLocation moduleId, HashCode hash, DataModuleDefinition definition,
+                            List<String> errors, boolean unchanged) {
+        static Prepared failed(ResourceLocation moduleId, HashCode hash, List<String> errors) {
+            return new Prepared(moduleId, hash, null, errors, false);
+        }
+    }
+
+    /**
+     * 已加载的文件：内容哈希和创建的模块（无效的文件为null）
+     */
+    private record Loaded(HashCode hash, ISpellModule module) {}
+}
@@ -0,0 +1,211 @@
+/**
+ * 模块ID前缀索引
+ *
+ * 在注册表冻结和安装数据包模块时构建的不可变索引，用于命令参数的解析和自动补全：
+ * 1. 所有可接受的输入（完整ID，以及本模组命名空间下省略命名空间的路径）直接映射到规范的模块ID
+ * 2. 按完整ID和按路径各保存一个有序数组，前缀查询只需二分查找后顺序扫描
+ * 3. 前缀匹配不足时按子序列进行模糊匹配（如 "fbl" 匹配 "fireball"），匹配越紧凑排名越靠前
+ *
+ * 所有查询的结果数量都有上限，输入时不会为每个已注册模块解析 ResourceLocation 或分配字符串。
+ */
+package com.kirisame1969.weaving_infinity.core.registry;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ModuleIdIndex {
+    public static final ModuleIdIndex EMPTY = new ModuleIdIndex(List.of());
+
+    // 启用模糊匹配的最短输入长度，更短的输入几乎能匹配所有模块
+    private static final int MIN_FUZZY_LENGTH = 2;
+
+    // 默认命名空间的前缀，此命名空间下的模块可以省略命名空间输入
+    private static final String DEFAULT_PREFIX = WeavingInfinity.MODID + ":";
+
+    // 按完整ID排序的条目
+    private final Entry[] byId;
+    private final String[] idKeys;
+
+    // 按路径排序的条目
+    private final Entry[] byPath;
+    private final String[] pathKeys;
+
+    // 可接受的输入 -> 规范模块ID
+    private final Map<String, String> canonical;
+
+    /**
+     * 从模块ID集合构建索引
+     * @param moduleIds 模块ID
+     */
+    public ModuleIdIndex(Collection<String> moduleIds) {
+        List<Entry> entries = new ArrayList<>(moduleIds.size());
+        Map<String, String> inputs = new HashMap<>(moduleIds.size() * 2);
+        for (String id : moduleIds) {
+            int colon = id.indexOf(':');
+            String path = colon >= 0 ? id.substring(colon + 1) : id;
+            boolean defaultNamespace = id.startsWith(DEFAULT_PREFIX);
+            entries.add(new Entry(id, path, defaultNamespace ? path : id));
+            inputs.put(id, id);
+            if (defaultNamespace) {
+                inputs.putIfAbsent(path, id);
+            }
+        }
+
+        this.byId = entries.toArray(new Entry[0]);
+        Arrays.sort(byId, Comparator.comparing(Entry::id));
+        this.idKeys = new String[byId.length];
+        for (int i = 0; i < byId.length; i++) {
+            idKeys[i] = byId[i].id;
+        }
+
+        this.byPath = entries.toArray(new Entry[0]);
+        Arrays.sort(byPath, Comparator.comparing(Entry::path).thenComparing(Entry::id));
+        this.pathKeys = new String[byPath.length];
+        for (int i = 0; i < byPath.length; i++) {
+            pathKeys[i] = byPath[i].path;
+        }
+
+        this.canonical = Map.copyOf(inputs);
+    }
+
+    /**
+     * 把命令中输入的模块ID转换为规范ID
+     * @param input 输入的模块ID，可以省略本模组的命名空间
+     * @return 规范ID；输入不对应任何已注册模块时，省略命名空间的输入补全为本模组命名空间
+     */
+    public String canonicalId(String input) {
+        String id = canonical.get(input);
+        if (id != null) {
+            return id;
+        }
+        return input.indexOf(':') >= 0 ? input : DEFAULT_PREFIX + input;
+    }
+
+    /**
+     * 查询补全建议
+     * 输入包含命名空间时按完整ID匹配并建议完整ID；否则按路径和完整ID匹配，
+     * 本模组的模块建议路径，其他模组的模块建议完整ID。前缀匹配优先，不足上限时追加模糊匹配。
+     * @param input 已输入的内容（小写）
+     * @param limit 最多返回的建议数量
+     * @return 建议文本
+     */
+    public List<String> suggest(String input, int limit) {
+        List<String> results = new ArrayList<>(Math.min(limit, 16));
+        if (limit <= 0) {
+            return results;
+        }
+        boolean qualified = input.indexOf(':') >= 0;
+        if (qualified) {
+            collectPrefix(byId, idKeys, input, limit, true, results);
+        } else {
+            collectPrefix(byPath, pathKeys, input, limit, false, results);
+            collectPrefix(byId, idKeys, input, limit, false, results);
+        }
+        if (results.size() < limit && input.length() >= MIN_FUZZY_LENGTH) {
+            collectFuzzy(input, limit, qualified, results);
+        }
+        return results;
+    }
+
+    /**
+     * 获取索引中的模块数量
+     * @return 模块数量
+     */
+    public int size() {
+        return byId.length;
+    }
+
+    private static void collectPrefix(Entry[] entries, String[] keys, String prefix, int limit, boolean qualified, List<String> results) {
+        int start = lowerBound(keys, prefix);
+        for (int i = start; i < keys.length && results.size() < limit && keys[i].startsWith(prefix); i++) {
+            addUnique(results, qualified ? entries[i].id : entries[i].suggestion);
+        }
+    }
+
+    private void collectFuzzy(String input, int limit, boolean qualified, List<String> results) {
+        // 只保留得分最低的若干个模糊匹配，按得分插入排序
+        int capacity = limit - results.size();
+        Entry[] best = new Entry[capacity];
+        int[] bestScores = new int[capacity];
+        int count = 0;
+        for (Entry entry : byId) {
+            String candidate = qualified ? entry.id : entry.path;
+            int score = subsequenceScore(input, candidate);
+            if (score < 0 || candidate.startsWith(input)) {
+                continue;
+            }
+            if (count == capacity && score >= bestScores[count - 1]) {
+                continue;
+            }
+            int position = count < capacity ? count++ : count - 1;
+            while (position > 0 && bestScores[position - 1] > score) {
+                best[position] = best[position - 1];
+                bestScores[position] = bestScores[position - 1];
+                position--;
+            }
+            best[position] = entry;
+            bestScores[position] = score;
+        }
+        for (int i = 0; i < count && results.size() < limit; i++) {
+            addUnique(results, qualified ? best[i].id : best[i].suggestion);
+        }
+    }
+
+    /**
+     * 计算子序列匹配的得分
+     * @param query 查询
+     * @param candidate 候选
+     * @return 首个匹配字符的位置加上匹配字符之间的间隔，不匹配时返回-1
+     */
+    private static int subsequenceScore(String query, String candidate) {
+        int score = 0;
+        int last = -1;
+        int position = 0;
+        for (int i = 0; i < query.length(); i++) {
+            int found = candidate.indexOf(query.charAt(i), position);
+            if (found < 0) {
+                return -1;
+            }
+            score += last < 0 ? found : found - last - 1;
+            last = found;
+            position = found + 1;
+        }
+        return score;
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void addUnique(List<String> results, String suggestion) {
+        // 结果数量有上限，线性查重即可
+        if (!results.contains(suggestion)) {
+            results.add(suggestion);
+        }
+    }
+
+    /**
+     * 索引条目
+     * @param id 完整模块ID
+     * @param path 模块ID的路径部分
+     * @param suggestion 不带命名空间输入时的建议文本
+     */
+    private record Entry(String id, String path, String suggestion) {}
+}
@@ -0,0 +1,71 @@
+/**
+ * 模块索引读取器
+ *
+ * 读取编译时由注解处理器生成的模块索引（META-INF/weaving_infinity/modules.index）。
+ * 本模组和每个附属模组的jar中各有一份索引，类加载器能找到的所有索引都会被读取。
+ * 读取索引只解析文本，不加载任何模块类。
+ */
+package com.kirisame1969.weaving_infinity.core.registry;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+final class ModuleIndex {
+    static final String PATH = "META-INF/weaving_infinity/modules.index";
+
+    private ModuleIndex() {}
+
+    /**
+     * 读取类加载器可见的所有模块索引
+     * @param loader 类加载器
+     * @return 索引条目，按读取顺序排列
+     */
+    static List<Entry> load(ClassLoader loader) {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = loader.getResources(PATH);
+            while (resources.hasMoreElements()) {
+                read(resources.nextElement(), entries);
+            }
+        } catch (IOException e) {
+            WeavingInfinity.LOGGER.error("Failed to list spell module indexes: {}", e.getMessage());
+        }
+        return entries;
+    }
+
+    private static void read(URL url, List<Entry> entries) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int separator = line.indexOf(' ');
+                if (separator <= 0) {
+                    WeavingInfinity.LOGGER.warn("Malformed line in spell module index {}: {}", url, line);
+                    continue;
+                }
+                entries.add(new Entry(line.substring(0, separator), line.substring(separator + 1).trim(), url.toString()));
+            }
+        } catch (IOException e) {
+            WeavingInfinity.LOGGER.error("Failed to read spell module index {}: {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * 索引条目
+     * @param id 模块ID
+     * @param className 模块类的二进制名
+     * @param source 索引文件的位置，用于日志
+     */
+    record Entry(String id, String className, String source) {}
+}
@@ -1,64 +1,524 @@
 /**
  * 模块注册表
- * 
- * 负责注册和管理所有内置的法术模块。
+ *
+ * 负责注册和管理所有法术模块。模块来自编译时生成的模块索引（见 @SpellModule），
+ * 注册表只保存每个模块的提供者，模块类在第一次被解析时才加载和实例化，启动时不加载任何模块类。
+ * 注册阶段结束后注册表会被冻结为不可变的快照：每个模块获得一个稠密的数字ID，
+ * 模块实例化时其标签被驻留为位掩码，显示名称组件也只创建一次。冻结后的快照只读，可以在任意线程（包括网络线程）安全查询。
+ *
+ * 数据包定义的模块（见 DataModuleLoader）在冻结后单独安装，每次 /reload 整体替换。
+ * 它们的数字ID接在内置模块之后，同一个ID在整个会话中保持不变，删除的模块只留下空位，不回收数字ID。
  */
 package com.kirisame1969.weaving_infinity.core.registry;
 
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
-import com.kirisame1969.weaving_infinity.module.modules.base.FireballModule;
-import com.kirisame1969.weaving_infinity.module.modules.modifier.SplitOnHitModifier;
-import com.kirisame1969.weaving_infinity.module.modules.modifier.ExplodeOnHitModifier;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class ModuleRegistry {
-    private static final Map<String, ISpellModule> MODULES = new HashMap<>();
-    
+    // 注册阶段使用的可变表（模块ID -> 提供者），冻结后不再修改
+    private static final Map<String, Supplier<? extends ISpellModule>> PENDING = new LinkedHashMap<>();
+
+    // 冻结后的只读快照
+    private static volatile Frozen frozen = Frozen.EMPTY;
+
+    // 数据包模块的只读快照，每次重载整体替换
+    private static volatile DataLayer data = DataLayer.EMPTY;
+
+    // 命令解析和补全使用的模块ID索引，冻结和安装数据包模块时重建
+    private static volatile ModuleIdIndex idIndex = ModuleIdIndex.EMPTY;
+
+    // 数据包模块ID -> 数字ID（只追加，重载后保持不变）
+    private static final Map<String, Integer> DATA_NUMERIC_IDS = new HashMap<>();
+
     /**
-     * 注册所有内置模块
+     * 注册模块索引中的所有模块（本模组和附属模组）并冻结注册表
      */
     public static void registerBuiltinModules() {
-        // 注册基础模块
-        registerModule(new FireballModule());
-        
-        // 注册修饰模块
-        registerModule(new SplitOnHitModifier());
-        registerModule(new ExplodeOnHitModifier());
+        registerIndexedModules(ModuleRegistry.class.getClassLoader());
+        freeze();
     }
-    
+
     /**
-     * 注册单个模块
+     * 注册类加载器可见的所有模块索引中的模块
+     * 按模块ID排序后注册，客户端和服务器安装相同的模组时数字ID一致
+     * @param loader 用于查找索引和加载模块类的类加载器
+     */
+    public static synchronized void registerIndexedModules(ClassLoader loader) {
+        Map<String, ModuleIndex.Entry> sorted = new TreeMap<>();
+        for (ModuleIndex.Entry entry : ModuleIndex.load(loader)) {
+            ModuleIndex.Entry previous = sorted.putIfAbsent(entry.id(), entry);
+            if (previous != null && !previous.className().equals(entry.className())) {
+                WeavingInfinity.LOGGER.warn("Duplicate spell module {}: {} from {} ignored, keeping {}",
+                    entry.id(), entry.className(), entry.source(), previous.className());
+            }
+        }
+        if (sorted.isEmpty()) {
+            WeavingInfinity.LOGGER.warn("No spell module index found on the classpath");
+        }
+        for (ModuleIndex.Entry entry : sorted.values()) {
+            registerModule(entry.id(), reflectiveFactory(entry.className(), loader));
+        }
+    }
+
+    /**
+     * 注册单个模块实例
      * @param module 要注册的模块
      */
-    private static void registerModule(ISpellModule module) {
-        MODULES.put(module.getId().toString(), module);
+    public static synchronized void registerModule(ISpellModule module) {
+        registerModule(module.getId().toString(), () -> module);
     }
-    
+
     /**
-     * 根据ID获取模块
+     * 注册模块提供者，模块在第一次被解析时才创建
      * @param id 模块ID
-     * @return 对应的模块，如果未找到则返回null
+     * @param factory 模块提供者
+     */
+    public static synchronized void registerModule(String id, Supplier<? extends ISpellModule> factory) {
+        if (isFrozen()) {
+            throw new IllegalStateException("ModuleRegistry is frozen, cannot register " + id);
+        }
+        PENDING.put(id, factory);
+    }
+
+    /**
+     * 冻结注册表，生成不可变快照
+     */
+    public static synchronized void freeze() {
+        if (isFrozen()) {
+            return;
+        }
+        frozen = new Frozen(PENDING);
+        PENDING.clear();
+        idIndex = new ModuleIdIndex(frozen.byId.keySet());
+    }
+
+    /**
+     * 安装数据包模块，替换上一次安装的所有数据包模块
+     * 与内置模块同名的数据包模块会被忽略；数据包标签随之重新分配（见 ModuleTag.assignDataTags），
+     * 标签位不足的模块会被拒绝
+     * @param modules 模块ID -> 模块实例
+     * @return 被拒绝的模块数量
+     */
+    public static synchronized int installDataModules(Map<String, ISpellModule> modules) {
+        if (!isFrozen()) {
+            throw new IllegalStateException("ModuleRegistry must be frozen before installing data modules");
+        }
+        Frozen builtin = frozen;
+        List<Map.Entry<String, ISpellModule>> candidates = new ArrayList<>();
+        List<Set<String>> tagSets = new ArrayList<>();
+        int rejected = 0;
+        for (Map.Entry<String, ISpellModule> entry : modules.entrySet()) {
+            if (builtin.byId.containsKey(entry.getKey())) {
+                WeavingInfinity.LOGGER.error("Data module {} conflicts with a built-in module and was ignored", entry.getKey());
+                rejected++;
+                continue;
+            }
+            candidates.add(entry);
+            tagSets.add(entry.getValue().getTags());
+        }
+
+        ModuleTag.DataAssignment tags = ModuleTag.assignDataTags(tagSets);
+        Map<String, ISpellModule> accepted = new LinkedHashMap<>();
+        Map<String, Long> tagMasks = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            String id = candidates.get(i).getKey();
+            if (!tags.accepted()[i]) {
+                WeavingInfinity.LOGGER.error("Data module {} rejected: all {} module tag bits are in use", id, ModuleTag.MAX_TAGS);
+                rejected++;
+                continue;
+            }
+            accepted.put(id, candidates.get(i).getValue());
+            tagMasks.put(id, tags.masks()[i]);
+            DATA_NUMERIC_IDS.computeIfAbsent(id, key -> DATA_NUMERIC_IDS.size());
+        }
+        data = new DataLayer(builtin, accepted, DATA_NUMERIC_IDS, tagMasks);
+        idIndex = new ModuleIdIndex(data.allIds);
+        return rejected;
+    }
+
+    /**
+     * 卸载所有数据包模块并回收它们的数字ID（服务器停止时调用）
+     * 数字ID只在同一个服务器的生命周期内保持稳定，下一个世界重新从0开始分配
+     */
+    public static synchronized void clearDataModules() {
+        DATA_NUMERIC_IDS.clear();
+        data = DataLayer.EMPTY;
+        ModuleTag.assignDataTags(List.of());
+        if (isFrozen()) {
+            idIndex = new ModuleIdIndex(frozen.byId.keySet());
+        }
+    }
+
+    /**
+     * 检查注册表是否已冻结
+     * @return 是否已冻结
+     */
+    public static boolean isFrozen() {
+        return frozen != Frozen.EMPTY;
+    }
+
+    /**
+     * 根据ID获取模块，首次获取时实例化
+     * @param id 模块ID
+     * @return 对应的模块，如果未找到或无法实例化则返回null
      */
     public static ISpellModule getModule(String id) {
-        return MODULES.get(id);
+        LazyModule holder = frozen.byId.get(id);
+        return holder != null ? holder.get() : data.byId.get(id);
+    }
+
+    /**
+     * 根据数字ID获取模块，首次获取时实例化
+     * @param numericId 数字ID
+     * @return 对应的模块，如果未找到或无法实例化则返回null
+     */
+    public static ISpellModule getModule(int numericId) {
+        LazyModule[] modules = frozen.byNumericId;
+        if (numericId >= 0 && numericId < modules.length) {
+            return modules[numericId].get();
+        }
+        ISpellModule[] dataModules = data.byNumericId;
+        int dataIndex = numericId - modules.length;
+        return dataIndex >= 0 && dataIndex < dataModules.length ? dataModules[dataIndex] : null;
+    }
+
+    /**
+     * 获取模块的数字ID
+     * @param module 模块实例
+     * @return 数字ID，如果模块未注册则返回-1
+     */
+    public static int getNumericId(ISpellModule module) {
+        LazyModule holder = frozen.byInstance.get(module);
+        if (holder != null) {
+            return holder.numericId;
+        }
+        Integer dataIndex = data.dataIndices.get(module);
+        return dataIndex != null ? frozen.byNumericId.length + dataIndex : -1;
+    }
+
+    /**
+     * 根据模块ID获取数字ID，不会实例化模块
+     * @param id 模块ID
+     * @return 数字ID，如果模块未注册则返回-1
+     */
+    public static int getNumericId(String id) {
+        LazyModule holder = frozen.byId.get(id);
+        if (holder != null) {
+            return holder.numericId;
+        }
+        Integer dataIndex = data.indicesById.get(id);
+        return dataIndex != null ? frozen.byNumericId.length + dataIndex : -1;
+    }
+
+    /**
+     * 根据数字ID获取模块ID，不会实例化模块
+     * @param numericId 数字ID
+     * @return 模块ID，如果数字ID未使用或对应的数据包模块已删除则返回null
+     */
+    public static String getModuleId(int numericId) {
+        LazyModule[] modules = frozen.byNumericId;
+        if (numericId >= 0 && numericId < modules.length) {
+            return modules[numericId].id;
+        }
+        String[] dataIds = data.idsByIndex;
+        int dataIndex = numericId - modules.length;
+        return dataIndex >= 0 && dataIndex < dataIds.length ? dataIds[dataIndex] : null;
+    }
+
+    /**
+     * 获取按数字ID排列的模块ID表，用于同步给客户端
+     * @return 模块ID列表，已删除的数据包模块为空字符串
+     */
+    public static List<String> getNumericIdTable() {
+        LazyModule[] modules = frozen.byNumericId;
+        String[] dataIds = data.idsByIndex;
+        List<String> table = new ArrayList<>(modules.length + dataIds.length);
+        for (LazyModule holder : modules) {
+            table.add(holder.id);
+        }
+        for (String id : dataIds) {
+            table.add(id != null ? id : "");
+        }
+        return table;
+    }
+
+    /**
+     * 获取模块的标签位掩码
+     * @param module 模块实例
+     * @return 标签位掩码，如果模块未注册则返回0
+     */
+    public static long getTagMask(ISpellModule module) {
+        LazyModule holder = frozen.byInstance.get(module);
+        if (holder != null) {
+            return holder.tagMask;
+        }
+        Integer dataIndex = data.dataIndices.get(module);
+        return dataIndex != null ? data.tagMasks[dataIndex] : 0L;
+    }
+
+    /**
+     * 获取模块的显示名称
+     * 已注册模块的名称组件在实例化时创建一次并共享，翻译组件会缓存当前语言的解析结果，
+     * 重复显示时不再分配新组件；调用者不应修改返回的组件
+     * @param module 模块实例
+     * @return 显示名称组件
+     */
+    public static Component getDisplayName(ISpellModule module) {
+        LazyModule holder = frozen.byInstance.get(module);
+        if (holder != null) {
+            return holder.displayName;
+        }
+        DataLayer dataLayer = data;
+        Integer dataIndex = dataLayer.dataIndices.get(module);
+        return dataIndex != null ? dataLayer.displayNames[dataIndex] : module.getDisplayName();
     }
-    
+
+    /**
+     * 获取携带指定标签的所有模块
+     * 标签只有在模块实例化后才能确定，因此会实例化所有模块
+     * @param tag 模块标签
+     * @return 模块列表（只读）
+     */
+    public static List<ISpellModule> getModulesWithTag(ModuleTag tag) {
+        List<ISpellModule> tagged = new ArrayList<>();
+        for (LazyModule holder : frozen.byNumericId) {
+            ISpellModule module = holder.get();
+            if (module != null && tag.isIn(holder.tagMask)) {
+                tagged.add(module);
+            }
+        }
+        DataLayer dataLayer = data;
+        for (int i = 0; i < dataLayer.byNumericId.length; i++) {
+            if (dataLayer.byNumericId[i] != null && tag.isIn(dataLayer.tagMasks[i])) {
+                tagged.add(dataLayer.byNumericId[i]);
+            }
+        }
+        return List.copyOf(tagged);
+    }
+
+    /**
+     * 获取已注册模块的数量（即数字ID的上界）
+     * @return 模块数量
+     */
+    public static int getModuleCount() {
+        return frozen.byNumericId.length + data.byNumericId.length;
+    }
+
     /**
-     * 获取所有已注册模块的ID集合
+     * 获取所有已注册模块的ID集合，不会实例化模块
      * @return 模块ID集合
      */
     public static Set<String> getAllModuleIds() {
-        return MODULES.keySet();
+        DataLayer dataLayer = data;
+        return dataLayer.allIds != null ? dataLayer.allIds : frozen.byId.keySet();
     }
-    
+
     /**
-     * 检查是否存在指定ID的模块
+     * 获取模块ID前缀索引，用于命令参数的解析和自动补全
+     * @return 模块ID索引
+     */
+    public static ModuleIdIndex getIdIndex() {
+        return idIndex;
+    }
+
+    /**
+     * 检查是否存在指定ID的模块，不会实例化模块
      * @param id 模块ID
      * @return 是否存在该模块
      */
     public static boolean hasModule(String id) {
-        return MODULES.containsKey(id);
+        return frozen.byId.containsKey(id) || data.byId.containsKey(id);
+    }
+
+    /**
+     * 获取当前安装的数据包模块数量
+     * @return 模块数量
+     */
+    public static int getDataModuleCount() {
+        return data.byId.size();
+    }
+
+    /**
+     * 获取当前安装的数据包模块
+     * @return 模块ID -> 模块实例（只读）
+     */
+    public static Map<String, ISpellModule> getDataModules() {
+        return data.byId;
+    }
+
+    /**
+     * 获取已经实例化的模块数量
+     * @return 模块数量
+     */
+    public static int getResolvedModuleCount() {
+        return frozen.byInstance.size();
+    }
+
+    private static Supplier<ISpellModule> reflectiveFactory(String className, ClassLoader loader) {
+        return () -> {
+            try {
+                Class<? extends ISpellModule> type = Class.forName(className, true, loader).asSubclass(ISpellModule.class);
+                return type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot instantiate spell module " + className, e);
+            }
+        };
+    }
+
+    /**
+     * 延迟创建的模块，第一次解析时调用提供者并驻留标签
+     */
+    private static final class LazyModule {
+        final String id;
+        final int numericId;
+        private final Supplier<? extends ISpellModule> factory;
+        private final Map<ISpellModule, LazyModule> byInstance;
+
+        // 标签位掩码和显示名称在 instance 发布前写入，读到 instance 的线程一定能读到它
+        long tagMask;
+        Component displayName;
+        private volatile ISpellModule instance;
+        private volatile boolean failed;
+
+        LazyModule(String id, int numericId, Supplier<? extends ISpellModule> factory, Map<ISpellModule, LazyModule> byInstance) {
+            this.id = id;
+            this.numericId = numericId;
+            this.factory = factory;
+            this.byInstance = byInstance;
+        }
+
+        ISpellModule get() {
+            ISpellModule module = instance;
+            if (module != null || failed) {
+                return module;
+            }
+            synchronized (this) {
+                if (instance == null && !failed) {
+                    create();
+                }
+                return instance;
+            }
+        }
+
+        private void create() {
+            ISpellModule module;
+            try {
+                module = factory.get();
+            } catch (RuntimeException | LinkageError e) {
+                WeavingInfinity.LOGGER.error("Failed to create spell module {}: {}", id, e.toString());
+                failed = true;
+                return;
+            }
+            if (module == null) {
+                WeavingInfinity.LOGGER.error("Spell module provider for {} returned null", id);
+                failed = true;
+                return;
+            }
+            if (!id.equals(module.getId().toString())) {
+                WeavingInfinity.LOGGER.warn("Spell module {} is registered as {}", module.getId(), id);
+            }
+
+            long mask = 0L;
+            for (String tagName : module.getTags()) {
+                mask |= ModuleTag.of(tagName).mask();
+            }
+            tagMask = mask;
+            displayName = module.getDisplayName();
+            byInstance.put(module, this);
+            instance = module;
+        }
+    }
+
+    /**
+     * 冻结后的注册表快照，构建完成后不再修改（模块实例按需加入）
+     */
+    private static final class Frozen {
+        static final Frozen EMPTY = new Frozen(Map.of());
+
+        final Map<String, LazyModule> byId;
+        final LazyModule[] byNumericId;
+        final Map<ISpellModule, LazyModule> byInstance = new ConcurrentHashMap<>();
+
+        Frozen(Map<String, Supplier<? extends ISpellModule>> modules) {
+            Map<String, LazyModule> ids = new LinkedHashMap<>();
+            this.byNumericId = new LazyModule[modules.size()];
+            int numericId = 0;
+            for (Map.Entry<String, Supplier<? extends ISpellModule>> entry : modules.entrySet()) {
+                LazyModule holder = new LazyModule(entry.getKey(), numericId, entry.getValue(), byInstance);
+                byNumericId[numericId++] = holder;
+                ids.put(entry.getKey(), holder);
+            }
+            this.byId = Collections.unmodifiableMap(ids);
+        }
+    }
+
+    /**
+     * 数据包模块的只读快照
+     */
+    private static final class DataLayer {
+        static final DataLayer EMPTY = new DataLayer();
+
+        final Map<String, ISpellModule> byId;
+        // 按数据包数字ID（减去内置模块数量）排列，已删除的模块为null
+        final ISpellModule[] byNumericId;
+        final long[] tagMasks;
+        final Component[] displayNames;
+        final Map<ISpellModule, Integer> dataIndices;
+        // 数据包数字ID（减去内置模块数量）<-> 模块ID，已删除的模块为null
+        final String[] idsByIndex;
+        final Map<String, Integer> indicesById;
+        // 内置模块和数据包模块的ID并集，没有数据包模块时为null
+        final Set<String> allIds;
+
+        private DataLayer() {
+            this.byId = Map.of();
+            this.byNumericId = new ISpellModule[0];
+            this.tagMasks = new long[0];
+            this.displayNames = new Component[0];
+            this.dataIndices = Map.of();
+            this.idsByIndex = new String[0];
+            this.indicesById = Map.of();
+            this.allIds = null;
+        }
+
+        DataLayer(Frozen builtin, Map<String, ISpellModule> modules, Map<String, Integer> numericIds, Map<String, Long> tagMaskById) {
+            this.byId = Collections.unmodifiableMap(new LinkedHashMap<>(modules));
+            this.byNumericId = new ISpellModule[numericIds.size()];
+            this.tagMasks = new long[numericIds.size()];
+            this.displayNames = new Component[numericIds.size()];
+            this.idsByIndex = new String[numericIds.size()];
+            Map<ISpellModule, Integer> indices = new IdentityHashMap<>();
+            Map<String, Integer> ids = new HashMap<>();
+            for (Map.Entry<String, ISpellModule> entry : modules.entrySet()) {
+                int index = numericIds.get(entry.getKey());
+                idsByIndex[index] = entry.getKey();
+                ids.put(entry.getKey(), index);
+                ISpellModule module = entry.getValue();
+                byNumericId[index] = module;
+                tagMasks[index] = tagMaskById.get(entry.getKey());
+                displayNames[index] = module.getDisplayName();
+                indices.put(module, index);
+            }
+            this.dataIndices = indices;
+            this.indicesById = ids;
+
+            Set<String> allIds = new LinkedHashSet<>(builtin.byId.keySet());
+            allIds.addAll(byId.keySet());
+            this.allIds = Collections.unmodifiableSet(allIds);
+        }
     }
-}
\ No newline at end of file
+}
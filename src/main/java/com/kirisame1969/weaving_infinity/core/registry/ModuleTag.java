@@ -0,0 +1,193 @@
+/**
+ * 模块标签
+ *
+ * 模块标签字符串的驻留表示。每个不同的标签在首次出现时获得一个位序号，
+ * 模块和法术计划的标签集合因此可以用一个long位掩码表示，判断能力时不涉及任何字符串操作。
+ *
+ * 标签分为两类，共用同一组64个位：
+ * - 常驻标签：内置模块和代码中使用的标签（见 of），位序号在整个进程中不变
+ * - 数据包标签：只被当前安装的数据包模块使用的标签，每次安装数据包模块时重新分配（见 assignDataTags），
+ *   不再使用的标签归还位序号，/reload 中改名或拼错的标签以及连接过的其他服务器的标签不会一直占用位
+ */
+package com.kirisame1969.weaving_infinity.core.registry;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ModuleTag {
+    // 支持的最大标签数量（受位掩码宽度限制）
+    public static final int MAX_TAGS = Long.SIZE;
+
+    // 常驻标签及其占用的位
+    private static final Map<String, ModuleTag> INTERNED = new ConcurrentHashMap<>();
+    private static long internedBits = 0L;
+
+    // 当前数据包标签及其占用的位，每次分配时整体替换
+    private static volatile Map<String, ModuleTag> dataTags = Map.of();
+    private static long dataBits = 0L;
+
+    private final String name;
+    private final int bit;
+    private final long mask;
+
+    private ModuleTag(String name, int bit) {
+        this.name = name;
+        this.bit = bit;
+        this.mask = 1L << bit;
+    }
+
+    /**
+     * 获取常驻标签的实例，不存在时分配新的位序号
+     * 当前数据包模块已经使用的同名标签沿用原来的位序号并转为常驻
+     * @param name 标签名
+     * @return 标签实例
+     */
+    public static ModuleTag of(String name) {
+        ModuleTag tag = INTERNED.get(name);
+        if (tag != null) {
+            return tag;
+        }
+        synchronized (INTERNED) {
+            tag = INTERNED.get(name);
+            if (tag == null) {
+                tag = dataTags.get(name);
+                if (tag == null) {
+                    int bit = freeBit(internedBits | dataBits);
+                    if (bit < 0) {
+                        throw new IllegalStateException("Too many module tags, cannot intern: " + name);
+                    }
+                    tag = new ModuleTag(name, bit);
+                }
+                INTERNED.put(name, tag);
+                internedBits |= tag.mask;
+            }
+            return tag;
+        }
+    }
+
+    /**
+     * 查找标签（常驻标签或当前的数据包标签），不会分配新的位序号
+     * @param name 标签名
+     * @return 标签实例，如果不存在则返回null
+     */
+    public static ModuleTag find(String name) {
+        ModuleTag tag = INTERNED.get(name);
+        return tag != null ? tag : dataTags.get(name);
+    }
+
+    /**
+     * 为数据包模块重新分配标签（安装数据包模块时调用）
+     * 常驻标签直接使用；上一次已经分配且仍在使用的数据包标签保留原来的位序号，
+     * 因此内容未变化的数据包模块的位掩码保持不变；其余标签从空闲的位中分配，不再使用的标签归还位序号。
+     * 按顺序处理每个模块的标签集合，剩余的位不足以容纳某个模块的新标签时拒绝该模块，不影响之后的模块
+     * @param tagSets 每个数据包模块的标签集合，按安装顺序排列
+     * @return 分配结果
+     */
+    public static DataAssignment assignDataTags(List<Set<String>> tagSets) {
+        synchronized (INTERNED) {
+            Map<String, ModuleTag> previous = dataTags;
+            Map<String, ModuleTag> assigned = new HashMap<>();
+            long bits = 0L;
+
+            // 先保留仍在使用的旧分配，保证它们的位序号不变
+            for (Set<String> tags : tagSets) {
+                for (String name : tags) {
+                    ModuleTag kept = previous.get(name);
+                    if (kept != null && !INTERNED.containsKey(name) && !assigned.containsKey(name)) {
+                        assigned.put(name, kept);
+                        bits |= kept.mask;
+                    }
+                }
+            }
+
+            long[] masks = new long[tagSets.size()];
+            boolean[] accepted = new boolean[tagSets.size()];
+            int rejected = 0;
+            for (int i = 0; i < tagSets.size(); i++) {
+                Set<String> tags = tagSets.get(i);
+                Set<String> fresh = new LinkedHashSet<>();
+                for (String name : tags) {
+                    if (!INTERNED.containsKey(name) && !assigned.containsKey(name)) {
+                        fresh.add(name);
+                    }
+                }
+                if (Long.bitCount(internedBits | bits) + fresh.size() > MAX_TAGS) {
+                    rejected++;
+                    continue;
+                }
+                for (String name : fresh) {
+                    ModuleTag tag = new ModuleTag(name, freeBit(internedBits | bits));
+                    assigned.put(name, tag);
+                    bits |= tag.mask;
+                }
+                long mask = 0L;
+                for (String name : tags) {
+                    ModuleTag tag = INTERNED.get(name);
+                    mask |= (tag != null ? tag : assigned.get(name)).mask;
+                }
+                masks[i] = mask;
+                accepted[i] = true;
+            }
+
+            dataTags = Map.copyOf(assigned);
+            dataBits = bits;
+            return new DataAssignment(masks, accepted, rejected);
+        }
+    }
+
+    /**
+     * 获取已经占用的位数量（常驻标签和当前的数据包标签）
+     * @return 位数量，最大为 MAX_TAGS
+     */
+    public static int usedBitCount() {
+        synchronized (INTERNED) {
+            return Long.bitCount(internedBits | dataBits);
+        }
+    }
+
+    /**
+     * 获取最低的空闲位
+     * @return 位序号，没有空闲位时返回-1
+     */
+    private static int freeBit(long used) {
+        return used == -1L ? -1 : Long.numberOfTrailingZeros(~used);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int bit() {
+        return bit;
+    }
+
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * 检查位掩码中是否包含此标签
+     * @param tagMask 标签位掩码
+     * @return 是否包含
+     */
+    public boolean isIn(long tagMask) {
+        return (tagMask & mask) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * 数据包标签的分配结果
+     * @param masks 每个模块的标签位掩码，与传入的顺序相同
+     * @param accepted 每个模块的标签是否分配成功
+     * @param rejected 因标签位不足而被拒绝的模块数量
+     */
+    public record DataAssignment(long[] masks, boolean[] accepted, int rejected) {}
+}
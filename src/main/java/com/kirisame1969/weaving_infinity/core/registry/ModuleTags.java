@@ -0,0 +1,17 @@
+/**
+ * 内置模块标签
+ *
+ * 内置模块使用的标签常量，调用方可以据此判断模块或法术计划是否具备某种能力。
+ */
+package com.kirisame1969.weaving_infinity.core.registry;
+
+public final class ModuleTags {
+    public static final ModuleTag BASE = ModuleTag.of("base");
+    public static final ModuleTag MODIFIER = ModuleTag.of("modifier");
+    public static final ModuleTag PROJECTILE = ModuleTag.of("projectile");
+    public static final ModuleTag FIRE = ModuleTag.of("fire");
+    public static final ModuleTag SPLIT = ModuleTag.of("split");
+    public static final ModuleTag EXPLODE = ModuleTag.of("explode");
+
+    private ModuleTags() {}
+}
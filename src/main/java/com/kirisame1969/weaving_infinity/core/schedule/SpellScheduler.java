@@ -0,0 +1,308 @@
+/**
+ * 法术调度器
+ *
+ * 每个服务器世界一个实例，为法术相关的工作（分裂子弹生成、法术计划执行）提供每刻时间预算。
+ * 预算充足时工作立即执行并计入本刻用量；预算耗尽后工作进入队列，
+ * 在刻末及后续的刻中按顺序继续执行，从而把突发的大量工作分摊到多个刻，避免单刻MSPT尖峰。
+ *
+ * 调度器只在服务器主线程上使用，不需要同步。
+ */
+package com.kirisame1969.weaving_infinity.core.schedule;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import net.minecraft.server.level.ServerLevel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public final class SpellScheduler {
+    // 每个世界的调度器（弱键，世界卸载后自动释放）
+    private static final Map<ServerLevel, SpellScheduler> SCHEDULERS = new WeakHashMap<>();
+
+    private final ArrayDeque<SpellTask> queue = new ArrayDeque<>();
+
+    // 本刻已使用的时间（纳秒）
+    private long usedNanos = 0L;
+
+    // 统计计数器
+    private long inlineCount = 0L;
+    private long deferredCount = 0L;
+    private long drainedCount = 0L;
+    private long droppedCount = 0L;
+    private long droppedSplitCount = 0L;
+    private long suspendedCount = 0L;
+    private int peakQueueDepth = 0;
+    private int lastDrainCount = 0;
+
+    // 队列已满的警告是否已经输出，队列清空后重新允许输出
+    private boolean overflowWarned = false;
+
+    private SpellScheduler() {}
+
+    /**
+     * 获取世界对应的调度器
+     * @param level 服务器世界
+     * @return 调度器实例
+     */
+    public static SpellScheduler forLevel(ServerLevel level) {
+        return SCHEDULERS.computeIfAbsent(level, l -> new SpellScheduler());
+    }
+
+    /**
+     * 移除世界对应的调度器，丢弃尚未执行的任务
+     * @param level 服务器世界
+     */
+    public static void remove(ServerLevel level) {
+        SCHEDULERS.remove(level);
+    }
+
+    /**
+     * 获取所有世界的调度器
+     * @return 调度器集合（快照）
+     */
+    public static Collection<SpellScheduler> all() {
+        return new ArrayList<>(SCHEDULERS.values());
+    }
+
+    /**
+     * 开始新的一刻，重置时间用量
+     */
+    public void beginTick() {
+        usedNanos = 0L;
+    }
+
+    /**
+     * 检查本刻是否还有剩余预算
+     * @return 是否还有预算
+     */
+    public boolean hasBudget() {
+        return hasBudget(0L);
+    }
+
+    /**
+     * 检查在额外消耗指定时间后本刻是否还有剩余预算
+     * @param pendingNanos 尚未计入的时间（纳秒）
+     * @return 是否还有预算
+     */
+    public boolean hasBudget(long pendingNanos) {
+        return usedNanos + pendingNanos < ModuleConfig.getInstance().scheduler.tickBudgetNanos;
+    }
+
+    /**
+     * 将时间计入本刻用量
+     * @param nanos 消耗的时间（纳秒）
+     */
+    public void charge(long nanos) {
+        usedNanos += nanos;
+    }
+
+    /**
+     * 预算充足且队列为空时立即执行任务，否则排队
+     * 队列不为空时总是排队，以保证任务按提交顺序执行；立即执行的任务被挂起时放回队首（此时队列为空），不受队列上限约束
+     * @param task 任务
+     */
+    public void runOrDefer(SpellTask task) {
+        if (!queue.isEmpty() || !hasBudget()) {
+            submit(task);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean done = runSafely(task);
+        charge(System.nanoTime() - start);
+        inlineCount++;
+        if (!done) {
+            suspendedCount++;
+            deferredCount++;
+            requeue(task);
+        }
+    }
+
+    /**
+     * 将尚未开始执行的任务加入队列末尾
+     * 队列已满时拒绝入队并调用任务的 onDropped，任务不会在预算之外执行
+     * @param task 任务
+     * @return 是否成功入队，队列已满时返回false
+     */
+    public boolean submit(SpellTask task) {
+        int maxQueueDepth = ModuleConfig.getInstance().scheduler.maxQueueDepth;
+        if (queue.size() >= maxQueueDepth) {
+            droppedCount++;
+            if (!overflowWarned) {
+                overflowWarned = true;
+                WeavingInfinity.LOGGER.warn("Spell scheduler queue is full ({} tasks); new casts are refused and split projectiles dropped, see /spellcore scheduler for the counts",
+                    maxQueueDepth);
+            }
+            task.onDropped();
+            return false;
+        }
+        queue.addLast(task);
+        deferredCount++;
+        peakQueueDepth = Math.max(peakQueueDepth, queue.size());
+        return true;
+    }
+
+    /**
+     * 在剩余预算内按顺序执行队列中的任务
+     * 每刻至少执行一个任务，保证队列总能向前推进
+     */
+    public void drain() {
+        int ran = 0;
+        while (!queue.isEmpty()) {
+            if (ran > 0 && !hasBudget()) {
+                break;
+            }
+
+            SpellTask task = queue.pollFirst();
+            long start = System.nanoTime();
+            boolean done = runSafely(task);
+            charge(System.nanoTime() - start);
+            ran++;
+
+            if (!done) {
+                // 被挂起的任务放回队首，下一刻优先继续执行
+                suspendedCount++;
+                requeue(task);
+                break;
+            }
+        }
+        drainedCount += ran;
+        lastDrainCount = ran;
+        if (queue.isEmpty()) {
+            overflowWarned = false;
+        }
+    }
+
+    /**
+     * 把已经开始执行、被挂起的任务放回队首
+     * 不检查队列上限：挂起的任务已经占用过队列位置，短暂超出上限也不能丢弃或在预算之外完成
+     */
+    private void requeue(SpellTask task) {
+        queue.addFirst(task);
+        peakQueueDepth = Math.max(peakQueueDepth, queue.size());
+    }
+
+    /**
+     * 记录一个因队列已满而丢弃的分裂子弹（由分裂任务的 onDropped 调用）
+     */
+    public void recordDroppedSplit() {
+        droppedSplitCount++;
+    }
+
+    private static boolean runSafely(SpellTask task) {
+        try {
+            return task.run();
+        } catch (Exception e) {
+            WeavingInfinity.LOGGER.error("Error running scheduled spell task: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 获取当前队列深度
+     * @return 排队的任务数量
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 获取历史最大队列深度
+     * @return 最大队列深度
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth;
+    }
+
+    /**
+     * 获取立即执行的任务总数
+     * @return 任务数量
+     */
+    public long getInlineCount() {
+        return inlineCount;
+    }
+
+    /**
+     * 获取被延迟（入队）的任务总数
+     * @return 任务数量
+     */
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * 获取从队列中执行的任务总数
+     * @return 任务数量
+     */
+    public long getDrainedCount() {
+        return drainedCount;
+    }
+
+    /**
+     * 获取因队列已满无法入队的任务总数
+     * 其中的法术计划被拒绝施放，分裂子弹被丢弃（另见 getDroppedSplitCount）
+     * @return 任务数量
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * 获取因队列已满而丢弃的分裂子弹数量
+     * @return 子弹数量
+     */
+    public long getDroppedSplitCount() {
+        return droppedSplitCount;
+    }
+
+    /**
+     * 获取被挂起的执行总数
+     * @return 挂起次数
+     */
+    public long getSuspendedCount() {
+        return suspendedCount;
+    }
+
+    /**
+     * 获取上一刻从队列中执行的任务数量
+     * @return 任务数量
+     */
+    public int getLastDrainCount() {
+        return lastDrainCount;
+    }
+
+    /**
+     * 获取本刻已使用的时间
+     * @return 时间（纳秒）
+     */
+    public long getUsedNanos() {
+        return usedNanos;
+    }
+
+    /**
+     * 汇总所有世界的统计信息，便于日志和命令输出
+     * @return 统计信息行
+     */
+    public static List<String> describeAll() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<ServerLevel, SpellScheduler> entry : SCHEDULERS.entrySet()) {
+            SpellScheduler scheduler = entry.getValue();
+            lines.add(String.format("%s: queue=%d peak=%d inline=%d deferred=%d drained=%d dropped=%d dropped_splits=%d suspended=%d",
+                entry.getKey().dimension().location(),
+                scheduler.getQueueDepth(),
+                scheduler.getPeakQueueDepth(),
+                scheduler.getInlineCount(),
+                scheduler.getDeferredCount(),
+                scheduler.getDrainedCount(),
+                scheduler.getDroppedCount(),
+                scheduler.getDroppedSplitCount(),
+                scheduler.getSuspendedCount()));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * 法术调度任务
+ *
+ * 可由 SpellScheduler 延迟执行的一段工作，例如生成一个分裂子弹或继续执行一个被挂起的法术计划。
+ */
+package com.kirisame1969.weaving_infinity.core.schedule;
+
+@FunctionalInterface
+public interface SpellTask {
+    /**
+     * 执行任务
+     * @return 任务是否已完成；返回false表示任务被挂起，需要在下一刻继续执行
+     */
+    boolean run();
+
+    /**
+     * 队列已满、尚未开始执行的任务无法入队时调用，任务随后被丢弃
+     * 已经开始执行的任务挂起后总是放回队首，不会走到这里；实现只用于记录或通知（例如拒绝施法），不应在这里执行任务
+     */
+    default void onDropped() {
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * 分裂方向的正交基
+ *
+ * 由撞击方向构建一次，把图案表中的局部方向（+Z 前、+Y 上、+X 右）旋转到世界坐标。
+ * 撞击方向为 +Z 时基为单位矩阵，局部方向即世界方向。
+ */
+package com.kirisame1969.weaving_infinity.core.split;
+
+import net.minecraft.world.phys.Vec3;
+
+public final class SplitBasis {
+    private final double rightX, rightY, rightZ;
+    private final double upX, upY, upZ;
+    private final double forwardX, forwardY, forwardZ;
+
+    private SplitBasis(double fx, double fy, double fz) {
+        // right = worldUp × forward；forward 接近竖直时改用 +X 作为参考
+        double rx = fz;
+        double ry = 0.0;
+        double rz = -fx;
+        double rightLength = Math.sqrt(rx * rx + rz * rz);
+        if (rightLength < 1.0E-6) {
+            rx = 1.0;
+            rz = 0.0;
+            rightLength = 1.0;
+        }
+        rx /= rightLength;
+        rz /= rightLength;
+
+        this.rightX = rx;
+        this.rightY = ry;
+        this.rightZ = rz;
+        // up = forward × right
+        this.upX = fy * rz - fz * ry;
+        this.upY = fz * rx - fx * rz;
+        this.upZ = fx * ry - fy * rx;
+        this.forwardX = fx;
+        this.forwardY = fy;
+        this.forwardZ = fz;
+    }
+
+    /**
+     * 由撞击方向构建基
+     * @param direction 撞击方向，可能为null或零向量（此时使用 +Z）
+     * @param horizontal 是否只使用水平分量，使图案保持在水平面内
+     * @return 正交基
+     */
+    public static SplitBasis of(Vec3 direction, boolean horizontal) {
+        double fx = direction != null ? direction.x : 0.0;
+        double fy = direction != null && !horizontal ? direction.y : 0.0;
+        double fz = direction != null ? direction.z : 0.0;
+        double length = Math.sqrt(fx * fx + fy * fy + fz * fz);
+        if (length < 1.0E-6) {
+            return new SplitBasis(0.0, 0.0, 1.0);
+        }
+        return new SplitBasis(fx / length, fy / length, fz / length);
+    }
+
+    /**
+     * 将局部方向旋转到世界坐标
+     * @param x 局部X（右）
+     * @param y 局部Y（上）
+     * @param z 局部Z（前）
+     * @return 世界坐标中的方向
+     */
+    public Vec3 apply(double x, double y, double z) {
+        return new Vec3(
+            rightX * x + upX * y + forwardX * z,
+            rightY * x + upY * y + forwardY * z,
+            rightZ * x + upZ * y + forwardZ * z
+        );
+    }
+}
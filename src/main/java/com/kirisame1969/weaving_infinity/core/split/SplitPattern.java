@@ -0,0 +1,117 @@
+/**
+ * 分裂图案
+ *
+ * 描述分裂子弹的方向分布。每种图案在局部坐标系中生成一组单位向量：
+ * +Z 为前方（撞击方向），+Y 为上方，+X 为右方。
+ * 生成结果由 SplitPatternTables 按（图案, 数量）缓存，生成子弹时只需查表并旋转到撞击方向。
+ */
+package com.kirisame1969.weaving_infinity.core.split;
+
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+
+import java.util.Random;
+
+public enum SplitPattern {
+    // 水平环形：以 angle_between_shots 为间隔排列在水平面内，保持原有的分裂效果
+    RING("ring", true),
+    // 圆锥：均匀分布在以撞击方向为轴、半角为 cone_angle 的圆锥面上
+    CONE("cone", false),
+    // 斐波那契球面：近似均匀地覆盖整个球面
+    FIBONACCI_SPHERE("fibonacci_sphere", false),
+    // 随机：由 random_seed 决定的球面随机方向，同一配置下结果固定
+    RANDOM("random", false);
+
+    // 黄金角（弧度）
+    private static final double GOLDEN_ANGLE = Math.PI * (3.0 - Math.sqrt(5.0));
+
+    private final String name;
+    private final boolean horizontal;
+
+    SplitPattern(String name, boolean horizontal) {
+        this.name = name;
+        this.horizontal = horizontal;
+    }
+
+    /**
+     * 获取图案在配置文件中的名称
+     * @return 图案名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 图案是否只使用撞击方向的水平分量定向（保持在水平面内）
+     * @return 是否水平
+     */
+    public boolean isHorizontal() {
+        return horizontal;
+    }
+
+    /**
+     * 根据名称查找图案
+     * @param name 图案名称
+     * @return 图案，找不到时返回null
+     */
+    public static SplitPattern byName(String name) {
+        for (SplitPattern pattern : values()) {
+            if (pattern.name.equals(name)) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成图案的单位向量表
+     * @param count 方向数量
+     * @param config 分裂模块配置
+     * @return 按 x, y, z 顺序排列的向量表，长度为 count * 3
+     */
+    double[] generate(int count, ModuleConfig.SplitModuleConfig config) {
+        double[] table = new double[count * 3];
+        switch (this) {
+            case RING -> {
+                for (int i = 0; i < count; i++) {
+                    double yaw = Math.toRadians(i * config.angleBetweenShots);
+                    set(table, i, -Math.sin(yaw), 0.0, Math.cos(yaw));
+                }
+            }
+            case CONE -> {
+                double halfAngle = Math.toRadians(config.coneAngle);
+                double sin = Math.sin(halfAngle);
+                double cos = Math.cos(halfAngle);
+                for (int i = 0; i < count; i++) {
+                    double phi = 2.0 * Math.PI * i / count;
+                    set(table, i, sin * Math.cos(phi), sin * Math.sin(phi), cos);
+                }
+            }
+            case FIBONACCI_SPHERE -> {
+                for (int i = 0; i < count; i++) {
+                    double y = 1.0 - 2.0 * (i + 0.5) / count;
+                    double radius = Math.sqrt(1.0 - y * y);
+                    double theta = GOLDEN_ANGLE * i;
+                    set(table, i, radius * Math.cos(theta), y, radius * Math.sin(theta));
+                }
+            }
+            case RANDOM -> {
+                Random random = new Random(config.randomSeed ^ (long) count);
+                for (int i = 0; i < count; i++) {
+                    // 在球面上均匀取点
+                    double y = random.nextDouble() * 2.0 - 1.0;
+                    double radius = Math.sqrt(1.0 - y * y);
+                    double theta = random.nextDouble() * 2.0 * Math.PI;
+                    set(table, i, radius * Math.cos(theta), y, radius * Math.sin(theta));
+                }
+            }
+        }
+        return table;
+    }
+
+    private static void set(double[] table, int index, double x, double y, double z) {
+        double length = Math.sqrt(x * x + y * y + z * z);
+        table[index * 3] = x / length;
+        table[index * 3 + 1] = y / length;
+        table[index * 3 + 2] = z / length;
+    }
+}
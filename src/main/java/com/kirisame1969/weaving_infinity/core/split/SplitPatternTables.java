@@ -0,0 +1,66 @@
+/**
+ * 分裂图案表缓存
+ *
+ * 按（图案, 数量）缓存 SplitPattern 生成的单位向量表。配置重载后（版本号变化）丢弃全部缓存，
+ * 并立即为当前配置的图案和分裂数量重新生成，生成子弹时只需查表，不再逐个计算三角函数。
+ */
+package com.kirisame1969.weaving_infinity.core.split;
+
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class SplitPatternTables {
+    // （图案, 数量） -> 单位向量表
+    private static final ConcurrentMap<Long, double[]> TABLES = new ConcurrentHashMap<>();
+
+    // 缓存对应的配置版本号
+    private static volatile long cachedEpoch = -1L;
+
+    private SplitPatternTables() {}
+
+    /**
+     * 获取图案的单位向量表
+     * @param pattern 分裂图案
+     * @param count 方向数量
+     * @return 按 x, y, z 顺序排列的向量表，调用方不得修改
+     */
+    public static double[] get(SplitPattern pattern, int count) {
+        ModuleConfig config = ModuleConfig.getInstance();
+        if (cachedEpoch != config.getEpoch()) {
+            rebuild(config);
+        }
+        return TABLES.computeIfAbsent(key(pattern, count), k -> pattern.generate(count, config.splitModule));
+    }
+
+    /**
+     * 将表中第 index 个方向从局部坐标旋转到世界坐标
+     * @param table 单位向量表
+     * @param index 方向序号
+     * @param basis 撞击方向的基
+     * @return 世界坐标中的单位方向
+     */
+    public static Vec3 orient(double[] table, int index, SplitBasis basis) {
+        return basis.apply(table[index * 3], table[index * 3 + 1], table[index * 3 + 2]);
+    }
+
+    private static synchronized void rebuild(ModuleConfig config) {
+        if (cachedEpoch == config.getEpoch()) {
+            return;
+        }
+        TABLES.clear();
+        // 预先生成当前配置使用的表
+        SplitPattern pattern = SplitPattern.byName(config.splitModule.pattern);
+        if (pattern != null && config.splitModule.splitCount > 0) {
+            int count = config.splitModule.splitCount;
+            TABLES.put(key(pattern, count), pattern.generate(count, config.splitModule));
+        }
+        cachedEpoch = config.getEpoch();
+    }
+
+    private static long key(SplitPattern pattern, int count) {
+        return ((long) pattern.ordinal() << 32) | (count & 0xFFFFFFFFL);
+    }
+}
@@ -7,25 +7,213 @@
 package com.kirisame1969.weaving_infinity.event;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
 import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
 import com.kirisame1969.weaving_infinity.module.modules.modifier.SplitOnHitModifier;
 import com.kirisame1969.weaving_infinity.module.modules.modifier.ExplodeOnHitModifier;
+import com.kirisame1969.weaving_infinity.api.module.ContextKeys;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
+import com.kirisame1969.weaving_infinity.core.cast.CastSequenceTracker;
+import com.kirisame1969.weaving_infinity.core.effect.ExplosionBatcher;
+import com.kirisame1969.weaving_infinity.core.effect.ImpactEffectBatcher;
+import com.kirisame1969.weaving_infinity.core.metrics.SpellMetrics;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBroadphase;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBudget;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileLineage;
+import com.kirisame1969.weaving_infinity.core.registry.DataModuleLoader;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleTags;
+import com.kirisame1969.weaving_infinity.core.schedule.SpellScheduler;
+import com.kirisame1969.weaving_infinity.network.AdmissionLimitsPayload;
+import com.kirisame1969.weaving_infinity.network.DataModulesPayload;
+import com.kirisame1969.weaving_infinity.network.ModuleIdMapPayload;
 import io.redspace.ironsspellbooks.entity.spells.fireball.SmallMagicFireball;
 import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.entity.projectile.Projectile;
 import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.Vec3;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.event.AddReloadListenerEvent;
+import net.neoforged.neoforge.event.OnDatapackSyncEvent;
+import net.neoforged.neoforge.event.entity.EntityEvent;
+import net.neoforged.neoforge.event.entity.EntityJoinLevelEvent;
+import net.neoforged.neoforge.event.entity.EntityLeaveLevelEvent;
 import net.neoforged.neoforge.event.entity.ProjectileImpactEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import net.minecraft.world.level.Level;
 
+import java.util.Set;
+
 @EventBusSubscriber(modid = WeavingInfinity.MODID)
 public class ModEventHandler {
+    // 上一次向玩家同步准入上限时的配置版本号
+    private static long syncedConfigEpoch = ModuleConfig.currentEpoch();
+    
+    /**
+     * 世界刻开始时重置法术调度器的时间预算
+     * @param event 世界刻事件
+     */
+    @SubscribeEvent
+    public static void onLevelTickPre(LevelTickEvent.Pre event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            SpellScheduler.forLevel(serverLevel).beginTick();
+        }
+    }
+    
+    /**
+     * 世界刻结束时在剩余预算内执行排队的法术工作，结算本刻合并后的爆炸并发送撞击效果
+     * @param event 世界刻事件
+     */
+    @SubscribeEvent
+    public static void onLevelTickPost(LevelTickEvent.Post event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            SpellScheduler.forLevel(serverLevel).drain();
+            ExplosionBatcher.forLevel(serverLevel).flush(serverLevel);
+            // 爆炸结算后再发送撞击效果，本刻产生的爆炸效果也能合并进同一个数据包
+            ImpactEffectBatcher.forLevel(serverLevel).flush(serverLevel);
+        }
+    }
+    
+    /**
+     * 服务器刻结束时结转法术指标的计数
+     * @param event 服务器刻事件
+     */
+    @SubscribeEvent
+    public static void onServerTickPost(ServerTickEvent.Post event) {
+        SpellMetrics.tick();
+        
+        // 配置重载后把新的准入上限发送给所有玩家
+        long epoch = ModuleConfig.currentEpoch();
+        if (epoch != syncedConfigEpoch) {
+            syncedConfigEpoch = epoch;
+            PacketDistributor.sendToAllPlayers(AdmissionLimitsPayload.current());
+        }
+    }
+    
+    /**
+     * 法术投射物加入世界时登记到投射物预算，所有实体都会通知碰撞粗检测索引
+     * @param event 实体加入世界事件
+     */
+    @SubscribeEvent
+    public static void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        if (event.getEntity() instanceof CustomFireball fireball) {
+            ProjectileBudget.forLevel(serverLevel).track(fireball);
+        }
+        markBroadphaseDirty(serverLevel, event.getEntity());
+    }
+    
+    /**
+     * 法术投射物离开世界时从投射物预算中注销，所有实体都会通知碰撞粗检测索引
+     * @param event 实体离开世界事件
+     */
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        if (event.getEntity() instanceof CustomFireball fireball) {
+            ProjectileBudget.forLevel(serverLevel).untrack(fireball);
+        }
+        markBroadphaseDirty(serverLevel, event.getEntity());
+    }
+    
+    /**
+     * 实体跨越区段时通知碰撞粗检测索引
+     * @param event 实体进入区段事件
+     */
+    @SubscribeEvent
+    public static void onEntityEnteringSection(EntityEvent.EnteringSection event) {
+        if (event.getEntity().level() instanceof ServerLevel serverLevel) {
+            markBroadphaseDirty(serverLevel, event.getEntity());
+        }
+    }
+    
+    private static void markBroadphaseDirty(ServerLevel level, Entity entity) {
+        // 索引尚未创建时无需记录，创建时会放入世界内的所有实体
+        ProjectileBroadphase broadphase = ProjectileBroadphase.getIfPresent(level);
+        if (broadphase != null) {
+            broadphase.markDirty(entity);
+        }
+    }
+    
+    /**
+     * 世界卸载时丢弃其调度器、投射物预算、效果队列和碰撞粗检测索引
+     * @param event 世界卸载事件
+     */
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            SpellScheduler.remove(serverLevel);
+            ProjectileBudget.remove(serverLevel);
+            ExplosionBatcher.remove(serverLevel);
+            ImpactEffectBatcher.remove(serverLevel);
+            ProjectileBroadphase.remove(serverLevel);
+        }
+    }
+    
+    /**
+     * 注册数据包模块的重载监听器
+     * @param event 重载监听器注册事件
+     */
+    @SubscribeEvent
+    public static void onAddReloadListeners(AddReloadListenerEvent event) {
+        event.addListener(DataModuleLoader.INSTANCE);
+    }
+    
+    /**
+     * 服务器停止时卸载数据包模块并清空法术计划缓存
+     * 单人游戏在同一进程中切换世界时，上一个世界的数据包模块和数字ID不能带到下一个世界
+     * @param event 服务器停止事件
+     */
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        DataModuleLoader.INSTANCE.reset();
+        SpellPlanCache.invalidateAll();
+        syncedConfigEpoch = ModuleConfig.currentEpoch();
+    }
+    
+    /**
+     * 玩家登录和 /reload 后同步数据包模块定义、模块数字ID表（数据包模块可能已经变化）和准入上限
+     * @param event 数据包同步事件
+     */
+    @SubscribeEvent
+    public static void onDatapackSync(OnDatapackSyncEvent event) {
+        DataModulesPayload modules = DataModulesPayload.current();
+        ModuleIdMapPayload payload = ModuleIdMapPayload.current();
+        AdmissionLimitsPayload limits = AdmissionLimitsPayload.current();
+        if (event.getPlayer() != null) {
+            PacketDistributor.sendToPlayer(event.getPlayer(), modules, payload, limits);
+        } else {
+            PacketDistributor.sendToAllPlayers(modules, payload, limits);
+        }
+    }
+    
+    /**
+     * 玩家退出时丢弃尚未使用的施法序号
+     * @param event 玩家退出事件
+     */
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            CastSequenceTracker.clear(player);
+        }
+    }
     
     /**
      * 监听弹射物撞击事件
@@ -34,36 +222,45 @@ public class ModEventHandler {
      */
     @SubscribeEvent
     public static void onProjectileImpact(ProjectileImpactEvent event) {
-        // 检查是否是我们模组的火球，并且不是分裂产生的火球
-        Projectile projectile = event.getProjectile();
-        
-        // 处理SmallMagicFireball（向后兼容）
-        if (projectile instanceof SmallMagicFireball fireball && 
-            fireball.getTags().contains("weaving_infinity_fireball") &&
-            !fireball.getTags().contains("weaving_infinity_split_fireball")) {
-            
-            processFireballImpact(fireball.level(), fireball.getOwner(), event.getRayTraceResult());
-        }
-        // 处理自定义火球
-        else if (projectile instanceof CustomFireball customFireball &&
-                 customFireball.getTags().contains("weaving_infinity_fireball") &&
-                 !customFireball.getTags().contains("weaving_infinity_split_fireball")) {
-            
-            // 自定义火球通过实体内部方法处理，不需要在这里重复处理
+        // 自定义火球通过实体内部方法处理，这里只处理旧版本生成的SmallMagicFireball（向后兼容）
+        // 先按类型过滤，世界中的其他投射物不需要读取标签集合
+        if (event.getProjectile() instanceof SmallMagicFireball fireball) {
+            Set<String> tags = fireball.getTags();
+            if (tags.contains(ProjectileLineage.LEGACY_SPELL_TAG) && !tags.contains(ProjectileLineage.LEGACY_SPLIT_TAG)) {
+                processFireballImpact(fireball.level(), fireball.getOwner(), event.getRayTraceResult());
+            }
         }
     }
     
     /**
      * 处理自定义火球的撞击事件（由CustomFireball实体直接调用）
+     * 火球在生成时已绑定法术计划和施法参数，这里直接分派，不再读取施法者的手持物品
      * @param fireball 自定义火球实体
      * @param hitPos 撞击位置
      */
     public static void onCustomFireballHit(CustomFireball fireball, Vec3 hitPos) {
-        processFireballImpact(fireball.level(), fireball.getOwner(), hitPos);
+        if (!(fireball.level() instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        
+        SpellPlan plan = fireball.getBoundPlan();
+        if (plan.isEmpty()) {
+            return;
+        }
+        
+        LivingEntity caster = fireball.getOwner() instanceof LivingEntity living ? living : null;
+        ModuleExecutionContext context = null;
+        if (caster != null) {
+            context = new ModuleExecutionContext(serverLevel, caster, fireball.getCastSource(), fireball.getDeltaMovement().normalize(), hitPos);
+            // 分裂出的子弹继承计划和谱系
+            context.plan = plan;
+            context.putInt(ContextKeys.LINEAGE, fireball.getLineage());
+        }
+        processPlanImpact(serverLevel, plan, caster, context, hitPos);
     }
     
     /**
-     * 统一处理火球撞击的通用逻辑
+     * 统一处理火球撞击的通用逻辑（用于没有绑定计划的旧版火球）
      * @param level 世界
      * @param owner 火球拥有者
      * @param hitResult 撞击结果
@@ -73,67 +270,47 @@ public class ModEventHandler {
             return;
         }
         
-        Vec3 hitPos = getHitPosition(hitResult);
-        processFireballImpact(level, owner, hitPos);
+        if (level instanceof ServerLevel serverLevel && owner instanceof LivingEntity livingOwner) {
+            // 检查施法者是否持有法术核心物品
+            var mainHandItem = livingOwner.getMainHandItem();
+            if (mainHandItem.getItem() instanceof SpellCoreItem) {
+                SpellPlan plan = SpellCoreItem.getSpellPlan(mainHandItem);
+                var context = new ModuleExecutionContext(level, livingOwner, io.redspace.ironsspellbooks.api.spells.CastSource.SPELLBOOK);
+                processPlanImpact(serverLevel, plan, livingOwner, context, getHitPosition(hitResult));
+            }
+        }
     }
     
     /**
-     * 统一处理火球撞击的通用逻辑（重载版本，直接接受撞击位置）
-     * @param level 世界
-     * @param owner 火球拥有者
+     * 根据法术计划触发撞击效果
+     * @param level 服务器世界
+     * @param plan 法术计划
+     * @param caster 施法者，可能为null（例如已离线）
+     * @param context 模块执行上下文，施法者为null时为null
      * @param hitPos 撞击位置
      */
-    private static void processFireballImpact(Level level, net.minecraft.world.entity.Entity owner, Vec3 hitPos) {
-        if (level instanceof net.minecraft.server.level.ServerLevel serverLevel) {
-            // 检查施法者是否持有法术核心物品
-            LivingEntity livingOwner = null;
-            if (owner instanceof LivingEntity) {
-                livingOwner = (LivingEntity) owner;
-            }
-            
-            var mainHandItem = livingOwner != null ? livingOwner.getMainHandItem() : null;
-            if (mainHandItem != null && mainHandItem.getItem() instanceof SpellCoreItem) {
-                // 获取模块列表并触发火球击中事件
-                var modules = SpellCoreItem.getModules(mainHandItem);
-                
-                // 查找第一个基础模块作为原始模块
-                ISpellModule originalModule = null;
-                for (ISpellModule module : modules) {
-                    if (module.getModuleType() == com.kirisame1969.weaving_infinity.api.module.ModuleType.BASE) {
-                        originalModule = module;
-                        break;
-                    }
-                }
-                
-                // 检查是否有爆炸模块，如果有则触发爆炸效果
-                if (hasExplodeModule(modules)) {
-                    ExplodeOnHitModifier.createExplosionEffect(serverLevel, hitPos);
-                }
-                
-                // 如果找到了基础模块且有分裂修饰模块，则触发分裂效果
-                if (originalModule != null && hasSplitModule(modules)) {
-                    // 如果施法者为null，使用火球的位置作为备用
-                    if (livingOwner == null) {
-                        livingOwner = getNearbyLivingEntity(serverLevel, hitPos);
-                    }
-                    
-                    // 确保我们有有效的施法者
-                    if (livingOwner != null) {
-                        // 创建模块执行上下文
-                        var context = new com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext(
-                            level, livingOwner, io.redspace.ironsspellbooks.api.spells.CastSource.SPELLBOOK);
-                        
-                        // 触发通用的分裂效果
-                        SplitOnHitModifier.createSplitEffect(
-                            serverLevel, 
-                            livingOwner, 
-                            hitPos,
-                            originalModule,
-                            context
-                        );
-                    }
-                }
-            }
+    private static void processPlanImpact(ServerLevel level, SpellPlan plan, LivingEntity caster, ModuleExecutionContext context, Vec3 hitPos) {
+        SpellMetrics.IMPACTS.increment();
+        
+        // 计划中预先记录了第一个基础模块作为原始模块
+        ISpellModule originalModule = plan.primaryBase();
+        
+        // 检查是否有爆炸模块，如果有则触发爆炸效果
+        if (plan.hasTag(ModuleTags.EXPLODE)) {
+            ExplodeOnHitModifier.createExplosionEffect(level, hitPos);
+        }
+        
+        // 如果找到了基础模块且有分裂修饰模块，则触发分裂效果
+        // 分裂出的子火球需要施法者作为拥有者，施法者不存在时跳过
+        if (originalModule != null && plan.hasTag(ModuleTags.SPLIT) && caster != null) {
+            // 触发通用的分裂效果
+            SplitOnHitModifier.createSplitEffect(
+                level, 
+                caster, 
+                hitPos,
+                originalModule,
+                context
+            );
         }
     }
     
@@ -151,50 +328,4 @@ public class ModEventHandler {
             return Vec3.ZERO;
         }
     }
-    
-    /**
-     * 在指定位置附近查找活着的实体作为备用施法者
-     * @param level 服务器世界
-     * @param pos 位置
-     * @return 附近的活体实体
-     */
-    private static LivingEntity getNearbyLivingEntity(net.minecraft.server.level.ServerLevel level, Vec3 pos) {
-        // 查找附近2格范围内的玩家作为备用施法者
-        var players = level.getEntitiesOfClass(net.minecraft.world.entity.player.Player.class, 
-            net.minecraft.world.phys.AABB.ofSize(pos, 2, 2, 2));
-        if (!players.isEmpty()) {
-            return players.get(0);
-        }
-        return null;
-    }
-    
-    /**
-     * 检查模块列表中是否包含分裂模块
-     * @param modules 模块列表
-     * @return 是否包含分裂模块
-     */
-    private static boolean hasSplitModule(java.util.List<ISpellModule> modules) {
-        for (ISpellModule module : modules) {
-            if (module.getModuleType() == com.kirisame1969.weaving_infinity.api.module.ModuleType.MODIFIER && 
-                module.getId().toString().equals("weaving_infinity:split_on_hit")) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
-    /**
-     * 检查模块列表中是否包含爆炸模块
-     * @param modules 模块列表
-     * @return 是否包含爆炸模块
-     */
-    private static boolean hasExplodeModule(java.util.List<ISpellModule> modules) {
-        for (ISpellModule module : modules) {
-            if (module.getModuleType() == com.kirisame1969.weaving_infinity.api.module.ModuleType.MODIFIER && 
-                module.getId().toString().equals("weaving_infinity:explode_on_hit")) {
-                return true;
-            }
-        }
-        return false;
-    }
 }
\ No newline at end of file
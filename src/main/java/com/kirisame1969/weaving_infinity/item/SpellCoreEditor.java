@@ -0,0 +1,310 @@
+/**
+ * 法术核心编辑器
+ *
+ * 在布局的一份工作副本上执行任意数量的插入、删除、移动和替换操作，
+ * 提交时只校验一次（槽位数量、模块是否存在、服务器开销上限），并且只写入一次布局组件，
+ * 物品堆只产生一次组件变化和一次背包同步。布局没有变化时不写入。
+ *
+ * 用法：
+ * SpellCoreEditor.open(stack).append("weaving_infinity:fireball").move(0, 1).commit();
+ *
+ * applyAll 对一批物品堆执行相同的编辑，用于批量调整在线玩家背包中的所有法术核心。
+ *
+ * 所有带索引的操作在索引越界时抛出 IndexOutOfBoundsException，工作副本保持不变：
+ * - remove、clearSlot 和 move 的原位置必须是已有的槽位（0 ~ 槽位数量-1）
+ * - insert 的位置可以等于槽位数量（追加到末尾），move 的目标位置是移动完成后模块所在的位置
+ * - set 的位置在最大槽位数量以内（0 ~ getMaxSlots()-1），超出当前槽位数量时用空槽位补齐
+ * 索引来自玩家输入时由调用者先检查范围。
+ */
+package com.kirisame1969.weaving_infinity.item;
+
+import com.kirisame1969.weaving_infinity.core.plan.SpellCostAnalyzer;
+import com.kirisame1969.weaving_infinity.core.plan.SpellCostReport;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import com.kirisame1969.weaving_infinity.registries.ModDataComponents;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+public final class SpellCoreEditor {
+    private final ItemStack stack;
+    private final SpellLayout original;
+
+    // 工作副本，空字符串表示空槽位
+    private final List<String> working;
+
+    // 最近一次校验时得到的开销上限拒绝原因
+    private Component rejection;
+
+    private SpellCoreEditor(ItemStack stack) {
+        this.stack = stack;
+        this.original = stack.getOrDefault(ModDataComponents.SPELL_LAYOUT.get(), SpellLayout.EMPTY);
+        this.working = new ArrayList<>(original.modules());
+    }
+
+    /**
+     * 打开物品堆的编辑器
+     * @param stack 法术核心物品堆
+     * @return 编辑器
+     */
+    public static SpellCoreEditor open(ItemStack stack) {
+        return new SpellCoreEditor(stack);
+    }
+
+    /**
+     * 把模块放入第一个空槽位，没有空槽位时追加到末尾
+     * @param moduleId 模块ID
+     * @return 编辑器本身
+     */
+    public SpellCoreEditor append(String moduleId) {
+        int empty = working.indexOf("");
+        if (empty >= 0) {
+            working.set(empty, moduleId);
+        } else {
+            working.add(moduleId);
+        }
+        return this;
+    }
+
+    /**
+     * 在指定位置插入模块，之后的模块依次后移
+     * @param index 插入位置，可以等于当前槽位数量
+     * @param moduleId 模块ID
+     * @return 编辑器本身
+     * @throws IndexOutOfBoundsException 位置越界
+     */
+    public SpellCoreEditor insert(int index, String moduleId) {
+        Objects.checkIndex(index, working.size() + 1);
+        working.add(index, moduleId);
+        return this;
+    }
+
+    /**
+     * 替换指定槽位的模块，槽位不足时用空槽位补齐
+     * @param index 槽位索引，小于最大槽位数量
+     * @param moduleId 模块ID
+     * @return 编辑器本身
+     * @throws IndexOutOfBoundsException 槽位索引越界
+     */
+    public SpellCoreEditor set(int index, String moduleId) {
+        Objects.checkIndex(index, Math.max(working.size(), SpellCoreItem.getMaxSlots()));
+        while (working.size() <= index) {
+            working.add("");
+        }
+        working.set(index, moduleId);
+        return this;
+    }
+
+    /**
+     * 删除指定位置的模块，之后的模块依次前移
+     * @param index 槽位索引
+     * @return 编辑器本身
+     * @throws IndexOutOfBoundsException 槽位索引越界
+     */
+    public SpellCoreEditor remove(int index) {
+        Objects.checkIndex(index, working.size());
+        working.remove(index);
+        return this;
+    }
+
+    /**
+     * 清空指定槽位，其他模块的位置不变
+     * @param index 槽位索引
+     * @return 编辑器本身
+     * @throws IndexOutOfBoundsException 槽位索引越界
+     */
+    public SpellCoreEditor clearSlot(int index) {
+        Objects.checkIndex(index, working.size());
+        working.set(index, "");
+        return this;
+    }
+
+    /**
+     * 把模块从一个位置移动到另一个位置
+     * @param from 原位置
+     * @param to 目标位置
+     * @return 编辑器本身
+     * @throws IndexOutOfBoundsException 任一位置越界
+     */
+    public SpellCoreEditor move(int from, int to) {
+        // 先检查两个位置，避免移除后才发现目标越界而丢失模块
+        Objects.checkIndex(from, working.size());
+        Objects.checkIndex(to, working.size());
+        working.add(to, working.remove(from));
+        return this;
+    }
+
+    /**
+     * 把布局中所有指定模块替换为另一个模块
+     * @param from 被替换的模块ID
+     * @param to 新模块ID，空字符串表示清空这些槽位
+     * @return 编辑器本身
+     */
+    public SpellCoreEditor replaceAll(String from, String to) {
+        Collections.replaceAll(working, from, to);
+        return this;
+    }
+
+    /**
+     * 清空所有槽位
+     * @return 编辑器本身
+     */
+    public SpellCoreEditor clear() {
+        working.clear();
+        return this;
+    }
+
+    /**
+     * 获取工作副本的只读视图
+     * @return 模块ID列表，空字符串表示空槽位
+     */
+    public List<String> layout() {
+        return Collections.unmodifiableList(working);
+    }
+
+    /**
+     * 工作副本是否与打开时的布局不同（忽略末尾的空槽位）
+     * @return 是否有变化
+     */
+    public boolean isChanged() {
+        return !trimmed().equals(original.modules());
+    }
+
+    /**
+     * 校验工作副本
+     * 只检查本次编辑放入的模块：原布局中已有的未注册模块（例如已删除的数据包模块）可以原样保留或随移动改变位置，
+     * 但出现的次数不能超过原布局，编辑不能借此把未注册的模块写入新的槽位
+     * @return 校验结果
+     */
+    public Status validate() {
+        rejection = null;
+        List<String> layout = trimmed();
+        if (layout.size() > SpellCoreItem.getMaxSlots()) {
+            return Status.SLOTS_FULL;
+        }
+        Map<String, Integer> carried = null;
+        for (String moduleId : layout) {
+            if (moduleId.isEmpty() || ModuleRegistry.hasModule(moduleId)) {
+                continue;
+            }
+            if (carried == null) {
+                carried = new HashMap<>();
+                for (String originalId : original.modules()) {
+                    carried.merge(originalId, 1, Integer::sum);
+                }
+            }
+            // 每出现一次消耗原布局中的一次
+            if (carried.merge(moduleId, -1, Integer::sum) < 0) {
+                return Status.UNKNOWN_MODULE;
+            }
+        }
+        // 不比原布局更差的编辑（例如删除模块）总是允许，已经超出上限的法术核心仍然可以被削减
+        // 未提交的布局不驻留，被拒绝的布局不会留在计划缓存中
+        SpellCostReport report = SpellPlanCache.compileTransient(layout).costReport();
+        if (report.isNoWorseThan(SpellPlanCache.forComponent(original).costReport())) {
+            return Status.OK;
+        }
+        rejection = SpellCostAnalyzer.checkAdmission(report);
+        return rejection != null ? Status.OVER_LIMIT : Status.OK;
+    }
+
+    /**
+     * 校验并写回物品堆，布局没有变化时不写入
+     * @return 提交结果，校验失败时物品堆保持不变
+     */
+    public Status commit() {
+        if (!isChanged()) {
+            return Status.UNCHANGED;
+        }
+        Status status = validate();
+        if (status != Status.OK) {
+            return status;
+        }
+        List<String> layout = trimmed();
+        if (layout.isEmpty()) {
+            stack.remove(ModDataComponents.SPELL_LAYOUT.get());
+        } else {
+            stack.set(ModDataComponents.SPELL_LAYOUT.get(), new SpellLayout(layout));
+        }
+        return Status.OK;
+    }
+
+    /**
+     * 获取最近一次校验超出服务器开销上限的原因
+     * @return 拒绝原因，未超出时返回null
+     */
+    public Component getRejection() {
+        return rejection;
+    }
+
+    /**
+     * 对一批物品堆执行相同的编辑并提交，非法术核心的物品堆会被跳过
+     * @param stacks 物品堆
+     * @param edits 对每个编辑器执行的操作
+     * @return 汇总结果
+     */
+    public static BulkResult applyAll(Iterable<ItemStack> stacks, Consumer<SpellCoreEditor> edits) {
+        int scanned = 0;
+        int changed = 0;
+        int rejected = 0;
+        for (ItemStack stack : stacks) {
+            if (!(stack.getItem() instanceof SpellCoreItem)) {
+                continue;
+            }
+            scanned++;
+            SpellCoreEditor editor = open(stack);
+            edits.accept(editor);
+            Status status = editor.commit();
+            if (status == Status.OK) {
+                changed++;
+            } else if (status != Status.UNCHANGED) {
+                rejected++;
+            }
+        }
+        return new BulkResult(scanned, changed, rejected);
+    }
+
+    /**
+     * 去掉末尾空槽位后的工作副本
+     */
+    private List<String> trimmed() {
+        int end = working.size();
+        while (end > 0 && working.get(end - 1).isEmpty()) {
+            end--;
+        }
+        return working.subList(0, end);
+    }
+
+    /**
+     * 校验和提交的结果
+     */
+    public enum Status {
+        // 已写回
+        OK,
+        // 布局没有变化，未写入
+        UNCHANGED,
+        // 模块数量超过槽位数量
+        SLOTS_FULL,
+        // 放入了未注册的模块
+        UNKNOWN_MODULE,
+        // 最坏情况的开销超过服务器上限，原因见 getRejection
+        OVER_LIMIT
+    }
+
+    /**
+     * 批量编辑的汇总结果
+     * @param scanned 检查的法术核心数量
+     * @param changed 成功修改的数量
+     * @param rejected 校验失败而未修改的数量
+     */
+    public record BulkResult(int scanned, int changed, int rejected) {}
+}
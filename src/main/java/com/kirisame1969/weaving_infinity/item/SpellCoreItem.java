@@ -7,22 +7,37 @@
 package com.kirisame1969.weaving_infinity.item;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.api.module.ContextKeys;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
 import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
+import com.kirisame1969.weaving_infinity.common.proxy.CommonProxy;
 import com.kirisame1969.weaving_infinity.core.ModuleExecutor;
+import com.kirisame1969.weaving_infinity.core.cast.CastSequenceTracker;
+import com.kirisame1969.weaving_infinity.core.plan.SpellCostAnalyzer;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlan;
+import com.kirisame1969.weaving_infinity.core.plan.SpellPlanCache;
 import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import com.kirisame1969.weaving_infinity.network.CastRejectedPayload;
+import com.kirisame1969.weaving_infinity.registries.ModDataComponents;
+import net.minecraft.ChatFormatting;
+import net.minecraft.core.component.DataComponents;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.InteractionResultHolder;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.TooltipFlag;
+import net.minecraft.world.item.component.CustomData;
 import net.minecraft.world.level.Level;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
-import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.neoforged.neoforge.network.PacketDistributor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +46,9 @@ public class SpellCoreItem extends Item {
     // 物品的最大模块槽数量
     private static final int MAX_SLOTS = 3;
     
+    // 旧版本在自定义数据中保存布局使用的键
+    private static final String LEGACY_MODULES_KEY = "modules";
+    
     public SpellCoreItem(Properties properties) {
         super(properties);
     }
@@ -40,70 +58,143 @@ public class SpellCoreItem extends Item {
         ItemStack itemStack = player.getItemInHand(hand);
         
         if (!level.isClientSide) {
-            // 获取已安装的模块列表
-            List<ISpellModule> modules = getModules(itemStack);
+            // 获取已编译的法术计划
+            SpellPlan plan = getSpellPlan(itemStack);
+            
+            // 客户端预测本次施法时已经提前发送了序号
+            int castSequence = player instanceof ServerPlayer serverPlayer ? CastSequenceTracker.take(serverPlayer) : 0;
             
-            if (!modules.isEmpty()) {
+            if (!plan.isEmpty()) {
+                // 最坏情况的开销超过服务器上限时拒绝施放
+                Component rejection = SpellCostAnalyzer.checkAdmission(plan.costReport());
+                if (rejection != null) {
+                    player.displayClientMessage(Component.translatable("message.weaving_infinity.spell_rejected", rejection)
+                        .withStyle(ChatFormatting.RED), true);
+                    rejectPrediction(player, castSequence);
+                    return InteractionResultHolder.fail(itemStack);
+                }
+                
                 // 创建执行上下文
                 ModuleExecutionContext context = new ModuleExecutionContext(
                     level, 
                     player, 
                     io.redspace.ironsspellbooks.api.spells.CastSource.SPELLBOOK
                 );
+                context.putInt(ContextKeys.CAST_SEQUENCE, castSequence);
                 
                 // 执行所有模块
-                ModuleExecutor.executeModules(modules, context);
+                ModuleExecutor.executeModules(plan, context);
+            } else {
+                rejectPrediction(player, castSequence);
             }
+        } else {
+            // 在服务器确认之前先在本地显示即将发射的火球
+            CommonProxy.get().predictCast(player, getSpellPlan(itemStack));
         }
         
         return InteractionResultHolder.success(itemStack);
     }
     
+    /**
+     * 通知客户端移除被拒绝的预测施法
+     * @param player 施法的玩家
+     * @param castSequence 施法序号，0表示客户端没有预测
+     */
+    public static void rejectPrediction(Player player, int castSequence) {
+        if (castSequence != 0 && player instanceof ServerPlayer serverPlayer) {
+            PacketDistributor.sendToPlayer(serverPlayer, new CastRejectedPayload(castSequence));
+        }
+    }
+    
+    @Override
+    public void verifyComponentsAfterLoad(ItemStack stack) {
+        // 从存档或网络加载物品时迁移旧版本的布局
+        migrateLegacyLayout(stack);
+    }
+    
+    @Override
+    public void inventoryTick(ItemStack stack, Level level, Entity entity, int slotId, boolean isSelected) {
+        // 通过命令等方式直接写入旧格式的物品，在进入玩家背包后迁移
+        if (!level.isClientSide) {
+            migrateLegacyLayout(stack);
+        }
+    }
+    
     @Override
     public void appendHoverText(ItemStack stack, TooltipContext context, List<Component> tooltipComponents, TooltipFlag tooltipFlag) {
         super.appendHoverText(stack, context, tooltipComponents, tooltipFlag);
         
-        // 显示已安装的模块
-        List<ISpellModule> modules = getModules(stack);
-        if (modules.isEmpty()) {
-            tooltipComponents.add(Component.translatable("item.weaving_infinity.spell_core.no_modules"));
+        // 提示框打开时每帧都会调用，行内容按布局组件缓存在客户端
+        tooltipComponents.addAll(CommonProxy.get().spellCoreTooltip(stack.get(ModDataComponents.SPELL_LAYOUT.get())));
+    }
+    
+    /**
+     * 生成法术计划的提示框内容
+     * @param plan 法术计划
+     * @return 提示框行（只读）
+     */
+    public static List<Component> buildTooltipLines(SpellPlan plan) {
+        List<Component> lines = new ArrayList<>();
+        
+        // 显示已安装的模块，本地无法解析的模块（例如没有同步到的数据包模块）显示为占位行而不是直接消失
+        int occupied = 0;
+        for (String moduleId : plan.layout()) {
+            if (!moduleId.isEmpty()) {
+                occupied++;
+            }
+        }
+        if (occupied == 0) {
+            lines.add(Component.translatable("item.weaving_infinity.spell_core.no_modules"));
         } else {
-            tooltipComponents.add(Component.translatable("item.weaving_infinity.spell_core.modules"));
-            for (ISpellModule module : modules) {
-                tooltipComponents.add(Component.literal("- ").append(module.getDisplayName()));
+            lines.add(Component.translatable("item.weaving_infinity.spell_core.modules"));
+            for (String moduleId : plan.layout()) {
+                if (moduleId.isEmpty()) {
+                    continue;
+                }
+                ISpellModule module = ModuleRegistry.getModule(moduleId);
+                Component name = module != null
+                    ? ModuleRegistry.getDisplayName(module)
+                    : Component.translatable("item.weaving_infinity.spell_core.unknown_module", moduleId).withStyle(ChatFormatting.RED);
+                lines.add(Component.literal("- ").append(name));
+            }
+            
+            // 显示最坏情况的开销，超过服务器同步的上限时一并提示（仅供参考，施放时由服务器判定）
+            lines.add(SpellCostAnalyzer.describe(plan.costReport()).withStyle(ChatFormatting.GRAY));
+            Component rejection = SpellCostAnalyzer.checkAdvisory(plan.costReport());
+            if (rejection != null) {
+                lines.add(Component.translatable("item.weaving_infinity.spell_core.over_limit", rejection)
+                    .withStyle(ChatFormatting.RED));
             }
         }
         
         // 显示剩余槽位
-        int remainingSlots = MAX_SLOTS - modules.size();
-        tooltipComponents.add(Component.translatable("item.weaving_infinity.spell_core.remaining_slots", remainingSlots));
+        int remainingSlots = MAX_SLOTS - occupied;
+        lines.add(Component.translatable("item.weaving_infinity.spell_core.remaining_slots", remainingSlots));
+        return List.copyOf(lines);
+    }
+    
+    /**
+     * 获取物品对应的已编译法术计划
+     * 相同布局的法术核心共享同一个计划实例，重复调用不会复制NBT
+     * @param stack 法术核心物品堆
+     * @return 法术计划
+     */
+    public static SpellPlan getSpellPlan(ItemStack stack) {
+        return SpellPlanCache.forStack(stack);
     }
     
     /**
      * 获取物品中存储的模块列表
      * @param stack 法术核心物品堆
-     * @return 模块列表
+     * @return 模块列表（只读）
      */
     public static List<ISpellModule> getModules(ItemStack stack) {
-        List<ISpellModule> modules = new ArrayList<>();
-        
-        CompoundTag tag = stack.getOrDefault(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.EMPTY).copyTag();
-        if (tag != null && tag.contains("modules", net.minecraft.nbt.Tag.TAG_LIST)) {
-            ListTag moduleList = tag.getList("modules", net.minecraft.nbt.Tag.TAG_STRING);
-            for (int i = 0; i < moduleList.size(); i++) {
-                String moduleId = moduleList.getString(i);
-                ISpellModule module = ModuleRegistry.getModule(moduleId);
-                if (module != null) {
-                    modules.add(module);
-                }
-            }
-        }
-        
-        return modules;
+        return getSpellPlan(stack).modules();
     }
     
     /**
      * 在指定位置设置模块
+     * 需要同时进行多项修改时使用 SpellCoreEditor，只写入一次
      * @param stack 法术核心物品堆
      * @param index 槽位索引
      * @param moduleId 模块ID
@@ -119,31 +210,7 @@ public class SpellCoreItem extends Item {
             return;
         }
         
-        // 获取或创建NBT数据
-        CompoundTag tag = stack.getOrDefault(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.EMPTY).copyTag();
-        if (tag.isEmpty()) {
-            tag = new CompoundTag();
-        }
-        
-        // 获取或创建模块列表
-        ListTag moduleList;
-        if (tag.contains("modules", net.minecraft.nbt.Tag.TAG_LIST)) {
-            moduleList = tag.getList("modules", net.minecraft.nbt.Tag.TAG_STRING);
-        } else {
-            moduleList = new ListTag();
-            tag.put("modules", moduleList);
-        }
-        
-        // 扩展列表到足够长度
-        while (moduleList.size() <= index) {
-            moduleList.add(StringTag.valueOf(""));
-        }
-        
-        // 设置模块
-        moduleList.set(index, StringTag.valueOf(moduleId));
-        
-        // 更新标签
-        stack.set(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.of(tag));
+        SpellCoreEditor.open(stack).set(index, moduleId).commit();
     }
     
     /**
@@ -152,18 +219,12 @@ public class SpellCoreItem extends Item {
      * @param index 槽位索引
      */
     public static void removeModule(ItemStack stack, int index) {
-        if (index < 0 || index >= MAX_SLOTS) {
+        SpellCoreEditor editor = SpellCoreEditor.open(stack);
+        if (index < 0 || index >= editor.layout().size()) {
             return;
         }
         
-        CompoundTag tag = stack.getOrDefault(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.EMPTY).copyTag();
-        if (tag != null && tag.contains("modules", net.minecraft.nbt.Tag.TAG_LIST)) {
-            ListTag moduleList = tag.getList("modules", net.minecraft.nbt.Tag.TAG_STRING);
-            if (index < moduleList.size()) {
-                moduleList.set(index, StringTag.valueOf(""));
-                stack.set(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.of(tag));
-            }
-        }
+        editor.clearSlot(index).commit();
     }
     
     /**
@@ -171,11 +232,32 @@ public class SpellCoreItem extends Item {
      * @param stack 法术核心物品堆
      */
     public static void clearModules(ItemStack stack) {
-        CompoundTag tag = stack.getOrDefault(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.EMPTY).copyTag();
-        if (tag != null && tag.contains("modules")) {
-            tag.remove("modules");
-            stack.set(net.minecraft.core.component.DataComponents.CUSTOM_DATA, net.minecraft.world.item.component.CustomData.of(tag));
+        SpellCoreEditor.open(stack).clear().commit();
+    }
+    
+    /**
+     * 把旧版本保存在自定义数据 "modules" 列表中的布局迁移到布局组件
+     * 已有布局组件的物品只移除旧数据；自定义数据中的其他内容保持不变
+     * @param stack 法术核心物品堆
+     */
+    public static void migrateLegacyLayout(ItemStack stack) {
+        CustomData data = stack.get(DataComponents.CUSTOM_DATA);
+        if (data == null || !data.contains(LEGACY_MODULES_KEY)) {
+            return;
+        }
+        
+        CompoundTag tag = data.copyTag();
+        ListTag moduleList = tag.getList(LEGACY_MODULES_KEY, Tag.TAG_STRING);
+        List<String> modules = new ArrayList<>(moduleList.size());
+        for (int i = 0; i < moduleList.size(); i++) {
+            modules.add(moduleList.getString(i));
+        }
+        tag.remove(LEGACY_MODULES_KEY);
+        
+        if (!stack.has(ModDataComponents.SPELL_LAYOUT.get()) && !modules.isEmpty()) {
+            stack.set(ModDataComponents.SPELL_LAYOUT.get(), new SpellLayout(modules));
         }
+        CustomData.set(DataComponents.CUSTOM_DATA, stack, tag);
     }
     
     /**
@@ -7,16 +7,23 @@
 package com.kirisame1969.weaving_infinity.module.modules.base;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.api.module.ContextKeys;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleCostHint;
 import com.kirisame1969.weaving_infinity.api.module.ModuleType;
+import com.kirisame1969.weaving_infinity.api.module.SpellModule;
 import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
 import com.kirisame1969.weaving_infinity.common.entity.CustomFireball;
 import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileBudget;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileLineage;
+import com.kirisame1969.weaving_infinity.item.SpellCoreItem;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.entity.projectile.Projectile;
 import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.HitResult;
@@ -25,11 +32,14 @@ import net.minecraft.world.phys.Vec3;
 import java.util.List;
 import java.util.Set;
 
+@SpellModule("weaving_infinity:fireball")
 public class FireballModule implements ISpellModule {
+    public static final ResourceLocation ID = WeavingInfinity.id("fireball");
+    private static final Set<String> TAGS = Set.of("base", "projectile", "fire");
     
     @Override
     public ResourceLocation getId() {
-        return WeavingInfinity.id("fireball");
+        return ID;
     }
     
     @Override
@@ -39,7 +49,7 @@ public class FireballModule implements ISpellModule {
     
     @Override
     public Set<String> getTags() {
-        return Set.of("base", "projectile", "fire");
+        return TAGS;
     }
     
     @Override
@@ -62,8 +72,24 @@ public class FireballModule implements ISpellModule {
         return ModuleConfig.getInstance().fireballModule.complexity;
     }
     
+    @Override
+    public ModuleCostHint getCostHint() {
+        ModuleConfig.FireballModuleConfig config = ModuleConfig.getInstance().fireballModule;
+        return new ModuleCostHint(1, 0, 0, config.estimatedCostMicros);
+    }
+    
     @Override
     public void execute(ModuleExecutionContext context) {
+        // 申请投射物预算，超出上限且策略为拒绝时不生成
+        if (context.level instanceof ServerLevel serverLevel
+            && !ProjectileBudget.forLevel(serverLevel).admit(context.caster.getUUID())) {
+            // 主火球没有生成时，施法者客户端上预测的火球也需要移除
+            if (!context.has(ContextKeys.ORIGINAL_PROJECTILE) && context.caster instanceof Player player) {
+                SpellCoreItem.rejectPrediction(player, context.getInt(ContextKeys.CAST_SEQUENCE));
+            }
+            return;
+        }
+        
         // 获取配置
         ModuleConfig config = ModuleConfig.getInstance();
         
@@ -87,17 +113,25 @@ public class FireballModule implements ISpellModule {
         // 设置火球的伤害
         fireball.setDamage(config.fireballModule.baseDamage);
         
-        // 添加一个事件监听器，当火球击中目标时检查是否需要分裂
-        fireball.addTag("weaving_infinity_fireball");
+        // 记录谱系，击中时据此触发分裂等修饰效果；同一次施法的多个火球共享根施法ID
+        int lineage = context.has(ContextKeys.LINEAGE) ? context.getInt(ContextKeys.LINEAGE) : ProjectileLineage.newCast();
+        context.putInt(ContextKeys.LINEAGE, lineage);
+        fireball.setLineage(lineage);
+        
+        // 绑定法术计划和施法参数，击中时直接分派，不再读取施法者的手持物品
+        fireball.bindSpell(context.plan, context.source);
+        
+        // 记录预测施法序号，施法者的客户端收到后替换预测的火球
+        fireball.setCastSequence(context.getInt(ContextKeys.CAST_SEQUENCE));
         
         // 将火球加入世界
         context.level.addFreshEntity(fireball);
         
         // 在上下文中记录生成的实体
-        context.sharedData.put("last_projectile", fireball);
+        context.put(ContextKeys.LAST_PROJECTILE, fireball);
         // 如果这是主实体，也在上下文中记录作为原始实体
-        if (!context.sharedData.containsKey("original_projectile")) {
-            context.sharedData.put("original_projectile", fireball);
+        if (!context.has(ContextKeys.ORIGINAL_PROJECTILE)) {
+            context.put(ContextKeys.ORIGINAL_PROJECTILE, fireball);
         }
     }
     
@@ -112,7 +146,12 @@ public class FireballModule implements ISpellModule {
     @Override
     public boolean cloneProjectile(ModuleExecutionContext context, Vec3 origin, Vec3 direction) {
         // 检查是否为服务器端环境
-        if (!(context.level instanceof ServerLevel)) {
+        if (!(context.level instanceof ServerLevel serverLevel)) {
+            return false;
+        }
+        
+        // 申请投射物预算，超出上限且策略为拒绝时不生成
+        if (!ProjectileBudget.forLevel(serverLevel).admit(context.caster.getUUID())) {
             return false;
         }
         
@@ -134,8 +173,9 @@ public class FireballModule implements ISpellModule {
         // 设置火球的伤害
         fireball.setDamage(config.fireballModule.splitDamage);
         
-        // 给分裂的小火球添加标记，避免它们再次触发分裂
-        fireball.addTag("weaving_infinity_split_fireball");
+        // 分裂的小火球继承上一代的谱系和法术计划，达到最大分裂代数后不再触发修饰效果
+        fireball.setLineage(context.getInt(ContextKeys.LINEAGE));
+        fireball.bindSpell(context.plan, context.source);
         
         // 将火球加入世界
         context.level.addFreshEntity(fireball);
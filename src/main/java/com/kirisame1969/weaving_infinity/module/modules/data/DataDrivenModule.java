@@ -0,0 +1,122 @@
+/**
+ * 数据包模块
+ *
+ * 由 DataModuleDefinition 创建的模块。执行、克隆投射物等行为全部委托给父模块，
+ * 只替换ID、显示名称、标签和数值。定义未覆盖的数值每次都从父模块读取，因此仍会跟随配置重载变化。
+ */
+package com.kirisame1969.weaving_infinity.module.modules.data;
+
+import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleCostHint;
+import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
+import com.kirisame1969.weaving_infinity.api.module.ModuleType;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.Set;
+
+public class DataDrivenModule implements ISpellModule {
+    private final ResourceLocation id;
+    private final ISpellModule parent;
+    private final DataModuleDefinition definition;
+    private final Set<String> tags;
+
+    public DataDrivenModule(ResourceLocation id, ISpellModule parent, DataModuleDefinition definition) {
+        this.id = id;
+        this.parent = parent;
+        this.definition = definition;
+        this.tags = definition.tags != null ? Set.copyOf(definition.tags) : parent.getTags();
+    }
+
+    /**
+     * 获取提供行为的父模块
+     * @return 父模块
+     */
+    public ISpellModule getParent() {
+        return parent;
+    }
+
+    /**
+     * 获取创建本模块的定义（同步给客户端时使用）
+     * @return 模块定义
+     */
+    public DataModuleDefinition getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public ResourceLocation getId() {
+        return id;
+    }
+
+    @Override
+    public Component getDisplayName() {
+        return definition.name != null ? Component.translatable(definition.name) : parent.getDisplayName();
+    }
+
+    @Override
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public ModuleType getModuleType() {
+        return parent.getModuleType();
+    }
+
+    @Override
+    public int getBaseManaConsumption() {
+        return definition.manaConsumption != null ? definition.manaConsumption : parent.getBaseManaConsumption();
+    }
+
+    @Override
+    public int getBaseCooldown() {
+        return definition.cooldown != null ? definition.cooldown : parent.getBaseCooldown();
+    }
+
+    @Override
+    public float getBaseComplexity() {
+        return definition.complexity != null ? definition.complexity : parent.getBaseComplexity();
+    }
+
+    @Override
+    public ModuleCostHint getCostHint() {
+        ModuleCostHint hint = parent.getCostHint();
+        if (definition.estimatedCostMicros == null) {
+            return hint;
+        }
+        return new ModuleCostHint(hint.projectilesPerCast(), hint.childrenPerImpact(), hint.explosionsPerImpact(),
+            definition.estimatedCostMicros);
+    }
+
+    @Override
+    public void execute(ModuleExecutionContext context) {
+        parent.execute(context);
+    }
+
+    @Override
+    public void modifyContext(ModuleExecutionContext context) {
+        parent.modifyContext(context);
+    }
+
+    @Override
+    public void modifyNextModule(ISpellModule next, ModuleExecutionContext context) {
+        parent.modifyNextModule(next, context);
+    }
+
+    @Override
+    public boolean shouldExecute(ModuleExecutionContext context) {
+        return parent.shouldExecute(context);
+    }
+
+    @Override
+    public void onPostExecute(ModuleExecutionContext context) {
+        parent.onPostExecute(context);
+    }
+
+    @Override
+    public boolean cloneProjectile(ModuleExecutionContext context, Vec3 origin, Vec3 direction) {
+        return parent.cloneProjectile(context, origin, direction);
+    }
+}
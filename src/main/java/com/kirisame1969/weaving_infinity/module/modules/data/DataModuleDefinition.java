@@ -0,0 +1,76 @@
+/**
+ * 数据包模块定义
+ *
+ * 对应数据包中 data/<命名空间>/weaving_infinity/modules/<路径>.json 的内容。
+ * 数据包模块是某个Java模块（parent）的变体：行为完全由父模块提供，
+ * 定义中可以覆盖显示名称、标签、法力消耗、冷却、复杂度和开销估计，未填写的字段沿用父模块的值。
+ *
+ * 示例：
+ * {
+ *   "parent": "weaving_infinity:fireball",
+ *   "name": "module.examplepack.heavy_fireball",
+ *   "mana_consumption": 25,
+ *   "complexity": 2.5
+ * }
+ */
+package com.kirisame1969.weaving_infinity.module.modules.data;
+
+import com.google.gson.annotations.SerializedName;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DataModuleDefinition {
+    // 提供行为的Java模块ID（必填）
+    @SerializedName("parent")
+    public String parent;
+
+    // 显示名称的翻译键
+    @SerializedName("name")
+    public String name;
+
+    // 模块标签，覆盖父模块的全部标签
+    @SerializedName("tags")
+    public List<String> tags;
+
+    @SerializedName("mana_consumption")
+    public Integer manaConsumption;
+
+    @SerializedName("cooldown")
+    public Integer cooldown;
+
+    @SerializedName("complexity")
+    public Float complexity;
+
+    // 覆盖父模块开销提示中的估计耗时（微秒）
+    @SerializedName("estimated_cost_micros")
+    public Float estimatedCostMicros;
+
+    /**
+     * 校验定义的取值范围
+     * @return 错误信息列表，为空表示定义有效
+     */
+    public List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        if (parent == null || ResourceLocation.tryParse(parent) == null) {
+            errors.add("parent must be a valid module id");
+        }
+        if (tags != null && tags.stream().anyMatch(tag -> tag == null || tag.isBlank())) {
+            errors.add("tags must not contain blank entries");
+        }
+        if (manaConsumption != null && manaConsumption < 0) {
+            errors.add("mana_consumption must not be negative");
+        }
+        if (cooldown != null && cooldown < 0) {
+            errors.add("cooldown must not be negative");
+        }
+        if (complexity != null && complexity < 0) {
+            errors.add("complexity must not be negative");
+        }
+        if (estimatedCostMicros != null && estimatedCostMicros < 0) {
+            errors.add("estimated_cost_micros must not be negative");
+        }
+        return errors;
+    }
+}
@@ -8,26 +8,29 @@ package com.kirisame1969.weaving_infinity.module.modules.modifier;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleCostHint;
 import com.kirisame1969.weaving_infinity.api.module.ModuleType;
+import com.kirisame1969.weaving_infinity.api.module.SpellModule;
 import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
-import net.minecraft.core.particles.ParticleTypes;
+import com.kirisame1969.weaving_infinity.core.effect.ExplosionBatcher;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.sounds.SoundEvents;
 import net.minecraft.world.entity.Entity;
-import net.minecraft.world.level.Level;
 
 import java.util.Set;
 
 /**
  * 击中时爆炸模块 - 当基础模块击中目标时，会产生爆炸效果
  */
+@SpellModule("weaving_infinity:explode_on_hit")
 public class ExplodeOnHitModifier implements ISpellModule {
+    public static final ResourceLocation ID = WeavingInfinity.id("explode_on_hit");
+    private static final Set<String> TAGS = Set.of("modifier", "explode", "projectile");
     
     @Override
     public ResourceLocation getId() {
-        return WeavingInfinity.id("explode_on_hit");
+        return ID;
     }
     
     @Override
@@ -37,7 +40,7 @@ public class ExplodeOnHitModifier implements ISpellModule {
     
     @Override
     public Set<String> getTags() {
-        return Set.of("modifier", "explode", "projectile");
+        return TAGS;
     }
     
     @Override
@@ -60,6 +63,12 @@ public class ExplodeOnHitModifier implements ISpellModule {
         return ModuleConfig.getInstance().explodeModule.complexity;
     }
     
+    @Override
+    public ModuleCostHint getCostHint() {
+        ModuleConfig.ExplodeModuleConfig config = ModuleConfig.getInstance().explodeModule;
+        return new ModuleCostHint(0, 0, 1, config.estimatedCostMicros);
+    }
+    
     @Override
     public void execute(com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext context) {
         // 这是一个修饰模块，它不应该直接执行，而是修改前面模块的行为
@@ -67,7 +76,8 @@ public class ExplodeOnHitModifier implements ISpellModule {
     
     /**
      * 创建爆炸效果
-     * 该方法由事件处理器调用，当检测到带有特定标签的投射物击中目标时触发
+     * 该方法由事件处理器调用，当检测到带有特定标签的投射物击中目标时触发。
+     * 爆炸不会立即发生，而是加入本刻的队列，在刻末与附近的爆炸合并后统一结算
      * @param level 服务器世界
      * @param hitPos 击中位置
      */
@@ -75,30 +85,6 @@ public class ExplodeOnHitModifier implements ISpellModule {
         // 获取配置
         ModuleConfig config = ModuleConfig.getInstance();
         
-        // 创建视觉爆炸效果，参考Iron's Spells n Spellbooks中的实现
-        level.explode(
-                null,
-                null,
-                null,
-                hitPos.x,
-                hitPos.y,
-                hitPos.z,
-                0,
-                false,
-                Level.ExplosionInteraction.NONE,
-                ParticleTypes.GUST_EMITTER_SMALL,
-                ParticleTypes.GUST_EMITTER_LARGE,
-                SoundEvents.GENERIC_EXPLODE
-        );
-        
-        // 创建实际的爆炸，会对范围内的实体造成伤害
-        level.explode(
-                null,
-                hitPos.x,
-                hitPos.y,
-                hitPos.z,
-                config.explodeModule.explosionRadius,
-                Level.ExplosionInteraction.MOB
-        );
+        ExplosionBatcher.forLevel(level).queue(hitPos, config.explodeModule.explosionRadius);
     }
 }
\ No newline at end of file
@@ -7,10 +7,20 @@
 package com.kirisame1969.weaving_infinity.module.modules.modifier;
 
 import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.api.module.ContextKeys;
 import com.kirisame1969.weaving_infinity.api.module.ISpellModule;
+import com.kirisame1969.weaving_infinity.api.module.ModuleCostHint;
 import com.kirisame1969.weaving_infinity.api.module.ModuleType;
+import com.kirisame1969.weaving_infinity.api.module.SpellModule;
 import com.kirisame1969.weaving_infinity.api.module.ModuleExecutionContext;
 import com.kirisame1969.weaving_infinity.common.config.ModuleConfig;
+import com.kirisame1969.weaving_infinity.core.metrics.SpellMetrics;
+import com.kirisame1969.weaving_infinity.core.projectile.ProjectileLineage;
+import com.kirisame1969.weaving_infinity.core.schedule.SpellScheduler;
+import com.kirisame1969.weaving_infinity.core.schedule.SpellTask;
+import com.kirisame1969.weaving_infinity.core.split.SplitBasis;
+import com.kirisame1969.weaving_infinity.core.split.SplitPattern;
+import com.kirisame1969.weaving_infinity.core.split.SplitPatternTables;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
@@ -23,11 +33,14 @@ import java.util.Set;
 /**
  * 击中时分裂模块 - 当基础模块击中目标时，会产生额外的投射物
  */
+@SpellModule("weaving_infinity:split_on_hit")
 public class SplitOnHitModifier implements ISpellModule {
+    public static final ResourceLocation ID = WeavingInfinity.id("split_on_hit");
+    private static final Set<String> TAGS = Set.of("modifier", "split", "projectile");
     
     @Override
     public ResourceLocation getId() {
-        return WeavingInfinity.id("split_on_hit");
+        return ID;
     }
     
     @Override
@@ -37,7 +50,7 @@ public class SplitOnHitModifier implements ISpellModule {
     
     @Override
     public Set<String> getTags() {
-        return Set.of("modifier", "split", "projectile");
+        return TAGS;
     }
     
     @Override
@@ -60,21 +73,26 @@ public class SplitOnHitModifier implements ISpellModule {
         return ModuleConfig.getInstance().splitModule.complexity;
     }
     
+    @Override
+    public ModuleCostHint getCostHint() {
+        ModuleConfig.SplitModuleConfig config = ModuleConfig.getInstance().splitModule;
+        return new ModuleCostHint(0, config.splitCount, 0, config.estimatedCostMicros);
+    }
+    
     @Override
     public void execute(ModuleExecutionContext context) {
         // 这是一个修饰模块，它不应该直接执行，而是修改前面模块的行为
         // 实际的分裂逻辑应该在基础模块(如火球模块)中检测到这个修饰模块后触发
         // 在上下文中标记需要分裂效果
-        context.sharedData.put("split_on_hit", true);
+        context.put(ContextKeys.SPLIT_ON_HIT, Boolean.TRUE);
         
         // 同时增加分裂计数，允许多个分裂模块叠加
-        Integer currentCount = (Integer) context.sharedData.getOrDefault("split_count", 0);
-        context.sharedData.put("split_count", currentCount + 1);
+        context.addInt(ContextKeys.SPLIT_COUNT, 1);
     }
     
     /**
      * 创建分裂效果
-     * 该方法由事件处理器调用，当检测到带有特定标签的投射物击中目标时触发
+     * 该方法由事件处理器调用，当法术投射物击中目标、且谱系代数小于最大分裂代数时触发
      * @param level 服务器世界
      * @param caster 施法者
      * @param hitPos 击中位置
@@ -96,22 +114,40 @@ public class SplitOnHitModifier implements ISpellModule {
         ModuleExecutionContext subContext = new ModuleExecutionContext(level, (LivingEntity) caster, context.source, context.direction);
         subContext.resetForSubEntity(); // 重置上下文以避免递归触发
         
+        // 子弹沿用同一个法术计划，谱系代数加1，由谱系决定子弹撞击时是否继续分裂
+        subContext.plan = context.plan;
+        subContext.putInt(ContextKeys.LINEAGE, ProjectileLineage.child(context.getInt(ContextKeys.LINEAGE)));
+        
+        SpellScheduler scheduler = SpellScheduler.forLevel(level);
+        
+        // 方向表按（图案, 数量）预先计算，撞击方向的基只构建一次，每个子弹只需查表
+        SplitPattern pattern = SplitPattern.byName(config.splitModule.pattern);
+        if (pattern == null) {
+            pattern = SplitPattern.RING;
+        }
+        int count = config.splitModule.splitCount;
+        double[] table = SplitPatternTables.get(pattern, count);
+        SplitBasis basis = SplitBasis.of(context.direction, pattern.isHorizontal());
+        
         // 创建分裂的投射物，分别朝不同方向
-        for (int i = 0; i < config.splitModule.splitCount; i++) {
-            // 计算分散角度，以被击中实体为中心水平发射
-            float yaw = i * config.splitModule.angleBetweenShots;
-            
-            // 将角度转换为水平方向向量 (pitch为0表示水平方向)
-            double yawRadians = Math.toRadians(yaw);
-            
-            double x = -Math.sin(yawRadians);
-            double y = 0; // 水平发射，所以y方向速度为0
-            double z = Math.cos(yawRadians);
+        for (int i = 0; i < count; i++) {
+            Vec3 direction = SplitPatternTables.orient(table, i, basis);
             
-            Vec3 direction = new Vec3(x, y, z).normalize();
-            
-            // 使用原始模块克隆投射物
-            originalModule.cloneProjectile(subContext, hitPos, direction);
+            // 使用原始模块克隆投射物；本刻预算耗尽时交给调度器在后续的刻中生成，队列已满时丢弃并计数
+            scheduler.runOrDefer(new SpellTask() {
+                @Override
+                public boolean run() {
+                    if (originalModule.cloneProjectile(subContext, hitPos, direction)) {
+                        SpellMetrics.SPLIT_CHILDREN.increment();
+                    }
+                    return true;
+                }
+
+                @Override
+                public void onDropped() {
+                    scheduler.recordDroppedSplit();
+                }
+            });
         }
     }
 }
\ No newline at end of file
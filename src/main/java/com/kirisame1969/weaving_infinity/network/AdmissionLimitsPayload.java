@@ -0,0 +1,51 @@
+/**
+ * 施法准入上限数据包
+ *
+ * 服务器在玩家登录、/reload 和配置重载后发送当前的准入上限（见 ServerAdmissionLimits）。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.plan.AdmissionLimits;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+public record AdmissionLimitsPayload(AdmissionLimits limits) implements CustomPacketPayload {
+    public static final Type<AdmissionLimitsPayload> TYPE = new Type<>(WeavingInfinity.id("admission_limits"));
+    public static final StreamCodec<FriendlyByteBuf, AdmissionLimitsPayload> STREAM_CODEC = StreamCodec.ofMember(AdmissionLimitsPayload::write, AdmissionLimitsPayload::read);
+
+    /**
+     * 用服务器当前的配置创建数据包
+     * @return 数据包
+     */
+    public static AdmissionLimitsPayload current() {
+        return new AdmissionLimitsPayload(AdmissionLimits.local());
+    }
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(limits.maxEntities());
+        buf.writeVarInt(limits.maxExplosions());
+        buf.writeFloat(limits.maxTickCostMicros());
+        buf.writeFloat(limits.maxComplexity());
+    }
+
+    private static AdmissionLimitsPayload read(FriendlyByteBuf buf) {
+        return new AdmissionLimitsPayload(new AdmissionLimits(buf.readVarInt(), buf.readVarInt(), buf.readFloat(), buf.readFloat()));
+    }
+
+    /**
+     * 处理收到的数据包（客户端）
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(AdmissionLimitsPayload payload, IPayloadContext context) {
+        ServerAdmissionLimits.install(payload.limits());
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
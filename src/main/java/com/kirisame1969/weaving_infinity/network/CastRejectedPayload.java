@@ -0,0 +1,39 @@
+/**
+ * 施法拒绝数据包
+ *
+ * 服务器拒绝了客户端预测的施法（开销超过上限或投射物预算不足）时发送，客户端立即移除对应的预测火球。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+public record CastRejectedPayload(int sequence) implements CustomPacketPayload {
+    public static final Type<CastRejectedPayload> TYPE = new Type<>(WeavingInfinity.id("cast_rejected"));
+    public static final StreamCodec<FriendlyByteBuf, CastRejectedPayload> STREAM_CODEC = StreamCodec.ofMember(CastRejectedPayload::write, CastRejectedPayload::read);
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(sequence);
+    }
+
+    private static CastRejectedPayload read(FriendlyByteBuf buf) {
+        return new CastRejectedPayload(buf.readVarInt());
+    }
+
+    /**
+     * 处理收到的数据包（客户端）
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(CastRejectedPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> com.kirisame1969.weaving_infinity.client.CastPredictor.reject(payload.sequence()));
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
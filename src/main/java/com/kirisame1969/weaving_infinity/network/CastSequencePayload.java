@@ -0,0 +1,44 @@
+/**
+ * 施法序号数据包
+ *
+ * 客户端预测施法时在原版的使用物品数据包之前发送，服务器记录序号后用于本次施法（见 CastSequenceTracker）。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.cast.CastSequenceTracker;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+public record CastSequencePayload(int sequence) implements CustomPacketPayload {
+    public static final Type<CastSequencePayload> TYPE = new Type<>(WeavingInfinity.id("cast_sequence"));
+    public static final StreamCodec<FriendlyByteBuf, CastSequencePayload> STREAM_CODEC = StreamCodec.ofMember(CastSequencePayload::write, CastSequencePayload::read);
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(sequence);
+    }
+
+    private static CastSequencePayload read(FriendlyByteBuf buf) {
+        return new CastSequencePayload(buf.readVarInt());
+    }
+
+    /**
+     * 处理收到的数据包（服务器）
+     * 处理器已经在主线程上执行，直接记录而不是排队，保证先于随后的使用物品数据包生效
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(CastSequencePayload payload, IPayloadContext context) {
+        if (context.player() instanceof ServerPlayer player) {
+            CastSequenceTracker.record(player, payload.sequence());
+        }
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
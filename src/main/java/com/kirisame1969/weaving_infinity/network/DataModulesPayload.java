@@ -0,0 +1,84 @@
+/**
+ * 数据包模块定义数据包
+ *
+ * 服务器在玩家登录和 /reload 后发送当前安装的所有数据包模块定义（见 DataModuleDefinition），
+ * 客户端用同样的流程创建模块，提示框和预测施法才能解析法术核心中的数据包模块。
+ * 单人游戏和局域网主机与内置服务器共用同一个模块注册表，不需要也不应该重复安装。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.registry.DataModuleLoader;
+import com.kirisame1969.weaving_infinity.module.modules.data.DataModuleDefinition;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public record DataModulesPayload(Map<ResourceLocation, DataModuleDefinition> definitions) implements CustomPacketPayload {
+    public static final Type<DataModulesPayload> TYPE = new Type<>(WeavingInfinity.id("data_modules"));
+    public static final StreamCodec<FriendlyByteBuf, DataModulesPayload> STREAM_CODEC = StreamCodec.ofMember(DataModulesPayload::write, DataModulesPayload::read);
+
+    /**
+     * 用服务器当前安装的数据包模块创建数据包
+     * @return 数据包
+     */
+    public static DataModulesPayload current() {
+        return new DataModulesPayload(DataModuleLoader.installedDefinitions());
+    }
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(definitions.size());
+        for (Map.Entry<ResourceLocation, DataModuleDefinition> entry : definitions.entrySet()) {
+            DataModuleDefinition definition = entry.getValue();
+            buf.writeResourceLocation(entry.getKey());
+            buf.writeUtf(definition.parent);
+            buf.writeNullable(definition.name, FriendlyByteBuf::writeUtf);
+            buf.writeNullable(definition.tags, (b, tags) -> b.writeCollection(tags, FriendlyByteBuf::writeUtf));
+            buf.writeNullable(definition.manaConsumption, FriendlyByteBuf::writeVarInt);
+            buf.writeNullable(definition.cooldown, FriendlyByteBuf::writeVarInt);
+            buf.writeNullable(definition.complexity, FriendlyByteBuf::writeFloat);
+            buf.writeNullable(definition.estimatedCostMicros, FriendlyByteBuf::writeFloat);
+        }
+    }
+
+    private static DataModulesPayload read(FriendlyByteBuf buf) {
+        int size = buf.readVarInt();
+        Map<ResourceLocation, DataModuleDefinition> definitions = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            ResourceLocation moduleId = buf.readResourceLocation();
+            DataModuleDefinition definition = new DataModuleDefinition();
+            definition.parent = buf.readUtf();
+            definition.name = buf.readNullable(FriendlyByteBuf::readUtf);
+            definition.tags = buf.readNullable(b -> b.readList(FriendlyByteBuf::readUtf));
+            definition.manaConsumption = buf.readNullable(FriendlyByteBuf::readVarInt);
+            definition.cooldown = buf.readNullable(FriendlyByteBuf::readVarInt);
+            definition.complexity = buf.readNullable(FriendlyByteBuf::readFloat);
+            definition.estimatedCostMicros = buf.readNullable(FriendlyByteBuf::readFloat);
+            definitions.put(moduleId, definition);
+        }
+        return new DataModulesPayload(definitions);
+    }
+
+    /**
+     * 处理收到的数据包（客户端）
+     * 内置服务器的连接直接跳过：两端共用模块注册表，模块已经由服务器安装
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(DataModulesPayload payload, IPayloadContext context) {
+        if (context.connection().isMemoryConnection()) {
+            return;
+        }
+        DataModuleLoader.installRemote(payload.definitions());
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * 撞击效果数据包
+ *
+ * 用一条消息描述同一刻、同一区块内发生的所有撞击效果（火球撞击、爆炸等）。
+ * 每条效果只包含位置、效果类型、强度和随机种子，客户端据此在本地展开为粒子和音效，
+ * 不再为每个粒子或每次爆炸单独发送数据包。
+ * 位置以区块原点为基准编码为相对坐标，并量化为1/16格的定点数：
+ * X、Z 各占1字节，Y 占2字节，每条效果的位置只需4字节而不是3个浮点数的12字节。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.util.Mth;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record ImpactEffectsPayload(int chunkX, int chunkZ, List<Entry> entries) implements CustomPacketPayload {
+    public static final Type<ImpactEffectsPayload> TYPE = new Type<>(WeavingInfinity.id("impact_effects"));
+    public static final StreamCodec<FriendlyByteBuf, ImpactEffectsPayload> STREAM_CODEC = StreamCodec.ofMember(ImpactEffectsPayload::write, ImpactEffectsPayload::read);
+
+    // 效果类型：火球撞击
+    public static final byte KIND_FIREBALL_IMPACT = 0;
+    // 效果类型：爆炸
+    public static final byte KIND_EXPLOSION = 1;
+
+    // 位置的定点精度：每格16份
+    private static final float POSITION_SCALE = 16.0F;
+    // 每条效果的编码长度：X(1) + Y(2) + Z(1) + 类型(1) + 强度(4) + 种子(4)
+    private static final int ENTRY_BYTES = 13;
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(chunkX);
+        buf.writeVarInt(chunkZ);
+        buf.writeVarInt(entries.size());
+        for (Entry entry : entries) {
+            buf.writeByte(encodeOffset(entry.offsetX()));
+            // 超出 ±2048 格的高度（远在建筑高度之外）钳制到边界
+            buf.writeShort(Mth.clamp(Math.round(entry.y() * POSITION_SCALE), Short.MIN_VALUE, Short.MAX_VALUE));
+            buf.writeByte(encodeOffset(entry.offsetZ()));
+            buf.writeByte(entry.kind());
+            buf.writeFloat(entry.intensity());
+            buf.writeInt(entry.seed());
+        }
+    }
+
+    private static ImpactEffectsPayload read(FriendlyByteBuf buf) {
+        int chunkX = buf.readVarInt();
+        int chunkZ = buf.readVarInt();
+        // 条目数量不会超过剩余字节能容纳的数量，防止恶意数据包申请过大的列表
+        int size = buf.readVarInt();
+        if (size < 0 || size > buf.readableBytes() / ENTRY_BYTES) {
+            throw new DecoderException("Impact effects payload has too many entries: " + size);
+        }
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            float offsetX = decodeOffset(buf.readUnsignedByte());
+            float y = buf.readShort() / POSITION_SCALE;
+            float offsetZ = decodeOffset(buf.readUnsignedByte());
+            entries.add(new Entry(offsetX, y, offsetZ, buf.readByte(), buf.readFloat(), buf.readInt()));
+        }
+        return new ImpactEffectsPayload(chunkX, chunkZ, entries);
+    }
+
+    private static int encodeOffset(float offset) {
+        return Mth.clamp((int) (offset * POSITION_SCALE), 0, 255);
+    }
+
+    private static float decodeOffset(int encoded) {
+        // 取所在1/16格的中心，误差不超过1/32格
+        return (encoded + 0.5F) / POSITION_SCALE;
+    }
+
+    /**
+     * 处理收到的数据包（客户端）
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(ImpactEffectsPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> com.kirisame1969.weaving_infinity.client.ClientPayloadHandler.handleImpactEffects(payload));
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+
+    /**
+     * 单个撞击效果
+     * @param offsetX 相对区块原点的X坐标
+     * @param y 世界Y坐标
+     * @param offsetZ 相对区块原点的Z坐标
+     * @param kind 效果类型
+     * @param intensity 效果强度（爆炸时为半径）
+     * @param seed 客户端展开粒子时使用的随机种子
+     */
+    public record Entry(float offsetX, float y, float offsetZ, byte kind, float intensity, int seed) {}
+}
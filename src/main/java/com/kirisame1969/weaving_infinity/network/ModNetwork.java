@@ -0,0 +1,45 @@
+/**
+ * 网络注册类
+ *
+ * 负责注册模组使用的自定义数据包。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
+import net.neoforged.neoforge.network.registration.HandlerThread;
+import net.neoforged.neoforge.network.registration.PayloadRegistrar;
+
+public class ModNetwork {
+    // 网络协议版本，数据包格式变化时需要修改
+    private static final String PROTOCOL_VERSION = "7";
+
+    /**
+     * 注册所有数据包
+     * @param event 数据包处理器注册事件
+     */
+    public static void register(RegisterPayloadHandlersEvent event) {
+        PayloadRegistrar registrar = event.registrar(PROTOCOL_VERSION);
+
+        // 撞击效果：服务器 -> 客户端
+        registrar.playToClient(ImpactEffectsPayload.TYPE, ImpactEffectsPayload.STREAM_CODEC, ImpactEffectsPayload::handle);
+
+        // 投射物轨迹锚点：服务器 -> 客户端
+        registrar.playToClient(ProjectileTrajectoryPayload.TYPE, ProjectileTrajectoryPayload.STREAM_CODEC, ProjectileTrajectoryPayload::handle);
+
+        // 施法准入上限：服务器 -> 客户端
+        registrar.playToClient(AdmissionLimitsPayload.TYPE, AdmissionLimitsPayload.STREAM_CODEC, AdmissionLimitsPayload::handle);
+
+        // 施法序号：客户端 -> 服务器，在主线程上直接处理，先于随后的使用物品数据包生效
+        registrar.playToServer(CastSequencePayload.TYPE, CastSequencePayload.STREAM_CODEC, CastSequencePayload::handle);
+
+        // 施法拒绝：服务器 -> 客户端
+        registrar.playToClient(CastRejectedPayload.TYPE, CastRejectedPayload.STREAM_CODEC, CastRejectedPayload::handle);
+
+        // 数据包模块定义：服务器 -> 客户端
+        registrar.playToClient(DataModulesPayload.TYPE, DataModulesPayload.STREAM_CODEC, DataModulesPayload::handle);
+
+        // 模块数字ID表：服务器 -> 客户端，在网络线程上处理，先于后续物品数据生效
+        registrar.executesOn(HandlerThread.NETWORK)
+            .playToClient(ModuleIdMapPayload.TYPE, ModuleIdMapPayload.STREAM_CODEC, ModuleIdMapPayload::handle);
+    }
+}
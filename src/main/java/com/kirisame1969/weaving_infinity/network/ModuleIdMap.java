@@ -0,0 +1,81 @@
+/**
+ * 模块数字ID表
+ *
+ * 法术布局在网络上以模块的数字ID传输（见 SpellLayout.STREAM_CODEC）。数字ID以服务器为准：
+ * 服务器在玩家登录和 /reload 后发送完整的ID表（ModuleIdMapPayload），客户端收到后用它编码和解码，
+ * 因此数据包模块的数字ID在服务器和客户端之间也保持一致。
+ * 尚未收到ID表时（以及在服务器上）直接使用本地模块注册表，内置模块的数字ID在两端本来就相同。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.List;
+
+public final class ModuleIdMap {
+    // 从服务器收到的ID表（仅客户端），null表示使用本地注册表
+    private static volatile Remote remote;
+
+    private ModuleIdMap() {}
+
+    /**
+     * 获取模块的网络数字ID
+     * @param moduleId 模块ID
+     * @return 数字ID，对方不认识该模块时返回-1
+     */
+    public static int toNetwork(String moduleId) {
+        Remote table = remote;
+        return table != null ? table.numericIds.getInt(moduleId) : ModuleRegistry.getNumericId(moduleId);
+    }
+
+    /**
+     * 根据网络数字ID获取模块ID
+     * @param numericId 数字ID
+     * @return 模块ID，未知的数字ID返回null
+     */
+    public static String fromNetwork(int numericId) {
+        Remote table = remote;
+        if (table == null) {
+            return ModuleRegistry.getModuleId(numericId);
+        }
+        return numericId >= 0 && numericId < table.ids.length ? table.ids[numericId] : null;
+    }
+
+    /**
+     * 安装服务器发送的ID表（客户端）
+     * @param ids 按数字ID排列的模块ID，空字符串表示未使用的数字ID
+     */
+    public static void install(List<String> ids) {
+        remote = new Remote(ids);
+    }
+
+    /**
+     * 丢弃服务器发送的ID表，恢复使用本地注册表（客户端断开连接时调用）
+     */
+    public static void clear() {
+        remote = null;
+    }
+
+    /**
+     * 服务器发送的ID表，安装后不再修改
+     */
+    private static final class Remote {
+        final String[] ids;
+        final Object2IntMap<String> numericIds;
+
+        Remote(List<String> table) {
+            this.ids = new String[table.size()];
+            this.numericIds = new Object2IntOpenHashMap<>(table.size());
+            this.numericIds.defaultReturnValue(-1);
+            for (int i = 0; i < table.size(); i++) {
+                String id = table.get(i);
+                if (!id.isEmpty()) {
+                    ids[i] = id;
+                    numericIds.put(id, i);
+                }
+            }
+        }
+    }
+}
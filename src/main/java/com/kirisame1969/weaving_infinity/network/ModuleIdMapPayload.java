@@ -0,0 +1,61 @@
+/**
+ * 模块数字ID表数据包
+ *
+ * 服务器在玩家登录和 /reload 后发送，内容是按数字ID排列的模块ID（见 ModuleIdMap）。
+ * 之后法术核心的布局组件只需要传输变长整数。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.registry.ModuleRegistry;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record ModuleIdMapPayload(List<String> ids) implements CustomPacketPayload {
+    public static final Type<ModuleIdMapPayload> TYPE = new Type<>(WeavingInfinity.id("module_id_map"));
+    public static final StreamCodec<FriendlyByteBuf, ModuleIdMapPayload> STREAM_CODEC = StreamCodec.ofMember(ModuleIdMapPayload::write, ModuleIdMapPayload::read);
+
+    /**
+     * 用服务器当前的模块注册表创建数据包
+     * @return 数据包
+     */
+    public static ModuleIdMapPayload current() {
+        return new ModuleIdMapPayload(ModuleRegistry.getNumericIdTable());
+    }
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(ids.size());
+        for (String id : ids) {
+            buf.writeUtf(id);
+        }
+    }
+
+    private static ModuleIdMapPayload read(FriendlyByteBuf buf) {
+        int size = buf.readVarInt();
+        List<String> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(buf.readUtf());
+        }
+        return new ModuleIdMapPayload(ids);
+    }
+
+    /**
+     * 处理收到的数据包（客户端，网络线程）
+     * 直接在网络线程上安装，保证之后解码的物品数据已经使用新的ID表
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(ModuleIdMapPayload payload, IPayloadContext context) {
+        ModuleIdMap.install(payload.ids());
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
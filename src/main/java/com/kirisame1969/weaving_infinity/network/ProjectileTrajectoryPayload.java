@@ -0,0 +1,44 @@
+/**
+ * 投射物轨迹数据包
+ *
+ * 法术投射物偏离预测轨迹（被偏转、加速或传送）时由服务器发送，包含新的锚点。
+ * 客户端从锚点开始按匀速直线重新推算位置（见 CustomFireball），其余时间不需要任何位置同步。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+public record ProjectileTrajectoryPayload(int entityId, Vec3 position, Vec3 velocity, int tick) implements CustomPacketPayload {
+    public static final Type<ProjectileTrajectoryPayload> TYPE = new Type<>(WeavingInfinity.id("projectile_trajectory"));
+    public static final StreamCodec<FriendlyByteBuf, ProjectileTrajectoryPayload> STREAM_CODEC = StreamCodec.ofMember(ProjectileTrajectoryPayload::write, ProjectileTrajectoryPayload::read);
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(entityId);
+        buf.writeVec3(position);
+        buf.writeVec3(velocity);
+        buf.writeVarInt(tick);
+    }
+
+    private static ProjectileTrajectoryPayload read(FriendlyByteBuf buf) {
+        return new ProjectileTrajectoryPayload(buf.readVarInt(), buf.readVec3(), buf.readVec3(), buf.readVarInt());
+    }
+
+    /**
+     * 处理收到的数据包（客户端）
+     * @param payload 数据包
+     * @param context 数据包上下文
+     */
+    public static void handle(ProjectileTrajectoryPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> com.kirisame1969.weaving_infinity.client.ClientPayloadHandler.handleProjectileTrajectory(payload));
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
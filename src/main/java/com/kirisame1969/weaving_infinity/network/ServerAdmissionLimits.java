@@ -0,0 +1,54 @@
+/**
+ * 服务器的施法准入上限
+ *
+ * 准入上限以服务器的配置为准。服务器在玩家登录、/reload 和配置重载后发送当前的上限（AdmissionLimitsPayload），
+ * 客户端收到后用它显示提示框中的超限提示和判断能否预测施法。
+ * 尚未收到时（以及在服务器上）使用本地配置。
+ */
+package com.kirisame1969.weaving_infinity.network;
+
+import com.kirisame1969.weaving_infinity.core.plan.AdmissionLimits;
+
+public final class ServerAdmissionLimits {
+    // 从服务器收到的上限（仅客户端），null表示使用本地配置
+    private static volatile AdmissionLimits remote;
+
+    // 每次安装或丢弃时递增，依赖上限的客户端缓存据此失效
+    private static volatile int version = 0;
+
+    private ServerAdmissionLimits() {}
+
+    /**
+     * 获取当前生效的上限
+     * @return 服务器同步的上限，尚未收到时返回本地配置的上限
+     */
+    public static AdmissionLimits get() {
+        AdmissionLimits limits = remote;
+        return limits != null ? limits : AdmissionLimits.local();
+    }
+
+    /**
+     * 安装服务器发送的上限（客户端）
+     * @param limits 上限
+     */
+    public static void install(AdmissionLimits limits) {
+        remote = limits;
+        version++;
+    }
+
+    /**
+     * 丢弃服务器发送的上限，恢复使用本地配置（客户端断开连接时调用）
+     */
+    public static void clear() {
+        remote = null;
+        version++;
+    }
+
+    /**
+     * 获取上限的版本号
+     * @return 版本号
+     */
+    public static int version() {
+        return version;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * 模组数据组件注册类
+ *
+ * 负责注册模组物品使用的数据组件类型，例如法术核心的模块布局。
+ */
+package com.kirisame1969.weaving_infinity.registries;
+
+import com.kirisame1969.weaving_infinity.WeavingInfinity;
+import com.kirisame1969.weaving_infinity.core.plan.SpellLayout;
+import net.minecraft.core.component.DataComponentType;
+import net.minecraft.core.registries.Registries;
+import net.neoforged.neoforge.registries.DeferredRegister;
+
+import java.util.function.Supplier;
+
+public class ModDataComponents {
+    // 数据组件类型延迟注册器
+    public static final DeferredRegister<DataComponentType<?>> DATA_COMPONENTS = DeferredRegister.create(Registries.DATA_COMPONENT_TYPE, WeavingInfinity.MODID);
+
+    // 法术核心的模块布局：存档中为模块ID列表，网络上为数字ID
+    public static final Supplier<DataComponentType<SpellLayout>> SPELL_LAYOUT = DATA_COMPONENTS.register("spell_layout",
+        () -> DataComponentType.<SpellLayout>builder()
+            .persistent(SpellLayout.CODEC)
+            .networkSynchronized(SpellLayout.STREAM_CODEC)
+            .cacheEncoding()
+            .build());
+}
@@ -18,10 +18,12 @@ public class ModEntities {
     public static final DeferredRegister<EntityType<?>> ENTITY_TYPES = DeferredRegister.create(BuiltInRegistries.ENTITY_TYPE, WeavingInfinity.MODID);
 
     // 注册自定义火球实体
+    // 客户端按生成时的锚点推算轨迹，不需要周期性的位置和速度同步，偏离轨迹时由火球自行发送新的锚点
     public static final Supplier<EntityType<CustomFireball>> CUSTOM_FIREBALL = ENTITY_TYPES.register("custom_fireball",
             () -> EntityType.Builder.<CustomFireball>of(CustomFireball::new, MobCategory.MISC)
                     .sized(0.3125F, 0.3125F)
                     .clientTrackingRange(4)
-                    .updateInterval(10)
+                    .updateInterval(Integer.MAX_VALUE)
+                    .setShouldReceiveVelocityUpdates(false)
                     .build("custom_fireball"));
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+/**
+ * 法术模块注解处理器
+ *
+ * 在编译时收集所有标记了 @SpellModule 的类，生成模块索引 META-INF/weaving_infinity/modules.index。
+ * 索引每行一个模块：模块ID和类的二进制名，以空格分隔，按模块ID排序。
+ * 附属模组在编译时使用同一个处理器即可生成自己的索引，运行时所有jar中的索引会被合并。
+ *
+ * 处理器只按名称引用注解和模块接口，不依赖模组的其他类。
+ */
+package com.kirisame1969.weaving_infinity.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+@SupportedAnnotationTypes(SpellModuleProcessor.ANNOTATION)
+public class SpellModuleProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "com.kirisame1969.weaving_infinity.api.module.SpellModule";
+    static final String MODULE_INTERFACE = "com.kirisame1969.weaving_infinity.api.module.ISpellModule";
+    static final String INDEX_PATH = "META-INF/weaving_infinity/modules.index";
+
+    // 与 ResourceLocation 的合法字符一致
+    private static final Pattern ID_PATTERN = Pattern.compile("[a-z0-9_.-]+:[a-z0-9_./-]+");
+
+    // 模块ID -> 类的二进制名，按ID排序
+    private final Map<String, String> modules = new TreeMap<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private Filer filer;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.messager = processingEnv.getMessager();
+        this.filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!modules.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+
+        TypeElement annotation = elements.getTypeElement(ANNOTATION);
+        TypeElement moduleInterface = elements.getTypeElement(MODULE_INTERFACE);
+        if (annotation == null || moduleInterface == null) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@SpellModule can only be applied to classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            if (validate(type, moduleInterface)) {
+                register(type, annotation);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 检查被标记的类能否在运行时通过反射实例化
+     */
+    private boolean validate(TypeElement type, TypeElement moduleInterface) {
+        boolean valid = true;
+        Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            error(type, "@SpellModule class must be public and not abstract");
+            valid = false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            error(type, "@SpellModule nested class must be static");
+            valid = false;
+        } else if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@SpellModule class must be a top-level or static nested class");
+            valid = false;
+        }
+        if (!types.isAssignable(type.asType(), types.erasure(moduleInterface.asType()))) {
+            error(type, "@SpellModule class must implement " + MODULE_INTERFACE);
+            valid = false;
+        }
+        boolean hasPublicNoArgConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                hasPublicNoArgConstructor = true;
+            }
+        }
+        if (!hasPublicNoArgConstructor) {
+            error(type, "@SpellModule class must have a public no-argument constructor");
+            valid = false;
+        }
+        return valid;
+    }
+
+    private void register(TypeElement type, TypeElement annotation) {
+        String id = readId(type, annotation);
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            error(type, "@SpellModule value must be a valid resource location (namespace:path), got: " + id);
+            return;
+        }
+        String className = elements.getBinaryName(type).toString();
+        String previous = modules.putIfAbsent(id, className);
+        if (previous != null && !previous.equals(className)) {
+            error(type, "Duplicate spell module id " + id + " (already declared by " + previous + ")");
+            return;
+        }
+        originatingElements.add(type);
+    }
+
+    private String readId(TypeElement type, TypeElement annotation) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!types.isSameType(mirror.getAnnotationType(), annotation.asType())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    return String.valueOf(entry.getValue().getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH,
+                originatingElements.toArray(new Element[0]));
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Generated by " + SpellModuleProcessor.class.getName() + ", do not edit\n");
+                for (Map.Entry<String, String> entry : modules.entrySet()) {
+                    writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write " + INDEX_PATH + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
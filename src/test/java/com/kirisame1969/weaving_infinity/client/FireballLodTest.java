@@ -0,0 +1,55 @@
+/**
+ * 投射物渲染细节等级测试
+ *
+ * 验证按距离选择细节等级的边界，以及替身网格按世界坐标划分、不随摄像机移动而变化。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class FireballLodTest {
+    @Test
+    void classifyUsesInclusiveDistanceBoundaries() {
+        // 完整细节距离32，替身距离96
+        assertEquals(FireballLod.FULL, FireballLod.classify(0.0, 32.0, 96.0));
+        assertEquals(FireballLod.FULL, FireballLod.classify(32.0 * 32.0, 32.0, 96.0));
+        assertEquals(FireballLod.IMPOSTOR, FireballLod.classify(32.0 * 32.0 + 1.0, 32.0, 96.0));
+        assertEquals(FireballLod.IMPOSTOR, FireballLod.classify(96.0 * 96.0, 32.0, 96.0));
+        assertEquals(FireballLod.CULLED, FireballLod.classify(96.0 * 96.0 + 1.0, 32.0, 96.0));
+    }
+
+    @Test
+    void impostorDistanceBelowFullDetailSkipsImpostors() {
+        // 替身距离不大于完整细节距离时没有替身区间
+        assertEquals(FireballLod.FULL, FireballLod.classify(16.0 * 16.0, 32.0, 16.0));
+        assertEquals(FireballLod.CULLED, FireballLod.classify(40.0 * 40.0, 32.0, 16.0));
+    }
+
+    @Test
+    void impostorCellDoesNotDependOnCameraPosition() {
+        // 两个火球在同一个世界网格内，摄像机从不同位置观察时仍然合并
+        double cellSize = 4.0;
+        long first = FireballLod.impostorCell(100.5, 64.0, -201.0, cellSize);
+        long second = FireballLod.impostorCell(103.5, 67.0, -203.5, cellSize);
+        assertEquals(first, second);
+
+        // 相邻网格不合并
+        assertNotEquals(first, FireballLod.impostorCell(104.0, 64.0, -201.0, cellSize));
+    }
+
+    @Test
+    void impostorCellFloorsNegativeCoordinates() {
+        // -0.5 和 0.5 分属两格，-0.5 和 -3.5 属于同一格
+        assertNotEquals(FireballLod.impostorCell(-0.5, 0.0, 0.0, 4.0), FireballLod.impostorCell(0.5, 0.0, 0.0, 4.0));
+        assertEquals(FireballLod.impostorCell(-0.5, 0.0, 0.0, 4.0), FireballLod.impostorCell(-3.5, 0.0, 0.0, 4.0));
+    }
+
+    @Test
+    void nonPositiveCellSizeFallsBackToOneBlock() {
+        assertEquals(FireballLod.impostorCell(2.5, 3.5, 4.5, 1.0), FireballLod.impostorCell(2.5, 3.5, 4.5, 0.0));
+        assertNotEquals(FireballLod.impostorCell(2.5, 3.5, 4.5, 0.0), FireballLod.impostorCell(3.5, 3.5, 4.5, 0.0));
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * 预测施法登记表测试
+ *
+ * 验证服务器生成的火球到达（按施法序号确认）后预测被移除，以及序号的分配规则。
+ */
+package com.kirisame1969.weaving_infinity.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PredictionLedgerTest {
+    @Test
+    void confirmingSequenceRemovesOnlyThatPrediction() {
+        PredictionLedger<String> ledger = new PredictionLedger<>();
+        int first = ledger.add("first");
+        int second = ledger.add("second");
+
+        // 第一个预测对应的真实火球到达
+        assertTrue(ledger.remove(first));
+        assertEquals(1, ledger.size());
+
+        List<String> remaining = new ArrayList<>();
+        ledger.forEach(remaining::add);
+        assertEquals(List.of("second"), remaining);
+
+        assertTrue(ledger.remove(second));
+        assertTrue(ledger.isEmpty());
+    }
+
+    @Test
+    void unknownOrRepeatedSequenceIsIgnored() {
+        PredictionLedger<String> ledger = new PredictionLedger<>();
+        int sequence = ledger.add("prediction");
+
+        // 没有预测的火球（序号0）和其他序号不会移除预测
+        assertFalse(ledger.remove(0));
+        assertFalse(ledger.remove(sequence + 1));
+        assertEquals(1, ledger.size());
+
+        // 同一个序号只确认一次，之后的拒绝不会重复计数
+        assertTrue(ledger.remove(sequence));
+        assertFalse(ledger.remove(sequence));
+    }
+
+    @Test
+    void sequencesAreDistinctAndNeverZero() {
+        PredictionLedger<String> ledger = new PredictionLedger<>();
+        int first = ledger.add("a");
+        int second = ledger.add("b");
+        assertNotEquals(0, first);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void removeIfReportsExpiredCount() {
+        PredictionLedger<int[]> ledger = new PredictionLedger<>();
+        ledger.add(new int[] {10});
+        ledger.add(new int[] {50});
+        ledger.add(new int[] {60});
+
+        assertEquals(2, ledger.removeIf(age -> age[0] > 40));
+        assertEquals(1, ledger.size());
+    }
+}
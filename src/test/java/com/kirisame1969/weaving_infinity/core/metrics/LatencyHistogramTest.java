@@ -0,0 +1,57 @@
+/**
+ * 耗时直方图测试
+ *
+ * 验证百分位数只统计最近若干秒：滑出窗口的秒不再影响 p50/p99，尚未结转的这一秒不计入。
+ */
+package com.kirisame1969.weaving_infinity.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    @Test
+    void oldSecondsLeaveTheWindow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000_000L);
+        }
+        histogram.roll();
+        // 之后一分钟只有很快的执行
+        for (int second = 0; second < 60; second++) {
+            histogram.record(100L);
+            histogram.roll();
+        }
+
+        assertTrue(histogram.percentile(0.99, 60) < 1_000L);
+        assertTrue(histogram.percentile(0.50, RollingRate.WINDOW_SECONDS) >= 1_000_000L);
+        assertEquals(60L, histogram.count(60));
+        assertEquals(160L, histogram.count(RollingRate.WINDOW_SECONDS));
+    }
+
+    @Test
+    void pendingSecondIsNotCounted() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500L);
+        assertEquals(0L, histogram.percentile(0.50, 60));
+        assertEquals(0L, histogram.count(60));
+        assertEquals(1L, histogram.count());
+
+        histogram.roll();
+        assertEquals(1L, histogram.count(60));
+        assertTrue(histogram.percentile(0.50, 60) >= 500L);
+    }
+
+    @Test
+    void windowWrapsAfterFiveMinutes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000L);
+        histogram.roll();
+        for (int second = 0; second < RollingRate.WINDOW_SECONDS; second++) {
+            histogram.roll();
+        }
+        assertEquals(0L, histogram.count(RollingRate.WINDOW_SECONDS));
+        assertEquals(0L, histogram.percentile(0.99, RollingRate.WINDOW_SECONDS));
+    }
+}
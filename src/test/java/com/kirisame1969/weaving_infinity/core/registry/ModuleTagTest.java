@@ -0,0 +1,72 @@
+/**
+ * 模块标签测试
+ *
+ * 验证数据包标签每次安装时重新分配：不再使用的标签归还位序号，仍在使用的标签保持原来的位序号，
+ * 位不足时只拒绝容纳不下的模块。
+ */
+package com.kirisame1969.weaving_infinity.core.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleTagTest {
+    @AfterEach
+    void clearDataTags() {
+        ModuleTag.assignDataTags(List.of());
+    }
+
+    @Test
+    void removedTagsReturnTheirBits() {
+        int free = ModuleTag.MAX_TAGS - ModuleTag.usedBitCount();
+
+        // 连续两次安装各自占满所有空闲位，旧的标签不应继续占用位
+        ModuleTag.DataAssignment first = ModuleTag.assignDataTags(singletons("first_", free));
+        assertEquals(0, first.rejected());
+        ModuleTag.DataAssignment second = ModuleTag.assignDataTags(singletons("second_", free));
+        assertEquals(0, second.rejected());
+        assertNull(ModuleTag.find("first_0"));
+    }
+
+    @Test
+    void keptTagsKeepTheirBits() {
+        ModuleTag.DataAssignment first = ModuleTag.assignDataTags(List.of(Set.of("kept"), Set.of("dropped")));
+        ModuleTag.DataAssignment second = ModuleTag.assignDataTags(List.of(Set.of("added"), Set.of("kept")));
+        assertEquals(first.masks()[0], second.masks()[1]);
+    }
+
+    @Test
+    void overflowRejectsOnlyModulesThatDoNotFit() {
+        int free = ModuleTag.MAX_TAGS - ModuleTag.usedBitCount();
+        List<Set<String>> tagSets = singletons("overflow_", free + 1);
+        ModuleTag.DataAssignment assignment = ModuleTag.assignDataTags(tagSets);
+
+        // 前面的模块全部安装，只有最后一个放不下新标签的模块被拒绝
+        assertEquals(1, assignment.rejected());
+        assertTrue(assignment.accepted()[free - 1]);
+        assertFalse(assignment.accepted()[free]);
+    }
+
+    @Test
+    void permanentTagsAreSharedWithDataModules() {
+        ModuleTag permanent = ModuleTag.of("shared_permanent");
+        ModuleTag.DataAssignment assignment = ModuleTag.assignDataTags(List.of(Set.of("shared_permanent")));
+        assertEquals(permanent.mask(), assignment.masks()[0]);
+    }
+
+    private static List<Set<String>> singletons(String prefix, int count) {
+        List<Set<String>> tagSets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tagSets.add(Set.of(prefix + i));
+        }
+        return tagSets;
+    }
+}